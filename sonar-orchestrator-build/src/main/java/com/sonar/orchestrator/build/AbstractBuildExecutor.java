@@ -22,7 +22,11 @@ package com.sonar.orchestrator.build;
 import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.build.coverage.JaCoCoArgumentsBuilder;
 import com.sonar.orchestrator.locator.Locators;
+import com.sonar.orchestrator.util.AsyncPipe;
+import com.sonar.orchestrator.util.command.Command;
 import com.sonar.orchestrator.util.command.CommandExecutor;
+import com.sonar.orchestrator.util.command.ProcessResourceMonitor;
+import com.sonar.orchestrator.util.command.ResourceUsage;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +41,43 @@ abstract class AbstractBuildExecutor<T extends Build<T>> {
 
   abstract BuildResult execute(T build, Configuration config, Locators locators, Map<String, String> adjustedProperties, CommandExecutor create);
 
+  /**
+   * The logs that do not fit in memory are spilled to the workspace
+   */
+  static BuildResult newBuildResult(Configuration config) {
+    return new BuildResult(config.fileSystem().workspace());
+  }
+
+  /**
+   * Copies the output of the command to the logs of the build and to the console, without slowing down the command
+   * when the console is slow. The console is skipped if the property "orchestrator.console.quiet" is true. See
+   * {@link AsyncPipe.OverflowPolicy} for the property "orchestrator.console.overflow".
+   * The pipe must be closed when the command is finished, so that the logs are complete.
+   */
+  static AsyncPipe newLogsPipe(BuildResult result, Configuration config) {
+    boolean quietConsole = Boolean.parseBoolean(config.getString(AsyncPipe.QUIET_CONSOLE_PROPERTY, "false"));
+    AsyncPipe.OverflowPolicy overflowPolicy = AsyncPipe.OverflowPolicy.parse(config.getString(AsyncPipe.OVERFLOW_PROPERTY, null));
+    return AsyncPipe.create(result.getLogsWriter(), quietConsole, overflowPolicy);
+  }
+
+  /**
+   * Executes the command and adds its exit status and its resource usage to the result. The output
+   * is copied to the logs of the build.
+   *
+   * @param name name of the step in {@link BuildResult#getResourceUsage()}, for example the Maven goal
+   */
+  static void executeCommand(CommandExecutor commandExecutor, Command command, long timeoutMs, BuildResult result, Configuration config, String name) {
+    ProcessResourceMonitor monitor = new ProcessResourceMonitor();
+    int status;
+    try (AsyncPipe writer = newLogsPipe(result, config)) {
+      status = commandExecutor.execute(command, writer, timeoutMs, monitor);
+    }
+    result.addStatus(status);
+    ResourceUsage usage = monitor.getUsage(name, status);
+    result.addResourceUsage(usage);
+    LOG.info("Resource usage of {}", usage);
+  }
+
   /**
    * Append JaCoCo agent JVM arguments to a given environment variable (SONAR_RUNNER_OPTS, MAVEN_OPTS, ...)
    * @param optsVariableName The name of the environment variable to append to
@@ -23,7 +23,6 @@ import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.locator.Locators;
 import com.sonar.orchestrator.util.command.Command;
 import com.sonar.orchestrator.util.command.CommandExecutor;
-import com.sonar.orchestrator.util.StreamConsumer;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.Map;
@@ -48,7 +47,7 @@ class AntBuildExecutor extends AbstractBuildExecutor<AntBuild> {
 
   @Override
   BuildResult execute(AntBuild build, Configuration config, Locators locators, Map<String, String> adjustedProperties, CommandExecutor commandExecutor) {
-    BuildResult result = new BuildResult();
+    BuildResult result = newBuildResult(config);
     for (String target : build.getTargets()) {
       executeTarget(build, config, locators, adjustedProperties, target, result, commandExecutor);
     }
@@ -74,9 +73,7 @@ class AntBuildExecutor extends AbstractBuildExecutor<AntBuild> {
         command.addSystemArgument(entry.getKey().toString(), entry.getValue().toString());
       }
       LoggerFactory.getLogger(getClass()).info("Execute: {}", command);
-      StreamConsumer.Pipe writer = new StreamConsumer.Pipe(result.getLogsWriter());
-      int status = commandExecutor.execute(command, writer, build.getTimeoutSeconds() * 1000);
-      result.addStatus(status);
+      executeCommand(commandExecutor, command, build.getTimeoutSeconds() * 1000, result, config, target);
 
     } catch (Exception e) {
       throw new IllegalStateException("Fail to execute Ant", e);
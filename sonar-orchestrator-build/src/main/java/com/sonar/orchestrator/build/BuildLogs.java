@@ -0,0 +1,251 @@
+/*
+ * Orchestrator Build
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.build;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.ref.Cleaner;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Logs of a build, with bounded memory. The last characters are kept in memory, the beginning of the logs
+ * is spilled to a temporary file of the spill directory. The file is deleted when the logs are garbage collected.
+ * Without spill directory, all the logs are kept in memory.
+ * <p>
+ * An index of the offsets of the lines in the file (one entry every {@link #INDEX_INTERVAL} lines) allows to
+ * read the lines from a given line number without reading the beginning of the file. Lines are terminated
+ * by "\n", "\r" or "\r\n", as in {@link BufferedReader#readLine()}.
+ */
+class BuildLogs extends Writer {
+
+  static final int DEFAULT_MAX_IN_MEMORY_CHARS = 4 * 1024 * 1024;
+  static final int INDEX_INTERVAL = 1024;
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  @CheckForNull
+  private final Path spillDirectory;
+  private final int maxInMemoryChars;
+  private final StringBuilder tail = new StringBuilder();
+
+  @CheckForNull
+  private SpillFile spillFile;
+  @CheckForNull
+  private OutputStream spillOutput;
+  private long spilledBytes = 0L;
+  // number of lines started in the spilled bytes, including the last one if not terminated
+  private long spilledLines = 0L;
+  private long[] lineOffsets = new long[16];
+  private boolean lastSpilledCharIsCR = false;
+  private boolean lastSpilledCharIsTerminator = true;
+
+  /**
+   * @param spillDirectory directory of the spill file, {@code null} to keep all the logs in memory
+   */
+  BuildLogs(@Nullable Path spillDirectory, int maxInMemoryChars) {
+    if (maxInMemoryChars < 1) {
+      throw new IllegalArgumentException("Max in-memory size must be positive: " + maxInMemoryChars);
+    }
+    this.spillDirectory = spillDirectory;
+    this.maxInMemoryChars = maxInMemoryChars;
+  }
+
+  @Override
+  public synchronized void write(char[] cbuf, int off, int len) throws IOException {
+    tail.append(cbuf, off, len);
+    if (spillDirectory != null && tail.length() > maxInMemoryChars) {
+      spill();
+    }
+  }
+
+  @Override
+  public synchronized void write(String str, int off, int len) throws IOException {
+    tail.append(str, off, off + len);
+    if (spillDirectory != null && tail.length() > maxInMemoryChars) {
+      spill();
+    }
+  }
+
+  /**
+   * Moves the beginning of the in-memory tail to the file, so that half of the tail remains in memory
+   */
+  private void spill() throws IOException {
+    int end = tail.length() - maxInMemoryChars / 2;
+    if (Character.isHighSurrogate(tail.charAt(end - 1))) {
+      // do not split a surrogate pair
+      end--;
+    }
+    if (end <= 0) {
+      return;
+    }
+    String chunk = tail.substring(0, end);
+    byte[] bytes = chunk.getBytes(UTF_8);
+    index(bytes);
+    if (spillOutput == null) {
+      Files.createDirectories(spillDirectory);
+      SpillFile file = new SpillFile(Files.createTempFile(spillDirectory, "build", ".log"));
+      spillOutput = Channels.newOutputStream(FileChannel.open(file.path, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+      file.output = spillOutput;
+      CLEANER.register(this, file);
+      spillFile = file;
+    }
+    spillOutput.write(bytes);
+    spilledBytes += bytes.length;
+    tail.delete(0, end);
+  }
+
+  private void index(byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      byte b = bytes[i];
+      if (lastSpilledCharIsTerminator && !(lastSpilledCharIsCR && b == '\n')) {
+        // start of a line
+        if (spilledLines % INDEX_INTERVAL == 0) {
+          addLineOffset(spilledLines / INDEX_INTERVAL, spilledBytes + i);
+        }
+        spilledLines++;
+      }
+      lastSpilledCharIsCR = b == '\r';
+      lastSpilledCharIsTerminator = b == '\r' || b == '\n';
+    }
+  }
+
+  private void addLineOffset(long position, long offset) {
+    int index = Math.toIntExact(position);
+    if (index >= lineOffsets.length) {
+      lineOffsets = Arrays.copyOf(lineOffsets, lineOffsets.length * 2);
+    }
+    lineOffsets[index] = offset;
+  }
+
+  /**
+   * The lines logged so far, from the given line number (zero-based). The stream must be closed.
+   */
+  synchronized Stream<String> lines(long fromLine) {
+    if (fromLine < 0) {
+      throw new IllegalArgumentException("Line number must be positive: " + fromLine);
+    }
+    InputStream tailInput = new ByteArrayInputStream(tail.toString().getBytes(UTF_8));
+    long skippedLines = 0L;
+    InputStream input = tailInput;
+    if (spillFile != null) {
+      try {
+        spillOutput.flush();
+        long firstIndexedLine = Math.min(fromLine, Math.max(0L, spilledLines - 1)) / INDEX_INTERVAL;
+        long offset = lineOffsets[Math.toIntExact(firstIndexedLine)];
+        skippedLines = firstIndexedLine * INDEX_INTERVAL;
+        FileChannel channel = FileChannel.open(spillFile.path, StandardOpenOption.READ).position(offset);
+        InputStream fileInput = BoundedInputStream.builder()
+          .setInputStream(Channels.newInputStream(channel))
+          .setMaxCount(spilledBytes - offset)
+          .get();
+        input = new SequenceInputStream(fileInput, tailInput);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Fail to read logs from " + spillFile.path, e);
+      }
+    }
+    BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
+    return reader.lines()
+      .skip(fromLine - skippedLines)
+      .onClose(() -> {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+  }
+
+  /**
+   * Size of the logs on disk, in bytes
+   */
+  synchronized long getSpilledBytes() {
+    return spilledBytes;
+  }
+
+  @Override
+  public synchronized String toString() {
+    if (spillFile == null) {
+      return tail.toString();
+    }
+    try {
+      spillOutput.flush();
+      return Files.readString(spillFile.path, UTF_8) + tail;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Fail to read logs from " + spillFile.path, e);
+    }
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if (spillOutput != null) {
+      spillOutput.flush();
+    }
+  }
+
+  /**
+   * Logs are still readable after being closed, as executors may close the writer.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+  /**
+   * Cleaning action, must not reference the {@link BuildLogs}
+   */
+  private static class SpillFile implements Runnable {
+    private final Path path;
+    @CheckForNull
+    private OutputStream output;
+
+    private SpillFile(Path path) {
+      this.path = path;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (output != null) {
+          output.close();
+        }
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        // the file remains in the spill directory, for example the workspace
+      }
+    }
+  }
+}
@@ -19,32 +19,107 @@
  */
 package com.sonar.orchestrator.build;
 
-import java.io.StringWriter;
+import com.sonar.orchestrator.util.command.ResourceUsage;
 import java.io.Writer;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 public class BuildResult {
 
-  // StringWriter does not need to be closed
-  private StringWriter logs = new StringWriter();
+  // logged by scanners: "More about the report processing at http://localhost:9000/api/ce/task?id=AVz4Pj0lCGu3oo5Vbyu8"
+  private static final Pattern CE_TASK_ID = Pattern.compile("api/ce/task\\?id=([\\w-]+)");
+
+  private final BuildLogs logs;
   private List<Integer> statuses = new ArrayList<>();
+  private final List<ResourceUsage> resourceUsages = new ArrayList<>();
+
+  /**
+   * Logs are kept in memory. The results created by the build executors spill the big logs to the workspace
+   * of Orchestrator instead.
+   */
+  public BuildResult() {
+    this(null, BuildLogs.DEFAULT_MAX_IN_MEMORY_CHARS);
+  }
+
+  /**
+   * @param spillDirectory directory of the file used when logs exceed {@value BuildLogs#DEFAULT_MAX_IN_MEMORY_CHARS}
+   *                       characters, for example the workspace of Orchestrator
+   */
+  BuildResult(Path spillDirectory) {
+    this(spillDirectory, BuildLogs.DEFAULT_MAX_IN_MEMORY_CHARS);
+  }
+
+  BuildResult(@Nullable Path spillDirectory, int maxInMemoryChars) {
+    this.logs = new BuildLogs(spillDirectory, maxInMemoryChars);
+  }
 
   public Writer getLogsWriter() {
     return logs;
   }
 
+  /**
+   * All the logs. Prefer {@link #getLogsLines(Predicate)} for the builds that generate huge logs,
+   * for example with debug logs enabled.
+   */
   public String getLogs() {
     return logs.toString();
   }
 
+  /**
+   * The lines of logs that match the predicate. The logs are read line by line, without loading
+   * the whole logs in memory.
+   */
   public List<String> getLogsLines(Predicate<String> linePredicate) {
-    return Arrays.stream(logs.toString().split("\r?\n|\r"))
-      .filter(linePredicate)
-      .toList();
+    return getLogsLines(0L, linePredicate);
+  }
+
+  /**
+   * Same as {@link #getLogsLines(Predicate)}, but ignores the lines before {@code fromLine} (zero-based),
+   * for example to search the logs generated after a given step. The lines are located with an index,
+   * so the beginning of the logs is not read.
+   */
+  public List<String> getLogsLines(long fromLine, Predicate<String> linePredicate) {
+    try (Stream<String> lines = logs.lines(fromLine)) {
+      return lines.filter(linePredicate).toList();
+    }
+  }
+
+  /**
+   * Ids of the Compute Engine tasks submitted by the build, in order of submission, as logged by the scanner.
+   * A build can submit several tasks, for example a Maven build that executes several analyses.
+   */
+  public List<String> getCeTaskIds() {
+    List<String> ids = new ArrayList<>();
+    try (Stream<String> lines = logs.lines(0L)) {
+      lines.forEach(line -> {
+        Matcher matcher = CE_TASK_ID.matcher(line);
+        while (matcher.find()) {
+          String id = matcher.group(1);
+          if (!ids.contains(id)) {
+            ids.add(id);
+          }
+        }
+      });
+    }
+    return ids;
+  }
+
+  /**
+   * Id of the last Compute Engine task submitted by the build, if any.
+   *
+   * @see #getCeTaskIds()
+   */
+  public Optional<String> getCeTaskId() {
+    List<String> ids = getCeTaskIds();
+    return ids.isEmpty() ? Optional.empty() : Optional.of(ids.get(ids.size() - 1));
   }
 
   /**
@@ -73,6 +148,20 @@ public class BuildResult {
     return this;
   }
 
+  /**
+   * Wall time, CPU time, peak memory and exit status of each goal/task/target executed in a separate process,
+   * in order of execution. Empty for the builds that are not executed in a new process, for example with the
+   * Gradle Tooling API or the in-process scanner.
+   */
+  public List<ResourceUsage> getResourceUsage() {
+    return Collections.unmodifiableList(resourceUsages);
+  }
+
+  public BuildResult addResourceUsage(ResourceUsage usage) {
+    resourceUsages.add(usage);
+    return this;
+  }
+
   /**
    * Tests statuses, return true if all zero, else false
    * @return true if all statuses are zero
@@ -21,10 +21,19 @@ package com.sonar.orchestrator.build;
 
 import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.locator.Locators;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 
+import static java.lang.String.format;
+
 public class BuildRunner {
 
   public static final String SONAR_HOST_URL = "sonar.host.url";
@@ -51,6 +60,51 @@ public class BuildRunner {
     return result;
   }
 
+  /**
+   * Runs independent builds concurrently, with at most {@code maxConcurrency} builds at the same time.
+   * {@code afterBuild} is executed just after each successful build, by the same thread, so that for example
+   * waiting for the Compute Engine overlaps with the builds that are still running.
+   *
+   * @return the results, in the order of the builds
+   * @throws IllegalStateException if some builds fail. The first failure is the cause, the others are suppressed.
+   */
+  public BuildResult[] runParallel(@Nullable String serverUrl, int maxConcurrency, List<? extends Build<?>> builds, Consumer<BuildResult> afterBuild) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+    }
+    BuildResult[] results = new BuildResult[builds.size()];
+    if (builds.isEmpty()) {
+      return results;
+    }
+    List<Throwable> failures = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrency, builds.size()));
+    try {
+      List<CompletableFuture<BuildResult>> futures = new ArrayList<>(builds.size());
+      for (Build<?> build : builds) {
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          BuildResult result = run(serverUrl, build);
+          afterBuild.accept(result);
+          return result;
+        }, executor));
+      }
+      for (int index = 0; index < futures.size(); index++) {
+        try {
+          results[index] = futures.get(index).join();
+        } catch (CompletionException e) {
+          failures.add(e.getCause());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    if (!failures.isEmpty()) {
+      IllegalStateException e = new IllegalStateException(format("Fail to execute %d of %d builds", failures.size(), builds.size()), failures.get(0));
+      failures.stream().skip(1).forEach(e::addSuppressed);
+      throw e;
+    }
+    return results;
+  }
+
   Map<String, String> adjustProperties(@Nullable String serverUrl, Build<?> build) {
     Map<String, String> adjustedProperties = new HashMap<>();
     if (!(build instanceof ScannerForMSBuild) || !build.arguments().contains("end")) {
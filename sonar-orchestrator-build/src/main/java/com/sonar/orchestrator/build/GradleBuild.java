@@ -30,18 +30,86 @@ import java.util.List;
 import java.util.Map;
 
 import static com.sonar.orchestrator.util.Preconditions.checkArgument;
+import static com.sonar.orchestrator.util.Preconditions.checkState;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 public final class GradleBuild extends Build<GradleBuild> {
 
   private Location projectDirectory;
   private List<String> tasks = new ArrayList<>();
+  private boolean toolingApi = false;
+  private boolean buildCache = false;
+  private boolean configurationCache = false;
 
   @Override
   BuildResult execute(Configuration config, Locators locators, Map<String, String> adjustedProperties) {
+    if (toolingApi) {
+      checkState(isToolingApiAvailable(), "Gradle Tooling API is not available. Add the dependency org.gradle:gradle-tooling-api to the classpath.");
+      return new GradleToolingApiExecutor().execute(this, config, locators, adjustedProperties);
+    }
     return new GradleBuildExecutor().execute(this, config, locators, adjustedProperties);
   }
 
+  private static boolean isToolingApiAvailable() {
+    try {
+      Class.forName("org.gradle.tooling.GradleConnector", false, GradleBuild.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  public boolean isToolingApi() {
+    return toolingApi;
+  }
+
+  /**
+   * Executes the tasks through the Gradle Tooling API instead of the Gradle wrapper script. The connection
+   * to the project, and so the Gradle daemon, is shared by all the builds of the same project directory
+   * until the JVM exits. The dependency org.gradle:gradle-tooling-api must be added to the classpath.
+   */
+  public GradleBuild setToolingApi(boolean b) {
+    this.toolingApi = b;
+    return this;
+  }
+
+  public boolean isBuildCache() {
+    return buildCache;
+  }
+
+  /**
+   * Enables the Gradle build cache (option {@code --build-cache}), so that the tasks executed before the analysis
+   * are not executed again when their inputs did not change.
+   */
+  public GradleBuild setBuildCache(boolean b) {
+    this.buildCache = b;
+    return this;
+  }
+
+  public boolean isConfigurationCache() {
+    return configurationCache;
+  }
+
+  /**
+   * Enables the Gradle configuration cache (option {@code --configuration-cache}). Requires a version of the
+   * Gradle plugin of the scanner that supports it.
+   */
+  public GradleBuild setConfigurationCache(boolean b) {
+    this.configurationCache = b;
+    return this;
+  }
+
+  List<String> cacheArguments() {
+    List<String> arguments = new ArrayList<>();
+    if (buildCache) {
+      arguments.add("--build-cache");
+    }
+    if (configurationCache) {
+      arguments.add("--configuration-cache");
+    }
+    return arguments;
+  }
+
   public GradleBuild setProjectDirectory(Location projectDirectory) {
     this.projectDirectory = projectDirectory;
     return this;
@@ -23,7 +23,6 @@ import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.locator.Locators;
 import com.sonar.orchestrator.util.command.Command;
 import com.sonar.orchestrator.util.command.CommandExecutor;
-import com.sonar.orchestrator.util.StreamConsumer;
 import java.io.File;
 import java.util.Map;
 import org.apache.commons.lang3.SystemUtils;
@@ -46,15 +45,15 @@ public class GradleBuildExecutor extends AbstractBuildExecutor<GradleBuild> {
 
   @Override
   BuildResult execute(GradleBuild build, Configuration config, Locators locators, Map<String, String> adjustedProperties, CommandExecutor commandExecutor) {
-    BuildResult result = new BuildResult();
+    BuildResult result = newBuildResult(config);
     for (String task : build.getTasks()) {
-      executeTask(build, locators, adjustedProperties, task, result, commandExecutor);
+      executeTask(build, config, locators, adjustedProperties, task, result, commandExecutor);
     }
 
     return result;
   }
 
-  private void executeTask(GradleBuild build, Locators locators, Map<String, String> adjustedProperties, String task,
+  private void executeTask(GradleBuild build, Configuration config, Locators locators, Map<String, String> adjustedProperties, String task,
     final BuildResult result, CommandExecutor commandExecutor) {
     try {
       File projectDir = locators.locate(build.getProjectDirectory());
@@ -68,15 +67,14 @@ public class GradleBuildExecutor extends AbstractBuildExecutor<GradleBuild> {
         command.setEnvironmentVariable(env.getKey(), env.getValue());
       }
       command.addArguments(task.split(" "));
+      command.addArguments(build.cacheArguments());
 
       command.addArguments(build.arguments());
       for (Map.Entry<String, String> entry : adjustedProperties.entrySet()) {
         command.addSystemArgument(entry.getKey(), entry.getValue());
       }
-      StreamConsumer.Pipe writer = new StreamConsumer.Pipe(result.getLogsWriter());
       LoggerFactory.getLogger(getClass()).info("Execute: {}", command);
-      int status = commandExecutor.execute(command, writer, build.getTimeoutSeconds() * 1000);
-      result.addStatus(status);
+      executeCommand(commandExecutor, command, build.getTimeoutSeconds() * 1000, result, config, task);
     } catch (Exception e) {
       throw new IllegalStateException("Fail to execute Gradle", e);
     }
@@ -0,0 +1,186 @@
+/*
+ * Orchestrator Build
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.build;
+
+import com.sonar.orchestrator.config.Configuration;
+import com.sonar.orchestrator.locator.Locators;
+import com.sonar.orchestrator.util.command.CommandExecutor;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.output.WriterOutputStream;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.sonar.orchestrator.util.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Executes the tasks of a {@link GradleBuild} through the Gradle Tooling API, see {@link GradleBuild#setToolingApi(boolean)}.
+ * Unlike the Gradle wrapper script, the connection to the Gradle daemon is kept open between builds.
+ */
+class GradleToolingApiExecutor extends AbstractBuildExecutor<GradleBuild> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GradleToolingApiExecutor.class);
+  private static final long CANCELLATION_TIMEOUT_MS = 10_000L;
+  private static final Map<File, ProjectConnection> CONNECTIONS = new ConcurrentHashMap<>();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(GradleToolingApiExecutor::closeConnections, "GradleToolingApiExecutor-shutdown"));
+  }
+
+  private final Function<File, ProjectConnection> connections;
+
+  GradleToolingApiExecutor() {
+    this(GradleToolingApiExecutor::sharedConnection);
+  }
+
+  // Visible for testing
+  GradleToolingApiExecutor(Function<File, ProjectConnection> connections) {
+    this.connections = connections;
+  }
+
+  @Override
+  BuildResult execute(GradleBuild build, Configuration config, Locators locators, Map<String, String> adjustedProperties, CommandExecutor commandExecutor) {
+    File projectDir = locators.locate(build.getProjectDirectory());
+    checkState(projectDir != null && projectDir.isDirectory(), "Gradle project directory does not exist: '%s'", build.getProjectDirectory());
+    ProjectConnection connection = connections.apply(projectDir);
+    BuildResult result = newBuildResult(config);
+    for (String task : build.getTasks()) {
+      result.addStatus(executeTask(connection, build, adjustedProperties, task, result.getLogsWriter()));
+    }
+    return result;
+  }
+
+  private static int executeTask(ProjectConnection connection, GradleBuild build, Map<String, String> adjustedProperties, String task, Writer logs) {
+    List<String> arguments = new ArrayList<>(build.cacheArguments());
+    arguments.addAll(build.arguments());
+    adjustedProperties.forEach((key, value) -> arguments.add("-D" + key + "=" + value));
+    long timeoutMs = build.getTimeoutSeconds() * 1000;
+    CancellationTokenSource cancellation = GradleConnector.newCancellationTokenSource();
+    CompletableFuture<Integer> status = new CompletableFuture<>();
+    try (OutputStream output = WriterOutputStream.builder().setWriter(logs).setCharset(UTF_8).setWriteImmediately(true).get()) {
+      LOG.info("Execute with Gradle Tooling API: {} {}", task, arguments);
+      connection.newBuild()
+        .forTasks(task.split(" "))
+        .withArguments(arguments)
+        .setEnvironmentVariables(environmentVariables(build))
+        .setStandardOutput(output)
+        .setStandardError(output)
+        .withCancellationToken(cancellation.token())
+        .run(new StatusHandler(status));
+      try {
+        return status.get(timeoutMs, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        cancel(cancellation, status);
+        throw new IllegalStateException("Timeout exceeded: " + timeoutMs + " ms", e);
+      } catch (InterruptedException e) {
+        cancel(cancellation, status);
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while executing Gradle", e);
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to execute Gradle", e.getCause());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to execute Gradle", e);
+    }
+  }
+
+  /**
+   * The variables set on the Tooling API replace the whole environment of the build, so they are added to the
+   * environment of the current process, as {@link com.sonar.orchestrator.util.command.Command} does.
+   *
+   * @return {@code null} if the build does not define variables, so that the environment is inherited
+   */
+  @CheckForNull
+  static Map<String, String> environmentVariables(GradleBuild build) {
+    if (build.getEnvironmentVariables().isEmpty()) {
+      return null;
+    }
+    Map<String, String> variables = new HashMap<>(System.getenv());
+    variables.putAll(build.getEnvironmentVariables());
+    return variables;
+  }
+
+  /**
+   * Waits for the build to be cancelled, so that it does not write to the logs anymore
+   */
+  private static void cancel(CancellationTokenSource cancellation, CompletableFuture<Integer> status) {
+    cancellation.cancel();
+    try {
+      status.get(CANCELLATION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      LOG.warn("Fail to cancel Gradle build", e);
+    }
+  }
+
+  private static ProjectConnection sharedConnection(File projectDir) {
+    return CONNECTIONS.computeIfAbsent(projectDir.getAbsoluteFile(), dir -> GradleConnector.newConnector().forProjectDirectory(dir).connect());
+  }
+
+  private static void closeConnections() {
+    CONNECTIONS.values().forEach(ProjectConnection::close);
+    CONNECTIONS.clear();
+  }
+
+  private static class StatusHandler implements ResultHandler<Void> {
+    private final CompletableFuture<Integer> status;
+
+    private StatusHandler(CompletableFuture<Integer> status) {
+      this.status = status;
+    }
+
+    @Override
+    public void onComplete(Void result) {
+      status.complete(0);
+    }
+
+    @Override
+    public void onFailure(GradleConnectionException failure) {
+      if (failure instanceof BuildException || failure instanceof BuildCancelledException) {
+        // the cause is already in the logs
+        status.complete(1);
+      } else {
+        status.completeExceptionally(failure);
+      }
+    }
+  }
+}
@@ -23,7 +23,6 @@ import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.locator.Locators;
 import com.sonar.orchestrator.util.command.Command;
 import com.sonar.orchestrator.util.command.CommandExecutor;
-import com.sonar.orchestrator.util.StreamConsumer;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -38,6 +37,7 @@ import static com.sonar.orchestrator.util.Preconditions.checkState;
 class MavenBuildExecutor extends AbstractBuildExecutor<MavenBuild> {
 
   private static final String MAVEN_OPTS = "MAVEN_OPTS";
+  static final String DAEMON_PROPERTY = "orchestrator.maven.daemon";
   private final Os os;
 
   // visible for tests
@@ -51,7 +51,7 @@ class MavenBuildExecutor extends AbstractBuildExecutor<MavenBuild> {
 
   @Override
   BuildResult execute(MavenBuild build, Configuration config, Locators locators, Map<String, String> adjustedProperties, CommandExecutor commandExecutor) {
-    BuildResult result = new BuildResult();
+    BuildResult result = newBuildResult(config);
     for (String goal : build.getGoals()) {
       appendCoverageArgumentToOpts(build.getEnvironmentVariables(), config, locators, MAVEN_OPTS);
       executeGoal(build, config, locators, adjustedProperties, goal, result, commandExecutor);
@@ -70,7 +70,9 @@ class MavenBuildExecutor extends AbstractBuildExecutor<MavenBuild> {
       for (Map.Entry<String, String> env : build.getEffectiveEnvironmentVariables().entrySet()) {
         command.setEnvironmentVariable(env.getKey(), env.getValue());
       }
-      if (mavenHome != null) {
+      boolean daemon = isDaemon(config);
+      // mvnd does not use M2_HOME, and the Maven home may be a plain Maven installation
+      if (mavenHome != null && !daemon) {
         // Force M2_HOME to override default value from calling env
         command.setEnvironmentVariable("M2_HOME", mavenHome.toAbsolutePath().toString());
       }
@@ -78,6 +80,9 @@ class MavenBuildExecutor extends AbstractBuildExecutor<MavenBuild> {
       command.addArguments(goal.split(" "));
       command.addArgument("-B");
       command.addArgument("-e");
+      if (daemon) {
+        configureDaemon(command);
+      }
 
       if (build.getPom() != null) {
         File pomFile = locators.locate(build.getPom());
@@ -91,24 +96,59 @@ class MavenBuildExecutor extends AbstractBuildExecutor<MavenBuild> {
       for (Map.Entry<String, String> entry : adjustedProperties.entrySet()) {
         command.addSystemArgument(entry.getKey(), entry.getValue());
       }
-      StreamConsumer.Pipe writer = new StreamConsumer.Pipe(result.getLogsWriter());
       LoggerFactory.getLogger(getClass()).info("Execute: {}", command);
-      int status = commandExecutor.execute(command, writer, build.getTimeoutSeconds() * 1000);
-      result.addStatus(status);
+      executeCommand(commandExecutor, command, build.getTimeoutSeconds() * 1000, result, config, goal);
 
     } catch (Exception e) {
       throw new IllegalStateException("Fail to execute Maven", e);
     }
   }
 
+  /**
+   * The Maven daemon keeps the JVM, the plugins and the project models warm between builds. Its daemons
+   * are reused by the builds that require the same Maven home and the same JVM options. The JVM options
+   * of the daemon are defined by MAVEN_OPTS, for example to attach the JaCoCo agent, and the properties
+   * passed with -D are user properties of the build, so they are not kept by the daemon.
+   */
+  private static void configureDaemon(Command command) {
+    String mavenOpts = command.getEnvironmentVariables().get(MAVEN_OPTS);
+    if (mavenOpts != null) {
+      // MAVEN_OPTS is ignored by the daemon and must not be applied to the client
+      command.removeEnvironmentVariable(MAVEN_OPTS);
+      if (!mavenOpts.isBlank()) {
+        command.addSystemArgument("mvnd.jvmArgs", mavenOpts.trim());
+      }
+    }
+  }
+
+  /**
+   * Maven daemon (mvnd) is used if the property "orchestrator.maven.daemon" is true, or if the binary
+   * defined by the property "maven.binary" is mvnd.
+   */
+  static boolean isDaemon(Configuration config) {
+    String binary = config.getStringByKeys("maven.binary", "MAVEN_BINARY");
+    if (binary != null && new File(binary).getName().startsWith("mvnd")) {
+      return true;
+    }
+    return Boolean.parseBoolean(config.getStringByKeys(DAEMON_PROPERTY, "ORCHESTRATOR_MAVEN_DAEMON"));
+  }
+
   String buildMvnPath(Configuration config) throws IOException {
     Optional<String> binary = Optional.ofNullable(config.getStringByKeys("maven.binary", "MAVEN_BINARY"));
+    if (binary.isEmpty() && isDaemon(config)) {
+      binary = Optional.of(os.isWindows() ? "mvnd.cmd" : "mvnd");
+    }
     Path home = config.fileSystem().mavenHome();
     if (home == null) {
       return binary.orElse(os.isWindows() ? "mvn.cmd" : "mvn");
     }
     if (binary.isPresent()) {
-      return home.resolve("bin/" + binary.get()).toAbsolutePath().toString();
+      Path bin = home.resolve("bin/" + binary.get());
+      if (isDaemon(config) && !Files.exists(bin)) {
+        // the Maven home is a plain Maven installation, so mvnd is searched in the PATH
+        return binary.get();
+      }
+      return bin.toAbsolutePath().toString();
     }
     if (os.isWindows()) {
       // .bat is required for maven versions <= 3.2
@@ -23,7 +23,6 @@ import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.locator.Locators;
 import com.sonar.orchestrator.util.command.Command;
 import com.sonar.orchestrator.util.command.CommandExecutor;
-import com.sonar.orchestrator.util.StreamConsumer;
 import java.io.File;
 import java.util.Map;
 import org.slf4j.LoggerFactory;
@@ -39,7 +38,7 @@ class ScannerForMSBuildExecutor extends AbstractBuildExecutor<ScannerForMSBuild>
 
   BuildResult execute(ScannerForMSBuild build, Configuration config, Map<String, String> adjustedProperties, ScannerForMSBuildInstaller installer,
     CommandExecutor commandExecutor) {
-    BuildResult result = new BuildResult();
+    BuildResult result = newBuildResult(config);
     File runnerScript = installer.install(
       build.scannerVersion(),
       build.getLocation(),
@@ -48,9 +47,7 @@ class ScannerForMSBuildExecutor extends AbstractBuildExecutor<ScannerForMSBuild>
     try {
       Command command = createCommand(build, adjustedProperties, runnerScript);
       LoggerFactory.getLogger(ScannerForMSBuild.class).info("Execute: {}", command);
-      StreamConsumer.Pipe writer = new StreamConsumer.Pipe(result.getLogsWriter());
-      int status = commandExecutor.execute(command, writer, build.getTimeoutSeconds() * 1000);
-      result.addStatus(status);
+      executeCommand(commandExecutor, command, build.getTimeoutSeconds() * 1000, result, config, "SonarScanner for .NET");
       return result;
 
     } catch (Exception e) {
@@ -53,6 +53,8 @@ public class ScannerForMSBuildInstaller {
 
   private static final Logger LOG = LoggerFactory.getLogger(ScannerForMSBuildInstaller.class);
   private static final PackageDetailsFactory packageDetailsFactory = new PackageDetailsFactory();
+  // builds can be executed concurrently, so they must not unzip the same scanner at the same time
+  private static final Object INSTALL_LOCK = new Object();
 
   private final Locators locators;
 
@@ -64,12 +66,14 @@ public class ScannerForMSBuildInstaller {
    * Installs an ephemeral Scanner for .NET and returns the path to the exe to execute.
    */
   public File install(@Nullable Version scannerVersion, @Nullable Location location, File toDir, boolean useDotNetCore) {
-    if (location == null) {
-      scannerVersion = scannerVersion == null ? Version.create(DEFAULT_SCANNER_VERSION) : scannerVersion;
-      PackageDetails packageDetails = packageDetailsFactory.create(scannerVersion, useDotNetCore);
-      return install(scannerVersion, toDir, packageDetails);
-    } else {
-      return installFromLocation(location, toDir, useDotNetCore);
+    synchronized (INSTALL_LOCK) {
+      if (location == null) {
+        scannerVersion = scannerVersion == null ? Version.create(DEFAULT_SCANNER_VERSION) : scannerVersion;
+        PackageDetails packageDetails = packageDetailsFactory.create(scannerVersion, useDotNetCore);
+        return install(scannerVersion, toDir, packageDetails);
+      } else {
+        return installFromLocation(location, toDir, useDotNetCore);
+      }
     }
   }
 
@@ -0,0 +1,182 @@
+/*
+ * Orchestrator Build
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.build;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A JVM that executes the analyses requested by {@link SonarScannerExecutor}, see {@link ScannerWorkerMain}.
+ * A worker executes one analysis at a time.
+ */
+class ScannerWorker implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScannerWorker.class);
+  private static final String END_OF_STREAM = "EOF";
+
+  private final Process process;
+  private final File errorLog;
+  private final Writer requests;
+  private final BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+
+  ScannerWorker(Process process, File errorLog) {
+    this.process = process;
+    this.errorLog = errorLog;
+    this.requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), UTF_8));
+    Thread reader = new Thread(this::readReplies, "ScannerWorker-" + process.pid());
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  /**
+   * @param scannerHome  installation directory of SonarScanner CLI
+   * @param jvmOptions   options of the JVM, for example the JaCoCo agent
+   * @param environment  environment variables of the JVM
+   * @param workDir      directory of the log file of the JVM
+   */
+  static ScannerWorker start(File scannerHome, List<String> jvmOptions, Map<String, String> environment, File workDir) {
+    List<String> command = new ArrayList<>();
+    command.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+    command.addAll(jvmOptions);
+    command.add("-cp");
+    command.add(workerClasspath());
+    command.add(ScannerWorkerMain.class.getName());
+    command.add(new File(scannerHome, "lib").getAbsolutePath());
+    try {
+      Files.createDirectories(workDir.toPath());
+      File errorLog = File.createTempFile("scanner-worker", ".log", workDir);
+      ProcessBuilder builder = new ProcessBuilder(command)
+        .directory(workDir)
+        .redirectError(errorLog);
+      builder.environment().clear();
+      builder.environment().putAll(environment);
+      LOG.info("Start scanner worker: {}", String.join(" ", command));
+      return new ScannerWorker(builder.start(), errorLog);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to start scanner worker", e);
+    }
+  }
+
+  private static String workerClasspath() {
+    try {
+      return new File(ScannerWorkerMain.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException("Fail to locate the classes of Orchestrator", e);
+    }
+  }
+
+  /**
+   * Executes an analysis and appends its logs to {@code logs}.
+   *
+   * @param properties     all the properties of the analysis. Nothing is shared with the previous analyses,
+   *                       except the engine when the connection properties are the same.
+   * @param timeoutMs      maximum duration of the analysis. The worker is stopped when exceeded.
+   * @return the exit status, 0 if successful
+   */
+  int analyze(String scannerVersion, Map<String, String> properties, Writer logs, long timeoutMs) throws IOException, InterruptedException {
+    File requestFile = File.createTempFile("scanner-request", ".properties", errorLog.getParentFile());
+    File logFile = File.createTempFile("scanner", ".log", errorLog.getParentFile());
+    try {
+      Properties request = new Properties();
+      request.setProperty(ScannerWorkerMain.LOG_FILE, logFile.getAbsolutePath());
+      request.setProperty(ScannerWorkerMain.SCANNER_VERSION, scannerVersion);
+      properties.forEach((key, value) -> request.setProperty(ScannerWorkerMain.PROPERTY_PREFIX + key, value));
+      try (Writer writer = Files.newBufferedWriter(requestFile.toPath(), UTF_8)) {
+        request.store(writer, null);
+      }
+      requests.write(requestFile.getAbsolutePath());
+      requests.write(System.lineSeparator());
+      requests.flush();
+
+      String reply = replies.poll(timeoutMs, TimeUnit.MILLISECONDS);
+      try (Reader reader = Files.newBufferedReader(logFile.toPath(), UTF_8)) {
+        reader.transferTo(logs);
+      }
+      if (reply == null) {
+        process.destroyForcibly();
+        throw new IllegalStateException("Timeout exceeded: " + timeoutMs + " ms");
+      }
+      if (END_OF_STREAM.equals(reply)) {
+        throw new IllegalStateException(format("Scanner worker stopped unexpectedly, see %s", errorLog));
+      }
+      return Integer.parseInt(reply.substring(ScannerWorkerMain.STATUS_PREFIX.length()));
+    } finally {
+      Files.deleteIfExists(requestFile.toPath());
+      Files.deleteIfExists(logFile.toPath());
+    }
+  }
+
+  boolean isAlive() {
+    return process.isAlive();
+  }
+
+  private void readReplies() {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(ScannerWorkerMain.STATUS_PREFIX)) {
+          replies.add(line);
+        } else {
+          // output of the threads that are still running after the end of an analysis
+          LOG.debug("[scanner worker] {}", line);
+        }
+      }
+    } catch (IOException e) {
+      LOG.debug("Fail to read output of scanner worker", e);
+    } finally {
+      replies.add(END_OF_STREAM);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      requests.close();
+      if (!process.waitFor(10, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+      }
+    } catch (IOException e) {
+      process.destroyForcibly();
+    } catch (InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
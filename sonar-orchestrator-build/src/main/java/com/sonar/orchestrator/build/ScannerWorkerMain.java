@@ -0,0 +1,213 @@
+/*
+ * Orchestrator Build
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.build;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import javax.annotation.CheckForNull;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Entry point of the long-lived JVM used by {@link SonarScanner#setInProcess(boolean)}. The scanner library
+ * bundled in the directory "lib" of SonarScanner CLI is loaded in an isolated classloader, and its engine is
+ * kept warm between analyses.
+ * <p>
+ * Each line of the standard input is the path to a request file (see {@link ScannerWorker}). Analyses are
+ * executed one at a time: the logs are written to the file defined by the request, the system properties are
+ * restored after each analysis, and the exit status is replied on the standard output.
+ * <p>
+ * This class is executed without the dependencies of Orchestrator, so it must use only the JDK.
+ */
+class ScannerWorkerMain {
+
+  static final String STATUS_PREFIX = "STATUS ";
+  static final String LOG_FILE = "worker.logFile";
+  static final String SCANNER_VERSION = "worker.scannerVersion";
+  static final String PROPERTY_PREFIX = "property.";
+
+  private static final String BOOTSTRAPPER_CLASS = "org.sonarsource.scanner.lib.ScannerEngineBootstrapper";
+
+  private final ClassLoader scannerClassLoader;
+  // the engine is reused as long as the bootstrap properties do not change
+  @CheckForNull
+  private Object engine;
+  @CheckForNull
+  private Map<String, String> engineProperties;
+
+  ScannerWorkerMain(ClassLoader scannerClassLoader) {
+    this.scannerClassLoader = scannerClassLoader;
+  }
+
+  public static void main(String[] args) throws IOException {
+    ClassLoader classLoader = new URLClassLoader(listJars(new File(args[0])), ClassLoader.getPlatformClassLoader());
+    ScannerWorkerMain worker = new ScannerWorkerMain(classLoader);
+    PrintStream replies = System.out;
+    BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, UTF_8));
+    String line;
+    while ((line = requests.readLine()) != null) {
+      int status = worker.analyze(new File(line));
+      replies.println(STATUS_PREFIX + status);
+      replies.flush();
+    }
+    worker.closeEngine();
+  }
+
+  /**
+   * @return 0 if the analysis is successful, else 1
+   */
+  int analyze(File requestFile) {
+    Properties request = new Properties();
+    try (InputStream input = new FileInputStream(requestFile)) {
+      request.load(input);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return 1;
+    }
+    Map<String, String> properties = new HashMap<>();
+    request.stringPropertyNames().stream()
+      .filter(key -> key.startsWith(PROPERTY_PREFIX))
+      .forEach(key -> properties.put(key.substring(PROPERTY_PREFIX.length()), request.getProperty(key)));
+
+    Properties systemProperties = (Properties) System.getProperties().clone();
+    PrintStream out = System.out;
+    PrintStream err = System.err;
+    ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    try (PrintStream logs = new PrintStream(new FileOutputStream(request.getProperty(LOG_FILE), true), true, UTF_8)) {
+      System.setOut(logs);
+      System.setErr(logs);
+      Thread.currentThread().setContextClassLoader(scannerClassLoader);
+      try {
+        return doAnalyze(request.getProperty(SCANNER_VERSION), properties) ? 0 : 1;
+      } catch (Exception e) {
+        unwrap(e).printStackTrace(logs);
+        // the state of the engine is unknown
+        closeEngine();
+        return 1;
+      }
+    } catch (IOException e) {
+      e.printStackTrace(err);
+      return 1;
+    } finally {
+      Thread.currentThread().setContextClassLoader(contextClassLoader);
+      System.setOut(out);
+      System.setErr(err);
+      System.setProperties(systemProperties);
+    }
+  }
+
+  private boolean doAnalyze(String scannerVersion, Map<String, String> properties) throws ReflectiveOperationException {
+    Map<String, String> bootstrapProperties = bootstrapProperties(properties);
+    if (engine == null || !bootstrapProperties.equals(engineProperties)) {
+      closeEngine();
+      engine = bootstrap(scannerVersion, bootstrapProperties);
+      if (engine == null) {
+        return false;
+      }
+      engineProperties = bootstrapProperties;
+    }
+    Method analyze = engine.getClass().getMethod("analyze", Map.class);
+    return (Boolean) analyze.invoke(engine, new HashMap<>(properties));
+  }
+
+  @CheckForNull
+  private Object bootstrap(String scannerVersion, Map<String, String> bootstrapProperties) throws ReflectiveOperationException {
+    Class<?> bootstrapperClass = scannerClassLoader.loadClass(BOOTSTRAPPER_CLASS);
+    Object bootstrapper = bootstrapperClass.getMethod("create", String.class, String.class).invoke(null, "ScannerCLI", scannerVersion);
+    bootstrapperClass.getMethod("addBootstrapProperties", Map.class).invoke(bootstrapper, bootstrapProperties);
+    Object result = bootstrapperClass.getMethod("bootstrap").invoke(bootstrapper);
+    Method getEngineFacade = findMethod(result.getClass(), "getEngineFacade");
+    if (getEngineFacade == null) {
+      // versions of the library that do not report bootstrap failures
+      return result;
+    }
+    boolean successful = (Boolean) result.getClass().getMethod("isSuccessful").invoke(result);
+    return successful ? getEngineFacade.invoke(result) : null;
+  }
+
+  void closeEngine() {
+    Object toClose = engine;
+    engine = null;
+    engineProperties = null;
+    if (toClose instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Properties required to connect to the server and to provision the engine. The other properties
+   * are specific to each analysis.
+   */
+  static Map<String, String> bootstrapProperties(Map<String, String> properties) {
+    Map<String, String> result = new HashMap<>();
+    properties.forEach((key, value) -> {
+      if (key.startsWith("sonar.scanner.") || key.startsWith("sonar.host.") || key.startsWith("sonar.region") || key.startsWith("sonar.userHome")
+        || key.equals("sonar.token") || key.equals("sonar.login") || key.equals("sonar.password") || key.equals("sonar.verbose")) {
+        result.put(key, value);
+      }
+    });
+    return result;
+  }
+
+  @CheckForNull
+  private static Method findMethod(Class<?> type, String name) {
+    try {
+      return type.getMethod(name);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static Throwable unwrap(Exception e) {
+    return e instanceof InvocationTargetException ite && ite.getCause() != null ? ite.getCause() : e;
+  }
+
+  private static URL[] listJars(File dir) throws MalformedURLException {
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".jar"));
+    if (files == null || files.length == 0) {
+      throw new IllegalArgumentException("No jar files in " + dir);
+    }
+    List<URL> urls = new ArrayList<>();
+    for (File file : files) {
+      urls.add(file.toURI().toURL());
+    }
+    return urls.toArray(new URL[0]);
+  }
+}
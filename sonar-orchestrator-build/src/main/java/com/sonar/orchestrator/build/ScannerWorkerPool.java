@@ -0,0 +1,84 @@
+/*
+ * Orchestrator Build
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.build;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Idle {@link ScannerWorker}s, reused by the analyses that require the same JVM: same installation of
+ * SonarScanner CLI, same JVM options and same environment variables. Builds executed concurrently
+ * get different workers. Workers are stopped when the JVM of the tests exits.
+ */
+class ScannerWorkerPool {
+
+  static final ScannerWorkerPool INSTANCE = new ScannerWorkerPool();
+
+  private final Map<List<Object>, Deque<ScannerWorker>> idleWorkers = new HashMap<>();
+
+  ScannerWorkerPool() {
+    Runtime.getRuntime().addShutdownHook(new Thread(this::close, "ScannerWorkerPool-shutdown"));
+  }
+
+  ScannerWorker acquire(List<Object> key, Supplier<ScannerWorker> starter) {
+    synchronized (this) {
+      Deque<ScannerWorker> workers = idleWorkers.getOrDefault(key, new ArrayDeque<>());
+      ScannerWorker worker;
+      while ((worker = workers.poll()) != null) {
+        if (worker.isAlive()) {
+          return worker;
+        }
+      }
+    }
+    // starting a JVM is slow, so it's done outside the lock
+    return starter.get();
+  }
+
+  /**
+   * Gives back a worker that completed its analysis, so that it can be reused.
+   */
+  synchronized void release(List<Object> key, ScannerWorker worker) {
+    if (worker.isAlive()) {
+      idleWorkers.computeIfAbsent(key, k -> new ArrayDeque<>()).push(worker);
+    }
+  }
+
+  /**
+   * Stops a worker whose state is unknown, for example after a timeout or a failure of the communication
+   * with its JVM. It is never reused.
+   */
+  void discard(ScannerWorker worker) {
+    worker.close();
+  }
+
+  void close() {
+    List<ScannerWorker> workers = new ArrayList<>();
+    synchronized (this) {
+      idleWorkers.values().forEach(workers::addAll);
+      idleWorkers.clear();
+    }
+    workers.forEach(ScannerWorker::close);
+  }
+}
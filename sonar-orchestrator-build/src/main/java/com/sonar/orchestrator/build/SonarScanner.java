@@ -48,6 +48,7 @@ public class SonarScanner extends Build<SonarScanner> {
   private boolean debugLogs = false;
   private boolean showErrors = true;
   private String classifier = null;
+  private boolean inProcess = false;
 
   SonarScanner() {
   }
@@ -110,6 +111,24 @@ public class SonarScanner extends Build<SonarScanner> {
     return setProperty(PROP_KEY_SOURCE_ENCODING, s);
   }
 
+  public boolean isInProcess() {
+    return inProcess;
+  }
+
+  /**
+   * Executes the analysis with the scanner library of SonarScanner CLI, in a JVM that is reused by the next
+   * analyses instead of starting the CLI each time. The engine of the scanner is kept warm as long as the
+   * connection to the server does not change, which saves the bootstrap of the CLI on small projects.
+   * The analyses do not share any other property.
+   * <p>
+   * Requires SonarScanner CLI 6.0 or later. The only supported arguments are {@code -Dkey=value},
+   * {@code -X} and {@code -e}.
+   */
+  public SonarScanner setInProcess(boolean b) {
+    this.inProcess = b;
+    return this;
+  }
+
   public SonarScanner setDebugLogs(boolean b) {
     this.debugLogs = b;
     return this;
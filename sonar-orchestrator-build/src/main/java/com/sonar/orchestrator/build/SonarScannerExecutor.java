@@ -23,14 +23,24 @@ import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.locator.Locators;
 import com.sonar.orchestrator.util.command.Command;
 import com.sonar.orchestrator.util.command.CommandExecutor;
-import com.sonar.orchestrator.util.StreamConsumer;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 
+import static com.sonar.orchestrator.util.Preconditions.checkArgument;
+
 class SonarScannerExecutor extends AbstractBuildExecutor<SonarScanner> {
 
   private static final String SONAR_SCANNER_OPTS = "SONAR_SCANNER_OPTS";
+  private static final String PROJECT_BASE_DIR = "sonar.projectBaseDir";
 
   private static Command createCommand(SonarScanner build, Map<String, String> adjustedProperties, File runnerScript) {
     Command command = Command.create(runnerScript.getAbsolutePath());
@@ -60,15 +70,19 @@ class SonarScannerExecutor extends AbstractBuildExecutor<SonarScanner> {
 
   BuildResult execute(SonarScanner build, Configuration config, Locators locators, Map<String, String> adjustedProperties, SonarScannerInstaller installer,
     CommandExecutor commandExecutor) {
-    BuildResult result = new BuildResult();
+    checkArgument(!build.isInProcess() || build.scannerVersion().isGreaterThanOrEquals(6, 0),
+      "In-process execution requires SonarScanner CLI 6.0 or later: %s", build.scannerVersion());
     File scannerScript = installer.install(build.scannerVersion(), build.classifier(), config.fileSystem().workspace().toFile());
+    if (build.isInProcess()) {
+      File scannerHome = scannerScript.getAbsoluteFile().getParentFile().getParentFile();
+      return executeInProcess(build, config, locators, adjustedProperties, scannerHome, ScannerWorkerPool.INSTANCE);
+    }
+    BuildResult result = newBuildResult(config);
     try {
       appendCoverageArgumentToOpts(build.getEnvironmentVariables(), config, locators, SONAR_SCANNER_OPTS);
       Command command = createCommand(build, adjustedProperties, scannerScript);
       LoggerFactory.getLogger(SonarScanner.class).info("Execute: {}", command);
-      StreamConsumer.Pipe writer = new StreamConsumer.Pipe(result.getLogsWriter());
-      int status = commandExecutor.execute(command, writer, build.getTimeoutSeconds() * 1000);
-      result.addStatus(status);
+      executeCommand(commandExecutor, command, build.getTimeoutSeconds() * 1000, result, config, "SonarScanner");
       return result;
 
     } catch (Exception e) {
@@ -76,4 +90,87 @@ class SonarScannerExecutor extends AbstractBuildExecutor<SonarScanner> {
     }
   }
 
+  BuildResult executeInProcess(SonarScanner build, Configuration config, Locators locators, Map<String, String> adjustedProperties, File scannerHome,
+    ScannerWorkerPool workers) {
+    BuildResult result = newBuildResult(config);
+    try {
+      appendCoverageArgumentToOpts(build.getEnvironmentVariables(), config, locators, SONAR_SCANNER_OPTS);
+      Map<String, String> environment = build.getEffectiveEnvironmentVariables();
+      List<String> jvmOptions = Arrays.asList(StringUtils.split(environment.getOrDefault(SONAR_SCANNER_OPTS, "")));
+      Map<String, String> properties = inProcessProperties(build, adjustedProperties, scannerHome);
+      File workDir = new File(config.fileSystem().workspace().toFile(), "scanner-workers");
+
+      List<Object> key = List.of(scannerHome.getAbsolutePath(), jvmOptions, environment);
+      ScannerWorker worker = workers.acquire(key, () -> ScannerWorker.start(scannerHome, jvmOptions, environment, workDir));
+      boolean completed = false;
+      try {
+        LoggerFactory.getLogger(SonarScanner.class).info("Execute in scanner worker: {}", properties.get(PROJECT_BASE_DIR));
+        int status = worker.analyze(build.scannerVersion().toString(), properties, result.getLogsWriter(), build.getTimeoutSeconds() * 1000);
+        completed = true;
+        result.addStatus(status);
+        return result;
+      } finally {
+        if (completed) {
+          workers.release(key, worker);
+        } else {
+          // timeout, interruption or failure of the worker JVM
+          workers.discard(worker);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Fail to execute SonarQube Scanner", e);
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to execute SonarQube Scanner", e);
+    }
+  }
+
+  /**
+   * Properties of the analysis, resolved as SonarScanner CLI does: global configuration of the scanner,
+   * then sonar-project.properties, then the command-line arguments.
+   */
+  static Map<String, String> inProcessProperties(SonarScanner build, Map<String, String> adjustedProperties, File scannerHome) throws IOException {
+    Map<String, String> properties = new HashMap<>();
+    loadProperties(new File(scannerHome, "conf/sonar-scanner.properties"), properties);
+    File projectDir = build.getProjectDir();
+    String projectSettings = adjustedProperties.get("project.settings");
+    loadProperties(projectSettings == null ? new File(projectDir, "sonar-project.properties") : resolve(projectDir, projectSettings), properties);
+    for (String argument : build.arguments()) {
+      if (argument.startsWith("-D") && argument.contains("=")) {
+        properties.put(StringUtils.substringBetween(argument, "-D", "="), StringUtils.substringAfter(argument, "="));
+      } else if ("-X".equals(argument)) {
+        properties.put("sonar.verbose", "true");
+      } else if (!"-e".equals(argument)) {
+        throw new IllegalArgumentException("Argument is not supported by in-process execution: " + argument);
+      }
+    }
+    adjustedProperties.forEach((key, value) -> {
+      if (value != null) {
+        properties.put(key, value);
+      }
+    });
+    if (build.isDebugLogs()) {
+      properties.put("sonar.verbose", "true");
+    }
+    // the working directory of the worker is not the project directory
+    String baseDir = properties.get(PROJECT_BASE_DIR);
+    properties.put(PROJECT_BASE_DIR, baseDir == null ? projectDir.getAbsolutePath() : resolve(projectDir, baseDir).getAbsolutePath());
+    return properties;
+  }
+
+  private static File resolve(File projectDir, String path) {
+    File file = new File(path);
+    return file.isAbsolute() ? file : new File(projectDir, path);
+  }
+
+  private static void loadProperties(File file, Map<String, String> target) throws IOException {
+    if (!file.isFile()) {
+      return;
+    }
+    Properties properties = new Properties();
+    try (InputStream input = Files.newInputStream(file.toPath())) {
+      properties.load(input);
+    }
+    properties.stringPropertyNames().forEach(key -> target.put(key, properties.getProperty(key)));
+  }
 }
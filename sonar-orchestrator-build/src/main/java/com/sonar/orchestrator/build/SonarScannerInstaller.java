@@ -45,6 +45,9 @@ public class SonarScannerInstaller {
   public static final String GROUP_ID = "org.sonarsource.scanner.cli";
   public static final String ARTIFACT_ID = "sonar-scanner-cli";
 
+  // builds can be executed concurrently, so they must not unzip the same scanner at the same time
+  private static final Object INSTALL_LOCK = new Object();
+
   private final Locators locators;
 
   public SonarScannerInstaller(Locators locators) {
@@ -62,12 +65,14 @@ public class SonarScannerInstaller {
     if (!scannerVersion.isGreaterThanOrEquals(2, 5)) {
       throw new IllegalArgumentException("Unsupported sonar-scanner version: " + scannerVersion);
     }
-    clearCachedSnapshot(scannerVersion, classifier, toDir);
-    if (!isInstalled(scannerVersion, classifier, toDir)) {
-      LOG.info("Installing SonarScanner CLI {}", scannerVersion);
-      doInstall(scannerVersion, classifier, toDir);
+    synchronized (INSTALL_LOCK) {
+      clearCachedSnapshot(scannerVersion, classifier, toDir);
+      if (!isInstalled(scannerVersion, classifier, toDir)) {
+        LOG.info("Installing SonarScanner CLI {}", scannerVersion);
+        doInstall(scannerVersion, classifier, toDir);
+      }
+      return locateInstalledScript(scannerVersion, classifier, toDir);
     }
-    return locateInstalledScript(scannerVersion, classifier, toDir);
   }
 
   void doInstall(Version scannerVersion, @Nullable String classifier, File toDir) {
@@ -107,7 +112,10 @@ public class SonarScannerInstaller {
     return mavenLocation(scannerVersion, null);
   }
 
-  static MavenLocation mavenLocation(Version scannerVersion, @Nullable String classifier) {
+  /**
+   * Maven coordinates of the SonarScanner CLI zip
+   */
+  public static MavenLocation mavenLocation(Version scannerVersion, @Nullable String classifier) {
     MavenLocation.Builder builder = MavenLocation.builder()
       .setGroupId(GROUP_ID)
       .setArtifactId(ARTIFACT_ID)
@@ -144,7 +152,10 @@ public class SonarScannerInstaller {
     return script;
   }
 
-  private static String directoryName(Version scannerVersion, @Nullable String classifier) {
+  /**
+   * Name of the installation directory of SonarScanner CLI
+   */
+  public static String directoryName(Version scannerVersion, @Nullable String classifier) {
     return "sonar-scanner-" + scannerVersion + suffix(classifier);
   }
 
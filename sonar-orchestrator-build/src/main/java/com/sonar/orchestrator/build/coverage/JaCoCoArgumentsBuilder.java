@@ -48,6 +48,13 @@ public class JaCoCoArgumentsBuilder {
       .build();
   }
 
+  /**
+   * Maven coordinates of the JaCoCo agent that is attached to builds
+   */
+  public static MavenLocation getAgentLocation() {
+    return agentLocation;
+  }
+
   private JaCoCoArgumentsBuilder() {
     // prevents instantiation
   }
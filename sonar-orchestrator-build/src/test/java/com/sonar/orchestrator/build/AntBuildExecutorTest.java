@@ -50,13 +50,13 @@ public class AntBuildExecutorTest {
     props.put("sonar.jdbc.dialect", "h2");
 
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(2);
 
     Configuration config = Configuration.create();
     new AntBuildExecutor().execute(build, config, new Locators(config), props, executor);
 
     verify(executor).execute(argThat(c -> c.toCommandLine().contains("ant") &&
       c.toCommandLine().contains("-f") &&
-      c.toCommandLine().contains("-Dsonar.jdbc.dialect=")), any(), eq(30000L));
+      c.toCommandLine().contains("-Dsonar.jdbc.dialect=")), any(), eq(30000L), any());
   }
 }
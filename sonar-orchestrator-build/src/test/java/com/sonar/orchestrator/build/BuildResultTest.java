@@ -20,12 +20,17 @@
 package com.sonar.orchestrator.build;
 
 import java.io.Writer;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class BuildResultTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void test_log_filtering() throws Exception {
     BuildResult buildResult = new BuildResult();
@@ -42,4 +47,93 @@ public class BuildResultTest {
       .containsExactly("Hello,", "Goodbye now.");
   }
 
+  @Test
+  public void getCeTaskIds_parses_logs_of_scanner() throws Exception {
+    BuildResult buildResult = new BuildResult();
+    Writer writer = buildResult.getLogsWriter();
+    writer.append("INFO: Analysis report uploaded in 42ms\n");
+    writer.append("INFO: More about the report processing at http://localhost:9000/api/ce/task?id=AVz4Pj0lCGu3oo5Vbyu8\n");
+    writer.append("[INFO] More about the report processing at http://localhost:9000/sonarqube/api/ce/task?id=7d5f2b9e-1c3a-4e8b-9f0d-2a6c4b8e1f3d\n");
+
+    assertThat(buildResult.getCeTaskIds()).containsExactly("AVz4Pj0lCGu3oo5Vbyu8", "7d5f2b9e-1c3a-4e8b-9f0d-2a6c4b8e1f3d");
+    assertThat(buildResult.getCeTaskId()).hasValue("7d5f2b9e-1c3a-4e8b-9f0d-2a6c4b8e1f3d");
+  }
+
+  @Test
+  public void getCeTaskId_is_empty_if_no_report_is_submitted() {
+    BuildResult buildResult = new BuildResult();
+
+    assertThat(buildResult.getCeTaskIds()).isEmpty();
+    assertThat(buildResult.getCeTaskId()).isEmpty();
+  }
+
+  @Test
+  public void logs_exceeding_memory_limit_are_spilled_to_disk() throws Exception {
+    BuildResult buildResult = new BuildResult(temp.getRoot().toPath(), 100);
+    Writer writer = buildResult.getLogsWriter();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 5_000; i++) {
+      String line = "line " + i + (i % 2 == 0 ? " \u00e9t\u00e9\n" : "\r\n");
+      writer.write(line);
+      expected.append(line);
+    }
+    writer.write("last line without terminator");
+    expected.append("last line without terminator");
+
+    assertThat(temp.getRoot().listFiles()).hasSize(1);
+    assertThat(buildResult.getLogs()).isEqualTo(expected.toString());
+    assertThat(buildResult.getLogsLines(s -> true)).hasSize(5_001);
+    assertThat(buildResult.getLogsLines(s -> s.startsWith("line 4242 "))).containsExactly("line 4242 \u00e9t\u00e9");
+    assertThat(buildResult.getLogsLines(s -> s.startsWith("last"))).containsExactly("last line without terminator");
+  }
+
+  @Test
+  public void logs_are_kept_in_memory_without_spill_directory() throws Exception {
+    BuildResult buildResult = new BuildResult(null, 64);
+    Writer writer = buildResult.getLogsWriter();
+    for (int i = 0; i < 1_000; i++) {
+      writer.write("line " + i + "\n");
+    }
+
+    assertThat(((BuildLogs) writer).getSpilledBytes()).isZero();
+    assertThat(buildResult.getLogsLines(s -> true)).hasSize(1_000).startsWith("line 0").endsWith("line 999");
+    assertThat(buildResult.getLogsLines(500, s -> true)).startsWith("line 500");
+  }
+
+  @Test
+  public void getLogsLines_from_line_number() throws Exception {
+    BuildResult buildResult = new BuildResult(temp.getRoot().toPath(), 64);
+    Writer writer = buildResult.getLogsWriter();
+    for (int i = 0; i < 3_000; i++) {
+      writer.write("line " + i + "\n");
+    }
+
+    assertThat(buildResult.getLogsLines(2_999, s -> true)).containsExactly("line 2999");
+    assertThat(buildResult.getLogsLines(1_024, s -> true)).hasSize(1_976).startsWith("line 1024");
+    assertThat(buildResult.getLogsLines(2_047, s -> s.endsWith("8"))).startsWith("line 2048");
+    assertThat(buildResult.getLogsLines(3_000, s -> true)).isEmpty();
+    assertThat(buildResult.getLogsLines(5_000, s -> true)).isEmpty();
+  }
+
+  @Test
+  public void logs_are_kept_in_memory_if_small() throws Exception {
+    BuildResult buildResult = new BuildResult(temp.getRoot().toPath(), 1_000);
+    buildResult.getLogsWriter().write("Hello\rWorld\n");
+
+    assertThat(buildResult.getLogsLines(s -> true)).containsExactly("Hello", "World");
+    assertThat(buildResult.getLogsLines(1, s -> true)).containsExactly("World");
+    assertThat(temp.getRoot().listFiles()).isEmpty();
+  }
+
+  @Test
+  public void getCeTaskIds_reads_spilled_logs() throws Exception {
+    BuildResult buildResult = new BuildResult(temp.getRoot().toPath(), 64);
+    Writer writer = buildResult.getLogsWriter();
+    writer.append("INFO: More about the report processing at http://localhost:9000/api/ce/task?id=TASK1\n");
+    for (int i = 0; i < 100; i++) {
+      writer.append("DEBUG: line ").append(String.valueOf(i)).append("\n");
+    }
+
+    assertThat(buildResult.getCeTaskIds()).containsExactly("TASK1");
+  }
 }
@@ -20,14 +20,20 @@
 package com.sonar.orchestrator.build;
 
 import com.sonar.orchestrator.config.Configuration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
@@ -222,4 +228,69 @@ public class BuildRunnerTest {
 
     assertThat(result.isSuccess()).isTrue();
   }
+
+  @Test
+  public void runParallel_returns_results_in_order_of_builds() {
+    Configuration config = Configuration.create();
+    List<Build<?>> builds = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Build build = mock(Build.class);
+      when(build.execute(any(Configuration.class), any(), anyMap())).thenReturn(new BuildResult().addStatus(0).addStatus(i));
+      builds.add(build);
+    }
+    List<BuildResult> callbacks = new CopyOnWriteArrayList<>();
+
+    BuildResult[] results = new BuildRunner(config, null).runParallel(null, 2, builds, callbacks::add);
+
+    assertThat(results).extracting(r -> r.getStatuses().get(1)).containsExactly(0, 1, 2, 3, 4);
+    assertThat(callbacks).containsExactlyInAnyOrder(results);
+  }
+
+  @Test
+  public void runParallel_executes_builds_concurrently() {
+    Configuration config = Configuration.create();
+    CountDownLatch started = new CountDownLatch(2);
+    Build build = mock(Build.class);
+    when(build.execute(any(Configuration.class), any(), anyMap())).thenAnswer(invocation -> {
+      started.countDown();
+      // blocks until the other build is started
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      return new BuildResult().addStatus(0);
+    });
+    List<Build<?>> builds = List.of(build, build);
+
+    BuildResult[] results = new BuildRunner(config, null).runParallel(null, 2, builds, r -> {
+    });
+
+    assertThat(results).hasSize(2).allMatch(BuildResult::isSuccess);
+  }
+
+  @Test
+  public void runParallel_aggregates_failures() {
+    Configuration config = Configuration.create();
+    Build success = mock(Build.class);
+    when(success.execute(any(Configuration.class), any(), anyMap())).thenReturn(new BuildResult().addStatus(0));
+    Build failure = mock(Build.class);
+    when(failure.execute(any(Configuration.class), any(), anyMap())).thenReturn(new BuildResult().addStatus(1));
+    BuildRunner runner = new BuildRunner(config, null);
+    List<Build<?>> builds = List.of(failure, success, failure);
+
+    assertThatThrownBy(() -> runner.runParallel(null, 3, builds, r -> {
+    }))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to execute 2 of 3 builds")
+      .hasCauseInstanceOf(BuildFailureException.class)
+      .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+  }
+
+  @Test
+  public void runParallel_fails_if_max_concurrency_is_not_positive() {
+    BuildRunner runner = new BuildRunner(Configuration.create(), null);
+    List<Build<?>> builds = List.of();
+
+    assertThatThrownBy(() -> runner.runParallel(null, 0, builds, r -> {
+    }))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Max concurrency must be positive: 0");
+  }
 }
@@ -55,7 +55,7 @@ public class GradleBuildExecutorTest {
     props.put("sonar.jdbc.dialect", "h2");
 
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(2);
 
     GradleBuildExecutor.Os os = mock(GradleBuildExecutor.Os.class);
     when(os.isWindows()).thenReturn(false);
@@ -63,8 +63,8 @@ public class GradleBuildExecutorTest {
     Configuration config = Configuration.create();
     new GradleBuildExecutor(os).execute(build, config, new Locators(config), props, executor);
 
-    verify(executor).execute(argThat(gradlewMatcher(projectDir.getFile(), "gradlew", "clean")), any(), eq(30000L));
-    verify(executor).execute(argThat(gradlewMatcher(projectDir.getFile(), "gradlew", "sonarqube")), any(), eq(30000L));
+    verify(executor).execute(argThat(gradlewMatcher(projectDir.getFile(), "gradlew", "clean")), any(), eq(30000L), any());
+    verify(executor).execute(argThat(gradlewMatcher(projectDir.getFile(), "gradlew", "sonarqube")), any(), eq(30000L), any());
   }
 
   @Test
@@ -79,7 +79,7 @@ public class GradleBuildExecutorTest {
     props.put("sonar.jdbc.dialect", "h2");
 
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(2);
 
     GradleBuildExecutor.Os os = mock(GradleBuildExecutor.Os.class);
     when(os.isWindows()).thenReturn(true);
@@ -87,8 +87,8 @@ public class GradleBuildExecutorTest {
     Configuration config = Configuration.create();
     new GradleBuildExecutor(os).execute(build, config, new Locators(config), props, executor);
 
-    verify(executor).execute(argThat(gradlewMatcher(projectDir.getFile(), "gradlew.bat", "clean")), any(), eq(30000L));
-    verify(executor).execute(argThat(gradlewMatcher(projectDir.getFile(), "gradlew.bat", "sonarqube")), any(), eq(30000L));
+    verify(executor).execute(argThat(gradlewMatcher(projectDir.getFile(), "gradlew.bat", "clean")), any(), eq(30000L), any());
+    verify(executor).execute(argThat(gradlewMatcher(projectDir.getFile(), "gradlew.bat", "sonarqube")), any(), eq(30000L), any());
   }
 
   private ArgumentMatcher<Command> gradlewMatcher(File workingDirectory, String gradlewName, String task) {
@@ -103,6 +103,23 @@ public class GradleBuildExecutorTest {
       c.toCommandLine().contains("-Dsonar.jdbc.dialect=");
   }
 
+  @Test
+  public void execute_with_build_cache() {
+    FileLocation projectDir = FileLocation.of(getClass().getResource("/com/sonar/orchestrator/build/GradleBuildTest"));
+    GradleBuild build = GradleBuild.create(projectDir)
+      .setTasks("sonarqube")
+      .setBuildCache(true)
+      .setTimeoutSeconds(30);
+
+    CommandExecutor executor = mock(CommandExecutor.class);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(0);
+
+    Configuration config = Configuration.create();
+    new GradleBuildExecutor().execute(build, config, new Locators(config), new HashMap<>(), executor);
+
+    verify(executor).execute(argThat(c -> c.getArguments().contains("--build-cache") && !c.getArguments().contains("--configuration-cache")), any(), eq(30000L), any());
+  }
+
   @Test(expected = IllegalStateException.class)
   public void execute_invalid_path() {
     Location projectDir = FileLocation.of("no_such_path");
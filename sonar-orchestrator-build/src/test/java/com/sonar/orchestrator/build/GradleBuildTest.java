@@ -67,4 +67,23 @@ public class GradleBuildTest {
     GradleBuild build = GradleBuild.create().setTasks("clean", "build").addSonarTask();
     assertThat(build.getTasks()).containsExactly("clean", "build", "sonarqube");
   }
+
+  @Test
+  public void cache_arguments() {
+    GradleBuild build = GradleBuild.create();
+    assertThat(build.cacheArguments()).isEmpty();
+
+    build.setBuildCache(true).setConfigurationCache(true);
+    assertThat(build.isBuildCache()).isTrue();
+    assertThat(build.isConfigurationCache()).isTrue();
+    assertThat(build.cacheArguments()).containsExactly("--build-cache", "--configuration-cache");
+  }
+
+  @Test
+  public void tooling_api_is_disabled_by_default() {
+    GradleBuild build = GradleBuild.create();
+    assertThat(build.isToolingApi()).isFalse();
+
+    assertThat(build.setToolingApi(true).isToolingApi()).isTrue();
+  }
 }
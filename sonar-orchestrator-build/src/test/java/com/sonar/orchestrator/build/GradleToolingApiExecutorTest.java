@@ -0,0 +1,162 @@
+/*
+ * Orchestrator Build
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.build;
+
+import com.sonar.orchestrator.config.Configuration;
+import com.sonar.orchestrator.locator.FileLocation;
+import com.sonar.orchestrator.locator.Locators;
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GradleToolingApiExecutorTest {
+
+  @Rule
+  public Timeout timeout = Timeout.seconds(20);
+
+  private final FileLocation projectDir = FileLocation.of(getClass().getResource("/com/sonar/orchestrator/build/GradleBuildTest"));
+  private final ProjectConnection connection = mock(ProjectConnection.class);
+  private final BuildLauncher launcher = mock(BuildLauncher.class, RETURNS_SELF);
+  private final AtomicReference<OutputStream> output = new AtomicReference<>();
+  private final AtomicReference<CancellationToken> cancellationToken = new AtomicReference<>();
+  private final Configuration config = Configuration.create();
+
+  @Before
+  public void setUp() {
+    when(connection.newBuild()).thenReturn(launcher);
+    when(launcher.setStandardOutput(any())).thenAnswer(invocation -> {
+      output.set(invocation.getArgument(0));
+      return launcher;
+    });
+    when(launcher.withCancellationToken(any())).thenAnswer(invocation -> {
+      cancellationToken.set(invocation.getArgument(0));
+      return launcher;
+    });
+  }
+
+  @Test
+  public void execute_tasks_with_shared_connection() {
+    doAnswer(invocation -> {
+      output.get().write("BUILD SUCCESSFUL\n".getBytes(UTF_8));
+      invocation.<ResultHandler<Void>>getArgument(0).onComplete(null);
+      return null;
+    }).when(launcher).run(any(ResultHandler.class));
+    GradleBuild build = GradleBuild.create(projectDir)
+      .setTasks("clean build", "sonarqube")
+      .setBuildCache(true)
+      .addArguments("--info");
+    Map<String, String> props = new TreeMap<>();
+    props.put("sonar.projectKey", "foo");
+    List<File> connectedDirs = new ArrayList<>();
+
+    BuildResult result = new GradleToolingApiExecutor(dir -> {
+      connectedDirs.add(dir);
+      return connection;
+    }).execute(build, config, new Locators(config), props, null);
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getStatuses()).containsExactly(0, 0);
+    assertThat(result.getLogs()).contains("BUILD SUCCESSFUL");
+    assertThat(connectedDirs).containsExactly(projectDir.getFile());
+    verify(launcher).forTasks("clean", "build");
+    verify(launcher).forTasks("sonarqube");
+    verify(launcher, times(2)).withArguments(List.of("--build-cache", "--info", "-Dsonar.projectKey=foo"));
+    // the environment is inherited
+    verify(launcher, times(2)).setEnvironmentVariables(null);
+  }
+
+  @Test
+  public void environment_variables_of_build_are_added_to_environment_of_current_process() {
+    GradleBuild build = GradleBuild.create(projectDir).setEnvironmentVariable("ORCHESTRATOR_TEST", "foo");
+
+    Map<String, String> expected = new HashMap<>(System.getenv());
+    expected.put("ORCHESTRATOR_TEST", "foo");
+    assertThat(GradleToolingApiExecutor.environmentVariables(build)).isEqualTo(expected);
+  }
+
+  @Test
+  public void failed_build_has_error_status() {
+    doAnswer(invocation -> {
+      invocation.<ResultHandler<Void>>getArgument(0).onFailure(new BuildException("Build failed", new IllegalStateException()));
+      return null;
+    }).when(launcher).run(any(ResultHandler.class));
+    GradleBuild build = GradleBuild.create(projectDir).setTasks("build");
+
+    BuildResult result = new GradleToolingApiExecutor(dir -> connection).execute(build, config, new Locators(config), new HashMap<>(), null);
+
+    assertThat(result.isSuccess()).isFalse();
+    assertThat(result.getLastStatus()).isEqualTo(1);
+  }
+
+  @Test
+  public void cancel_build_on_timeout() {
+    doAnswer(invocation -> {
+      ResultHandler<Void> handler = invocation.getArgument(0);
+      Thread thread = new Thread(() -> {
+        while (!cancellationToken.get().isCancellationRequested()) {
+          Thread.onSpinWait();
+        }
+        handler.onFailure(new BuildCancelledException("Build cancelled"));
+      });
+      thread.start();
+      return null;
+    }).when(launcher).run(any(ResultHandler.class));
+    GradleBuild build = GradleBuild.create(projectDir).setTasks("build").setTimeoutSeconds(1);
+
+    assertThatThrownBy(() -> new GradleToolingApiExecutor(dir -> connection).execute(build, config, new Locators(config), new HashMap<>(), null))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Timeout exceeded: 1000 ms");
+    assertThat(cancellationToken.get().isCancellationRequested()).isTrue();
+  }
+
+  @Test
+  public void fail_if_project_directory_does_not_exist() {
+    GradleBuild build = GradleBuild.create(FileLocation.of("no_such_path")).setTasks("build");
+
+    assertThatThrownBy(() -> new GradleToolingApiExecutor(dir -> connection).execute(build, config, new Locators(config), new HashMap<>(), null))
+      .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -25,6 +25,7 @@ import com.sonar.orchestrator.locator.Location;
 import com.sonar.orchestrator.locator.Locators;
 import com.sonar.orchestrator.util.command.Command;
 import com.sonar.orchestrator.util.command.CommandExecutor;
+import com.sonar.orchestrator.util.command.ResourceUsage;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
@@ -36,6 +37,7 @@ import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatcher;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -214,13 +216,110 @@ public class MavenBuildExecutorTest {
     props.put("sonar.jdbc.dialect", "h2");
 
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(), any(), anyLong())).thenReturn(2);
+    when(executor.execute(any(), any(), anyLong(), any())).thenReturn(2);
 
     Configuration config = Configuration.create();
     new MavenBuildExecutor().execute(build, config, new Locators(config), props, executor);
 
-    verify(executor).execute(argThat(mvnMatcher(pom, "clean")), any(), eq(30000L));
-    verify(executor).execute(argThat(mvnMatcher(pom, "org.sonarsource.scanner.maven:sonar-maven-plugin:4.0.0.4121:sonar")), any(), eq(30000L));
+    verify(executor).execute(argThat(mvnMatcher(pom, "clean")), any(), eq(30000L), any());
+    verify(executor).execute(argThat(mvnMatcher(pom, "org.sonarsource.scanner.maven:sonar-maven-plugin:4.0.0.4121:sonar")), any(), eq(30000L), any());
+  }
+
+  @Test
+  public void record_resource_usage_of_each_goal() throws Exception {
+    File pom = new File(getClass().getResource("/com/sonar/orchestrator/build/MavenBuildTest/pom.xml").toURI());
+    MavenBuild build = MavenBuild.create(pom)
+      .addGoal("clean")
+      .addGoal("install")
+      .setTimeoutSeconds(30);
+
+    CommandExecutor executor = mock(CommandExecutor.class);
+    when(executor.execute(any(), any(), anyLong(), any())).thenReturn(0, 2);
+
+    Configuration config = Configuration.create();
+    BuildResult result = new MavenBuildExecutor().execute(build, config, new Locators(config), new TreeMap<>(), executor);
+
+    assertThat(result.getResourceUsage())
+      .extracting(ResourceUsage::getName, ResourceUsage::getExitStatus)
+      .containsExactly(tuple("clean", 0), tuple("install", 2));
+  }
+
+  @Test
+  public void daemon_command_in_PATH_on_linux() throws Exception {
+    emulateLinux();
+    Configuration configuration = Configuration.builder().setProperty(MavenBuildExecutor.DAEMON_PROPERTY, "true").build();
+
+    assertThat(underTest.buildMvnPath(configuration)).isEqualTo("mvnd");
+  }
+
+  @Test
+  public void daemon_command_in_PATH_on_windows() throws Exception {
+    emulateWindows();
+    Configuration configuration = Configuration.builder().setProperty(MavenBuildExecutor.DAEMON_PROPERTY, "true").build();
+
+    assertThat(underTest.buildMvnPath(configuration)).isEqualTo("mvnd.cmd");
+  }
+
+  @Test
+  public void configure_daemon_home_on_linux() throws Exception {
+    emulateLinux();
+    File home = temp.newFolder();
+    FileUtils.touch(new File(home, "bin/mvnd"));
+    Configuration configuration = Configuration.builder()
+      .setProperty("MAVEN_HOME", home.getCanonicalPath())
+      .setProperty(MavenBuildExecutor.DAEMON_PROPERTY, "true")
+      .build();
+
+    assertThat(underTest.buildMvnPath(configuration)).isEqualTo(new File(home, "bin/mvnd").getCanonicalPath());
+  }
+
+  @Test
+  public void daemon_command_in_PATH_if_maven_home_does_not_contain_mvnd() throws Exception {
+    emulateWindows();
+    File home = temp.newFolder();
+    FileUtils.touch(new File(home, "bin/mvn.cmd"));
+    Configuration configuration = Configuration.builder()
+      .setProperty("MAVEN_HOME", home.getCanonicalPath())
+      .setProperty(MavenBuildExecutor.DAEMON_PROPERTY, "true")
+      .build();
+
+    assertThat(underTest.buildMvnPath(configuration)).isEqualTo("mvnd.cmd");
+  }
+
+  @Test
+  public void daemon_is_enabled_by_binary() {
+    assertThat(MavenBuildExecutor.isDaemon(Configuration.builder().setProperty("maven.binary", "/opt/mvnd/bin/mvnd").build())).isTrue();
+    assertThat(MavenBuildExecutor.isDaemon(Configuration.builder().setProperty("maven.binary", "mvnDebug").build())).isFalse();
+    assertThat(MavenBuildExecutor.isDaemon(Configuration.builder().build())).isFalse();
+  }
+
+  @Test
+  public void execute_command_with_daemon() throws Exception {
+    File pom = new File(getClass().getResource("/com/sonar/orchestrator/build/MavenBuildTest/pom.xml").toURI());
+    MavenBuild build = MavenBuild.create(pom)
+      .addGoal("clean")
+      .setEnvironmentVariable("MAVEN_OPTS", "-Xmx512m")
+      .setTimeoutSeconds(30);
+    Map<String, String> props = new TreeMap<>();
+    props.put("sonar.projectKey", "foo");
+
+    CommandExecutor executor = mock(CommandExecutor.class);
+    when(executor.execute(any(), any(), anyLong(), any())).thenReturn(0);
+
+    // plain Maven installation, mvnd is in the PATH
+    File mavenHome = temp.newFolder();
+    Configuration config = Configuration.builder()
+      .setProperty("MAVEN_HOME", mavenHome.getCanonicalPath())
+      .setProperty(MavenBuildExecutor.DAEMON_PROPERTY, "true")
+      .build();
+    String m2Home = config.fileSystem().mavenHome().toAbsolutePath().toString();
+    new MavenBuildExecutor(os).execute(build, config, new Locators(config), props, executor);
+
+    verify(executor).execute(argThat(c -> c.getExecutable().equals("mvnd")
+      && c.getArguments().contains("-Dmvnd.jvmArgs=-Djava.awt.headless=true -Xmx512m")
+      && c.getArguments().contains("-Dsonar.projectKey=foo")
+      && !c.getEnvironmentVariables().containsKey("MAVEN_OPTS")
+      && !m2Home.equals(c.getEnvironmentVariables().get("M2_HOME"))), any(), eq(30000L), any());
   }
 
   private ArgumentMatcher<Command> mvnMatcher(final File pom, final String goal) {
@@ -64,7 +64,7 @@ public class ScannerForMSBuildExecutorTest {
     ScannerForMSBuildInstaller installer = mock(ScannerForMSBuildInstaller.class);
     when(installer.install(eq(Version.create("2.2")), eq(null), any(File.class), eq(false))).thenReturn(new File("SonarScanner.MSBuild.exe"));
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(2);
 
     new ScannerForMSBuildExecutor().execute(build, Configuration.create(), props, installer, executor);
 
@@ -75,7 +75,7 @@ public class ScannerForMSBuildExecutorTest {
       && c.toCommandLine().contains("/n:Name")
       && c.toCommandLine().contains("/v:1.1")
       && c.toCommandLine().contains("/d:sonar.jdbc.dialect=h2")
-      && c.getEnvironmentVariables().get("FOO").equals("BAR")), any(StreamConsumer.class), eq(30000L));
+      && c.getEnvironmentVariables().get("FOO").equals("BAR")), any(StreamConsumer.class), eq(30000L), any());
   }
 
   @Test
@@ -91,7 +91,7 @@ public class ScannerForMSBuildExecutorTest {
     ScannerForMSBuildInstaller installer = mock(ScannerForMSBuildInstaller.class);
     when(installer.install(eq(Version.create("4.1.0.1148")), eq(null), any(File.class), eq(true))).thenReturn(new File("SonarScanner.MSBuild.dll"));
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(2);
 
     new ScannerForMSBuildExecutor().execute(build, Configuration.create(), new HashMap<>(), installer, executor);
 
@@ -102,7 +102,7 @@ public class ScannerForMSBuildExecutorTest {
         && commandLine.contains("SonarScanner.MSBuild.dll")
         && commandLine.contains("/k:SAMPLE")
         && commandLine.contains("/n:Name");
-    }), any(StreamConsumer.class), eq(30000L));
+    }), any(StreamConsumer.class), eq(30000L), any());
   }
 
   @Test
@@ -118,7 +118,7 @@ public class ScannerForMSBuildExecutorTest {
     ScannerForMSBuildInstaller installer = mock(ScannerForMSBuildInstaller.class);
     when(installer.install(eq(Version.create("4.1.0.1148")), eq(null), any(File.class), eq(true))).thenReturn(new File("SonarScanner.MSBuild.dll"));
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(2);
 
     new ScannerForMSBuildExecutor().execute(build, Configuration.create(), new HashMap<>(), installer, executor);
 
@@ -129,7 +129,7 @@ public class ScannerForMSBuildExecutorTest {
         && commandLine.contains("SonarScanner.MSBuild.dll")
         && commandLine.contains("/k:SAMPLE")
         && commandLine.contains("/n:Name");
-    }), any(StreamConsumer.class), eq(30000L));
+    }), any(StreamConsumer.class), eq(30000L), any());
   }
 
   @Test
@@ -145,7 +145,7 @@ public class ScannerForMSBuildExecutorTest {
     ScannerForMSBuildInstaller installer = mock(ScannerForMSBuildInstaller.class);
     when(installer.install(isNull(), isNull(), any(), eq(false))).thenReturn(new File("SonarScanner.MSBuild.exe"));
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(), anyLong())).thenThrow(new CommandException(mock(Command.class), new Exception("Error")));
+    when(executor.execute(any(Command.class), any(), anyLong(), any())).thenThrow(new CommandException(mock(Command.class), new Exception("Error")));
 
     new ScannerForMSBuildExecutor().execute(build, Configuration.create(), props, installer, executor);
   }
@@ -160,11 +160,11 @@ public class ScannerForMSBuildExecutorTest {
     ScannerForMSBuildInstaller installer = mock(ScannerForMSBuildInstaller.class);
     when(installer.install(isNull(), isNull(), any(), eq(false))).thenReturn(new File("SonarScanner.MSBuild.exe"));
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(), anyLong(), any())).thenReturn(2);
 
     new ScannerForMSBuildExecutor().execute(build, Configuration.create(), props, installer, executor);
 
     verify(executor).execute(argThat(c -> c.getDirectory().equals(new File("."))
-      && c.toCommandLine().contains("SonarScanner.MSBuild.exe")), any(), eq(30000L));
+      && c.toCommandLine().contains("SonarScanner.MSBuild.exe")), any(), eq(30000L), any());
   }
 }
@@ -0,0 +1,98 @@
+/*
+ * Orchestrator Build
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.build;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ScannerWorkerMainTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void analysis_fails_if_scanner_library_is_missing() throws Exception {
+    File logFile = temp.newFile();
+    File requestFile = newRequest(logFile, Map.of("sonar.projectKey", "foo", "sonar.host.url", "http://localhost:9000"));
+    PrintStream out = System.out;
+
+    int status = new ScannerWorkerMain(new URLClassLoader(new URL[0], null)).analyze(requestFile);
+
+    assertThat(status).isEqualTo(1);
+    assertThat(Files.readString(logFile.toPath(), UTF_8)).contains("ClassNotFoundException", "org.sonarsource.scanner.lib.ScannerEngineBootstrapper");
+    assertThat(System.out).isSameAs(out);
+  }
+
+  @Test
+  public void system_properties_are_restored_after_analysis() throws Exception {
+    File requestFile = newRequest(temp.newFile(), Map.of());
+    ClassLoader scannerClassLoader = new URLClassLoader(new URL[0], null) {
+      @Override
+      protected Class<?> findClass(String name) throws ClassNotFoundException {
+        System.setProperty("sonar.orchestrator.test.leak", "true");
+        return super.findClass(name);
+      }
+    };
+
+    new ScannerWorkerMain(scannerClassLoader).analyze(requestFile);
+
+    assertThat(System.getProperty("sonar.orchestrator.test.leak")).isNull();
+  }
+
+  @Test
+  public void bootstrap_properties_are_the_connection_properties() {
+    Map<String, String> properties = Map.of(
+      "sonar.host.url", "http://localhost:9000",
+      "sonar.token", "abc",
+      "sonar.scanner.skipJreProvisioning", "true",
+      "sonar.projectKey", "foo",
+      "sonar.sources", "src");
+
+    assertThat(ScannerWorkerMain.bootstrapProperties(properties)).containsOnly(
+      entry("sonar.host.url", "http://localhost:9000"),
+      entry("sonar.token", "abc"),
+      entry("sonar.scanner.skipJreProvisioning", "true"));
+  }
+
+  private File newRequest(File logFile, Map<String, String> properties) throws Exception {
+    Properties request = new Properties();
+    request.setProperty(ScannerWorkerMain.LOG_FILE, logFile.getAbsolutePath());
+    request.setProperty(ScannerWorkerMain.SCANNER_VERSION, "7.0.2.4839");
+    properties.forEach((key, value) -> request.setProperty(ScannerWorkerMain.PROPERTY_PREFIX + key, value));
+    File file = temp.newFile();
+    try (Writer writer = Files.newBufferedWriter(file.toPath(), UTF_8)) {
+      request.store(writer, null);
+    }
+    return file;
+  }
+}
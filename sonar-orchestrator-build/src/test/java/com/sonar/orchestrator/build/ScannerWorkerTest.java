@@ -0,0 +1,101 @@
+/*
+ * Orchestrator Build
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.build;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ScannerWorkerTest {
+
+  private static final String SCANNER_VERSION = "7.0.2.4839";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void execute_analyses_in_worker_jvm() throws Exception {
+    try (ScannerWorker worker = startWorker()) {
+      StringWriter logs = new StringWriter();
+
+      int status = worker.analyze(SCANNER_VERSION, Map.of("sonar.projectKey", "foo"), logs, 30_000L);
+
+      // the scanner library is not installed
+      assertThat(status).isEqualTo(1);
+      assertThat(logs.toString()).contains("ClassNotFoundException", "org.sonarsource.scanner.lib.ScannerEngineBootstrapper");
+      assertThat(worker.isAlive()).isTrue();
+      assertThat(worker.analyze(SCANNER_VERSION, Map.of(), new StringWriter(), 30_000L)).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void released_worker_is_reused() throws Exception {
+    ScannerWorkerPool pool = new ScannerWorkerPool();
+    List<Object> key = List.of("foo");
+    ScannerWorker worker = startWorker();
+    try {
+      assertThat(worker.analyze(SCANNER_VERSION, Map.of(), new StringWriter(), 30_000L)).isEqualTo(1);
+      pool.release(key, worker);
+
+      assertThat(pool.acquire(key, () -> {
+        throw new IllegalStateException("A new worker must not be started");
+      })).isSameAs(worker);
+    } finally {
+      pool.close();
+      worker.close();
+    }
+    assertThat(worker.isAlive()).isFalse();
+  }
+
+  @Test
+  public void worker_is_discarded_after_timeout() throws Exception {
+    ScannerWorkerPool pool = new ScannerWorkerPool();
+    ScannerWorker worker = startWorker();
+
+    assertThatThrownBy(() -> worker.analyze(SCANNER_VERSION, Map.of(), new StringWriter(), 0L))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Timeout exceeded: 0 ms");
+    pool.discard(worker);
+
+    assertThat(worker.isAlive()).isFalse();
+  }
+
+  private ScannerWorker startWorker() throws IOException {
+    File scannerHome = temp.newFolder();
+    File lib = new File(scannerHome, "lib");
+    assertThat(lib.mkdirs()).isTrue();
+    // the worker requires at least one jar, but not the scanner library
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(new File(lib, "empty.jar")), new Manifest())) {
+      jar.flush();
+    }
+    return ScannerWorker.start(scannerHome, List.of(), System.getenv(), temp.newFolder());
+  }
+}
@@ -27,18 +27,28 @@ import com.sonar.orchestrator.util.Version;
 import java.io.File;
 import java.util.Map;
 import java.util.TreeMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SonarScannerExecutorTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void execute_command() {
     SonarScanner build = SonarScanner.create()
@@ -54,7 +64,7 @@ public class SonarScannerExecutorTest {
     SonarScannerInstaller installer = mock(SonarScannerInstaller.class);
     when(installer.install(eq(Version.create("1.3")), eq(null), any(File.class))).thenReturn(new File("sonar-runner.sh"));
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(2);
 
     new SonarScannerExecutor().execute(build, Configuration.create(), null, props, installer, executor);
 
@@ -62,7 +72,7 @@ public class SonarScannerExecutorTest {
       && c.toCommandLine().contains("sonar-runner")
       && c.toCommandLine().contains("-X")
       && c.toCommandLine().contains("-Dsonar.jdbc.dialect")
-      && c.toCommandLine().contains("-Dsonar.projectKey")), any(), eq(30000L));
+      && c.toCommandLine().contains("-Dsonar.projectKey")), any(), eq(30000L), any());
   }
 
   @Test
@@ -77,13 +87,13 @@ public class SonarScannerExecutorTest {
     SonarScannerInstaller installer = mock(SonarScannerInstaller.class);
     when(installer.install(eq(Version.create("2.0")), eq(null), any(File.class))).thenReturn(new File("sonar-scanner.sh"));
     CommandExecutor executor = mock(CommandExecutor.class);
-    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong())).thenReturn(2);
+    when(executor.execute(any(Command.class), any(StreamConsumer.class), anyLong(), any())).thenReturn(2);
 
     new SonarScannerExecutor().execute(build, Configuration.create(), null, props, installer, executor);
 
     verify(executor).execute(argThat(c -> c.getDirectory().equals(new File("."))
       && c.toCommandLine().contains("sonar-scanner.sh")
-      && c.toCommandLine().contains("--help")), any(), eq(30000L));
+      && c.toCommandLine().contains("--help")), any(), eq(30000L), any());
   }
 
   @Test
@@ -103,4 +113,92 @@ public class SonarScannerExecutorTest {
     new SonarScannerExecutor().execute(build, Configuration.create(), null, props, installer, executor);
     verify(installer).install(eq(build.scannerVersion()), eq(classifier), any());
   }
+
+  @Test
+  public void execute_in_process_with_worker() throws Exception {
+    File projectDir = temp.newFolder();
+    SonarScanner build = SonarScanner.create()
+      .setProjectDir(projectDir)
+      .setTimeoutSeconds(30)
+      .setInProcess(true);
+    Map<String, String> props = new TreeMap<>();
+    props.put("sonar.projectKey", "SAMPLE");
+    ScannerWorkerPool workers = mock(ScannerWorkerPool.class);
+    ScannerWorker worker = mock(ScannerWorker.class);
+    when(workers.acquire(any(), any())).thenReturn(worker);
+    when(worker.analyze(any(), any(), any(), anyLong())).thenReturn(0);
+
+    BuildResult result = new SonarScannerExecutor().executeInProcess(build, Configuration.create(), null, props, temp.newFolder(), workers);
+
+    assertThat(result.isSuccess()).isTrue();
+    verify(worker).analyze(eq(build.scannerVersion().toString()), argThat(p -> "SAMPLE".equals(p.get("sonar.projectKey"))
+      && projectDir.getAbsolutePath().equals(p.get("sonar.projectBaseDir"))), any(), eq(30000L));
+    verify(workers).release(any(), eq(worker));
+    verify(workers, never()).discard(any());
+  }
+
+  @Test
+  public void worker_is_discarded_if_analysis_fails() throws Exception {
+    SonarScanner build = SonarScanner.create()
+      .setProjectDir(temp.newFolder())
+      .setInProcess(true);
+    ScannerWorkerPool workers = mock(ScannerWorkerPool.class);
+    ScannerWorker worker = mock(ScannerWorker.class);
+    when(workers.acquire(any(), any())).thenReturn(worker);
+    when(worker.analyze(any(), any(), any(), anyLong())).thenThrow(new IllegalStateException("Timeout exceeded: 1 ms"));
+
+    assertThatThrownBy(() -> new SonarScannerExecutor().executeInProcess(build, Configuration.create(), null, new TreeMap<>(), temp.newFolder(), workers))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to execute SonarQube Scanner")
+      .hasRootCauseMessage("Timeout exceeded: 1 ms");
+    verify(workers).discard(worker);
+    verify(workers, never()).release(any(), any());
+  }
+
+  @Test
+  public void in_process_properties_are_resolved_like_the_cli() throws Exception {
+    File scannerHome = temp.newFolder();
+    FileUtils.write(new File(scannerHome, "conf/sonar-scanner.properties"), "sonar.sourceEncoding=UTF-8\nsonar.projectName=global", UTF_8);
+    File projectDir = temp.newFolder();
+    FileUtils.write(new File(projectDir, "sonar-project.properties"), "sonar.projectName=project\nsonar.sources=src\nsonar.projectKey=project", UTF_8);
+    SonarScanner build = SonarScanner.create()
+      .setProjectDir(projectDir)
+      .setDebugLogs(true)
+      .addArguments("-Dsonar.sources=main", "-e");
+    Map<String, String> props = new TreeMap<>();
+    props.put("sonar.projectKey", "SAMPLE");
+
+    Map<String, String> properties = SonarScannerExecutor.inProcessProperties(build, props, scannerHome);
+
+    assertThat(properties)
+      .containsEntry("sonar.sourceEncoding", "UTF-8")
+      .containsEntry("sonar.projectName", "project")
+      .containsEntry("sonar.sources", "main")
+      .containsEntry("sonar.projectKey", "SAMPLE")
+      .containsEntry("sonar.verbose", "true")
+      .containsEntry("sonar.projectBaseDir", projectDir.getAbsolutePath());
+  }
+
+  @Test
+  public void in_process_execution_does_not_support_cli_options() throws Exception {
+    SonarScanner build = SonarScanner.create()
+      .setProjectDir(temp.newFolder())
+      .addArguments("--help");
+
+    assertThatThrownBy(() -> SonarScannerExecutor.inProcessProperties(build, new TreeMap<>(), temp.newFolder()))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Argument is not supported by in-process execution: --help");
+  }
+
+  @Test
+  public void in_process_execution_requires_recent_scanner() {
+    SonarScanner build = SonarScanner.create()
+      .setProjectDir(new File("."))
+      .setScannerVersion("5.0.1.3006")
+      .setInProcess(true);
+
+    assertThatThrownBy(() -> new SonarScannerExecutor().execute(build, Configuration.create(), null, new TreeMap<>(), mock(SonarScannerInstaller.class), mock(CommandExecutor.class)))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("In-process execution requires SonarScanner CLI 6.0 or later: 5.0.1.3006");
+  }
 }
@@ -88,6 +88,14 @@ public class FileSystem {
     return orchestratorHome.resolve("cache");
   }
 
+  /**
+   * Content-addressed store of the downloaded artifacts. Entries of {@link #getCacheDir()} are
+   * hard links to the files of this directory.
+   */
+  public Path getStoreDir() {
+    return orchestratorHome.resolve("store");
+  }
+
   public Path getTempDir() {
     return orchestratorHome.resolve("_tmp");
   }
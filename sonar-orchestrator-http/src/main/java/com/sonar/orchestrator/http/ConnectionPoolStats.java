@@ -0,0 +1,83 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+/**
+ * Snapshot of the usage of the connection pool of a {@link HttpClient}
+ */
+public class ConnectionPoolStats {
+
+  private final int idleConnections;
+  private final int totalConnections;
+  private final long acquiredConnections;
+  private final long openedConnections;
+
+  ConnectionPoolStats(int idleConnections, int totalConnections, long acquiredConnections, long openedConnections) {
+    this.idleConnections = idleConnections;
+    this.totalConnections = totalConnections;
+    this.acquiredConnections = acquiredConnections;
+    this.openedConnections = openedConnections;
+  }
+
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  /**
+   * Connections of the pool that are currently used by calls
+   */
+  public int getActiveConnections() {
+    return Math.max(0, totalConnections - idleConnections);
+  }
+
+  public int getTotalConnections() {
+    return totalConnections;
+  }
+
+  /**
+   * Number of times a call acquired a connection, since the creation of the client
+   */
+  public long getAcquiredConnections() {
+    return acquiredConnections;
+  }
+
+  /**
+   * Number of connections opened since the creation of the client
+   */
+  public long getOpenedConnections() {
+    return openedConnections;
+  }
+
+  /**
+   * Ratio of acquisitions that reused a pooled connection, between 0 and 1
+   */
+  public double getReuseRatio() {
+    if (acquiredConnections == 0) {
+      return 0.0;
+    }
+    return Math.max(0.0, (double) (acquiredConnections - openedConnections) / acquiredConnections);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ConnectionPoolStats{idle=%d, active=%d, acquired=%d, opened=%d, reuseRatio=%.2f}",
+      idleConnections, getActiveConnections(), acquiredConnections, openedConnections, getReuseRatio());
+  }
+}
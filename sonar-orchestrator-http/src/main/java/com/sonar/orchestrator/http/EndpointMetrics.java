@@ -0,0 +1,146 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the calls to an endpoint, see {@link HttpMetrics}
+ */
+public class EndpointMetrics {
+
+  private final String endpoint;
+  private final AtomicLong calls = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong bytesSent = new AtomicLong();
+  private final AtomicLong bytesReceived = new AtomicLong();
+  private final ConcurrentMap<Integer, AtomicLong> statusCodes = new ConcurrentHashMap<>();
+  private final LatencyHistogram connectLatency = new LatencyHistogram();
+  private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+  private final LatencyHistogram totalLatency = new LatencyHistogram();
+
+  EndpointMetrics(String endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  /**
+   * Method and normalized path, for example {@code "GET /api/ce/task"}
+   */
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public long getCalls() {
+    return calls.get();
+  }
+
+  /**
+   * Calls that failed because of network errors. Responses with error codes are not failures.
+   */
+  public long getFailures() {
+    return failures.get();
+  }
+
+  /**
+   * Requests sent again, for example by redirects, by authentication challenges, by the retry on connection
+   * failure of OkHttp or by the {@link RetryPolicy} of the call.
+   */
+  public long getRetries() {
+    return retries.get();
+  }
+
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  /**
+   * Number of responses by HTTP status code
+   */
+  public Map<Integer, Long> getStatusCodes() {
+    Map<Integer, Long> result = new TreeMap<>();
+    statusCodes.forEach((code, count) -> result.put(code, count.get()));
+    return result;
+  }
+
+  /**
+   * Duration of the establishment of new connections (TCP and TLS). Reused connections are not recorded.
+   */
+  public LatencyHistogram getConnectLatency() {
+    return connectLatency;
+  }
+
+  /**
+   * Duration between the start of the request and the reception of the response headers
+   */
+  public LatencyHistogram getTimeToFirstByte() {
+    return timeToFirstByte;
+  }
+
+  /**
+   * Duration of the whole call, from the start of the call to the end of the response body
+   */
+  public LatencyHistogram getTotalLatency() {
+    return totalLatency;
+  }
+
+  void recordCall(long durationNanos, boolean failed) {
+    calls.incrementAndGet();
+    if (failed) {
+      failures.incrementAndGet();
+    }
+    totalLatency.recordNanos(durationNanos);
+  }
+
+  void recordRetries(long count) {
+    retries.addAndGet(count);
+  }
+
+  void recordStatusCode(int code) {
+    statusCodes.computeIfAbsent(code, c -> new AtomicLong()).incrementAndGet();
+  }
+
+  void recordBytesSent(long bytes) {
+    bytesSent.addAndGet(bytes);
+  }
+
+  void recordBytesReceived(long bytes) {
+    bytesReceived.addAndGet(bytes);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s calls=%d failures=%d retries=%d codes=%s sent=%dB received=%dB connect[p50=%.1fms max=%.1fms] "
+      + "ttfb[p50=%.1fms p99=%.1fms] total[p50=%.1fms p99=%.1fms max=%.1fms sum=%.1fs]",
+      endpoint, getCalls(), getFailures(), getRetries(), getStatusCodes(), getBytesSent(), getBytesReceived(),
+      connectLatency.getPercentileMs(50), connectLatency.getMaxMs(),
+      timeToFirstByte.getPercentileMs(50), timeToFirstByte.getPercentileMs(99),
+      totalLatency.getPercentileMs(50), totalLatency.getPercentileMs(99), totalLatency.getMaxMs(),
+      totalLatency.getMeanMs() * totalLatency.getCount() / 1000.0);
+  }
+}
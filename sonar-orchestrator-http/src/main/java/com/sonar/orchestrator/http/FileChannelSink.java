@@ -0,0 +1,98 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import okio.Buffer;
+import okio.Sink;
+import okio.Timeout;
+
+/**
+ * Okio sink that writes to a file channel by large chunks. The segments of the written buffers are moved, not
+ * copied, until a chunk is complete. The chunk is then copied once into a direct buffer, which is written to the
+ * channel without the intermediate heap arrays of {@link java.io.InputStream} and {@link java.io.OutputStream}.
+ * <p>
+ * The channel is not closed by {@link #close()}, so that the caller can truncate or force it to the storage device.
+ */
+class FileChannelSink implements Sink {
+
+  static final int MAX_CHUNK_SIZE = 256 * 1024;
+  private static final int MIN_CHUNK_SIZE = 8 * 1024;
+
+  private final FileChannel channel;
+  private final Buffer pending = new Buffer();
+  private final ByteBuffer chunk;
+  private long written = 0L;
+
+  /**
+   * @param expectedSize the size of the content to be written, or -1 if unknown. Small contents do not need large chunks.
+   */
+  FileChannelSink(FileChannel channel, long expectedSize) {
+    this.channel = channel;
+    int chunkSize = expectedSize < 0L ? MAX_CHUNK_SIZE : (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, expectedSize));
+    this.chunk = ByteBuffer.allocateDirect(chunkSize);
+  }
+
+  @Override
+  public void write(Buffer source, long byteCount) throws IOException {
+    pending.write(source, byteCount);
+    while (pending.size() >= chunk.capacity()) {
+      writeChunk();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    while (pending.size() > 0L) {
+      writeChunk();
+    }
+  }
+
+  private void writeChunk() throws IOException {
+    chunk.clear();
+    // a read copies at most one segment of 8KB
+    while (chunk.hasRemaining() && pending.size() > 0L) {
+      pending.read(chunk);
+    }
+    chunk.flip();
+    while (chunk.hasRemaining()) {
+      written += channel.write(chunk);
+    }
+  }
+
+  /**
+   * Number of bytes written to the channel
+   */
+  long getWritten() {
+    return written;
+  }
+
+  @Override
+  public Timeout timeout() {
+    return Timeout.NONE;
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes many calls with a bounded concurrency, for example to provision thousands of projects.
+ * The calls share the connection pool of their {@link HttpClient}.
+ * <p>
+ * Execution does not stop on the first failure: the response or the error of each call is available
+ * in {@link HttpBatchResult}.
+ * <pre>
+ * HttpBatch batch = server.newHttpBatch(10);
+ * for (int i = 0; i &lt; 2_000; i++) {
+ *   batch.add(server.newHttpCall("api/projects/create").setMethod(HttpMethod.POST).setAdminCredentials()
+ *     .setParam("project", "p" + i).setParam("name", "P" + i));
+ * }
+ * batch.execute().failIfAnyError();
+ * </pre>
+ */
+public class HttpBatch {
+
+  private final int maxConcurrency;
+  private final List<HttpCall> calls = new ArrayList<>();
+
+  public HttpBatch(int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+    }
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  public HttpBatch add(HttpCall call) {
+    calls.add(call);
+    return this;
+  }
+
+  public int size() {
+    return calls.size();
+  }
+
+  /**
+   * Executes the calls with {@link HttpCall#execute()} and waits for all of them to complete.
+   *
+   * @return the results, in the order of the calls
+   */
+  public HttpBatchResult execute() {
+    List<HttpBatchResult.CallResult> results = new ArrayList<>(calls.size());
+    long start = System.nanoTime();
+    if (calls.isEmpty()) {
+      return new HttpBatchResult(results, 0L);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrency, calls.size()));
+    try {
+      List<CompletableFuture<HttpBatchResult.CallResult>> futures = new ArrayList<>(calls.size());
+      for (HttpCall call : calls) {
+        futures.add(CompletableFuture.supplyAsync(() -> execute(call), executor));
+      }
+      futures.forEach(f -> results.add(f.join()));
+    } finally {
+      executor.shutdownNow();
+    }
+    return new HttpBatchResult(results, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  private static HttpBatchResult.CallResult execute(HttpCall call) {
+    long start = System.nanoTime();
+    try {
+      HttpResponse response = call.execute();
+      return new HttpBatchResult.CallResult(call, response, null, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } catch (RuntimeException e) {
+      return new HttpBatchResult.CallResult(call, null, e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static java.lang.String.format;
+
+/**
+ * Results of {@link HttpBatch#execute()}, with the throughput and the latency of the calls
+ */
+public class HttpBatchResult {
+
+  private final List<CallResult> results;
+  private final long durationMs;
+  private final long[] sortedLatenciesMs;
+
+  HttpBatchResult(List<CallResult> results, long durationMs) {
+    this.results = List.copyOf(results);
+    this.durationMs = durationMs;
+    this.sortedLatenciesMs = results.stream().mapToLong(CallResult::getDurationMs).sorted().toArray();
+  }
+
+  /**
+   * Results in the order of the calls added to the batch
+   */
+  public List<CallResult> getResults() {
+    return results;
+  }
+
+  public List<CallResult> getFailures() {
+    return results.stream().filter(r -> !r.isSuccessful()).toList();
+  }
+
+  public boolean isSuccessful() {
+    return results.stream().allMatch(CallResult::isSuccessful);
+  }
+
+  /**
+   * @throws IllegalStateException if at least one call failed. The first error is the cause, the other ones are suppressed.
+   */
+  public HttpBatchResult failIfAnyError() {
+    List<CallResult> failures = getFailures();
+    if (!failures.isEmpty()) {
+      IllegalStateException e = new IllegalStateException(format("Fail to execute %d of %d HTTP calls", failures.size(), results.size()),
+        failures.get(0).getError());
+      failures.stream().skip(1).forEach(f -> e.addSuppressed(f.getError()));
+      throw e;
+    }
+    return this;
+  }
+
+  /**
+   * Wall-clock duration of the batch
+   */
+  public long getDurationMs() {
+    return durationMs;
+  }
+
+  /**
+   * Number of calls per second
+   */
+  public double getThroughput() {
+    if (durationMs == 0L) {
+      return 0.0;
+    }
+    return results.size() * 1000.0 / durationMs;
+  }
+
+  /**
+   * Latency of calls, for example {@code getLatencyPercentileMs(95)}
+   *
+   * @param percentile between 0 and 100
+   */
+  public long getLatencyPercentileMs(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+    }
+    if (sortedLatenciesMs.length == 0) {
+      return 0L;
+    }
+    int index = (int) Math.ceil(percentile / 100.0 * sortedLatenciesMs.length) - 1;
+    return sortedLatenciesMs[Math.max(0, index)];
+  }
+
+  @Override
+  public String toString() {
+    return format("HttpBatchResult{calls=%d, failures=%d, durationMs=%d, throughput=%.1f/s, p50=%dms, p95=%dms, max=%dms}",
+      results.size(), getFailures().size(), durationMs, getThroughput(),
+      getLatencyPercentileMs(50), getLatencyPercentileMs(95), getLatencyPercentileMs(100));
+  }
+
+  public static class CallResult {
+    private final HttpCall call;
+    @Nullable
+    private final HttpResponse response;
+    @Nullable
+    private final RuntimeException error;
+    private final long durationMs;
+
+    CallResult(HttpCall call, @Nullable HttpResponse response, @Nullable RuntimeException error, long durationMs) {
+      this.call = call;
+      this.response = response;
+      this.error = error;
+      this.durationMs = durationMs;
+    }
+
+    public HttpCall getCall() {
+      return call;
+    }
+
+    public Optional<HttpResponse> getResponse() {
+      return Optional.ofNullable(response);
+    }
+
+    /**
+     * {@link HttpException} if the response code is not 2xx, {@link IllegalStateException} on network failure
+     */
+    @CheckForNull
+    public RuntimeException getError() {
+      return error;
+    }
+
+    public boolean isSuccessful() {
+      return error == null;
+    }
+
+    public long getDurationMs() {
+      return durationMs;
+    }
+  }
+}
@@ -21,21 +21,28 @@ package com.sonar.orchestrator.http;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.ProtocolException;
-import java.net.SocketException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Credentials;
 import okhttp3.FormBody;
 import okhttp3.HttpUrl;
 import okhttp3.MultipartBody;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
@@ -50,16 +57,28 @@ public class HttpCall {
   private static final String ADMIN_PASSWORD = "admin";
 
   private static final String DEFAULT_USER_AGENT = "Orchestrator";
+  private static final RetryPolicy DEFAULT_RETRY_POLICY = RetryPolicy.defaultPolicy();
+  // a single immediate retry on network failure, because of some false-positives when downloading files from GitHub
+  private static final RetryPolicy DEFAULT_DOWNLOAD_RETRY_POLICY = RetryPolicy.builder()
+    .setMaxAttempts(2)
+    .setInitialBackoffMs(0L)
+    .setRetryableCodes(Set.of())
+    .build();
 
-  private final OkHttpClient okClient;
+  private final HttpClient client;
   private final HttpUrl baseUrl;
   private final Map<String, String> parameters = new LinkedHashMap<>();
   private final Map<String, String> headers = new LinkedHashMap<>();
   private HttpMethod method = HttpMethod.GET;
   private Long timeoutMs = null;
+  @Nullable
+  private RetryPolicy retryPolicy = null;
+  private boolean forceToDisk = false;
+  @Nullable
+  private String adminToken = null;
 
-  HttpCall(OkHttpClient okClient, HttpUrl baseUrl) {
-    this.okClient = okClient;
+  HttpCall(HttpClient client, HttpUrl baseUrl) {
+    this.client = client;
     this.baseUrl = baseUrl;
     this.headers.put("User-Agent", DEFAULT_USER_AGENT);
   }
@@ -114,10 +133,26 @@ public class HttpCall {
     return this;
   }
 
+  /**
+   * Authenticates as administrator, with the token defined by {@link #setAdminToken(String)} if any,
+   * else with the default login and password "admin".
+   */
   public HttpCall setAdminCredentials() {
+    if (adminToken != null) {
+      return setAuthenticationToken(adminToken);
+    }
     return setCredentials(ADMIN_LOGIN, ADMIN_PASSWORD);
   }
 
+  /**
+   * Token of an administrator, sent by {@link #setAdminCredentials()} instead of the default password. The server
+   * verifies a token much faster than a password, which is hashed with a deliberately expensive algorithm.
+   */
+  public HttpCall setAdminToken(@Nullable String token) {
+    this.adminToken = token;
+    return this;
+  }
+
   public HttpCall setAuthenticationToken(String token) {
     return setCredentials(token, null);
   }
@@ -166,22 +201,121 @@ public class HttpCall {
     return this;
   }
 
+  /**
+   * Override the retry policy of the client (see {@link HttpClient.Builder#setRetryPolicy(RetryPolicy)}).
+   * The calls executed with {@link #executeAsync()} are not retried.
+   */
+  public HttpCall setRetryPolicy(RetryPolicy policy) {
+    this.retryPolicy = policy;
+    return this;
+  }
+
+  /**
+   * Whether the files downloaded by {@link #downloadToFile(File)} and {@link #downloadToDirectory(File)} are
+   * forced to the storage device (fsync) before the methods return. Disabled by default.
+   */
+  public HttpCall setForceToDisk(boolean b) {
+    this.forceToDisk = b;
+    return this;
+  }
+
   public HttpResponse execute() {
     Request okRequest = buildOkHttpRequest();
-    try (Response okResponse = doExecute(okRequest)) {
+    try {
+      return executeWithRetries(okRequest, DEFAULT_RETRY_POLICY, okResponse -> {
+        try (okResponse) {
+          if (!okResponse.isSuccessful()) {
+            throw new HttpException(okRequest.url(), okResponse.code(), okResponse.body().string());
+          }
+          return HttpResponse.from(okResponse);
+        }
+      });
+    } catch (IOException e) {
+      throw new IllegalStateException(format("Can not call %s due to network failure", okRequest.url()), e);
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #execute()}. The request is executed by the dispatcher of OkHttp,
+   * which limits the number of concurrent requests per host (see {@link HttpClient.Builder#setMaxRequestsPerHost(int)}).
+   * <p>
+   * The future completes exceptionally with {@link HttpException} if the response code is not 2xx, and with
+   * {@link IllegalStateException} on network failure. Cancelling the future cancels the HTTP request.
+   */
+  public CompletableFuture<HttpResponse> executeAsync() {
+    Request okRequest = buildOkHttpRequest();
+    Call call = newOkCall(okRequest);
+    CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+    future.whenComplete((response, error) -> {
+      if (future.isCancelled()) {
+        call.cancel();
+      }
+    });
+    call.enqueue(new Callback() {
+      @Override
+      public void onFailure(Call c, IOException e) {
+        future.completeExceptionally(new IllegalStateException(format("Can not call %s due to network failure", okRequest.url()), e));
+      }
+
+      @Override
+      public void onResponse(Call c, Response okResponse) {
+        try (okResponse) {
+          if (okResponse.isSuccessful()) {
+            future.complete(HttpResponse.from(okResponse));
+          } else {
+            future.completeExceptionally(new HttpException(okRequest.url(), okResponse.code(), okResponse.body().string()));
+          }
+        } catch (IOException e) {
+          onFailure(c, e);
+        }
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Variant of {@link #execute()} that does not load the response body in memory. The body is read from the
+   * network while it is consumed, for example with {@link StreamingHttpResponse#newJsonReader()}.
+   * <p>
+   * The returned response must be closed in order to release the connection.
+   *
+   * @throws HttpException if the response code is not 2xx
+   */
+  public StreamingHttpResponse executeStreaming() {
+    Request okRequest = buildOkHttpRequest();
+    try {
+      Response okResponse = executeWithRetries(okRequest, DEFAULT_RETRY_POLICY, r -> r);
       if (!okResponse.isSuccessful()) {
-        throw new HttpException(okRequest.url(), okResponse.code(), okResponse.body().string());
+        try (okResponse) {
+          throw new HttpException(okRequest.url(), okResponse.code(), okResponse.body().string());
+        }
       }
-      return HttpResponse.from(okResponse);
+      return new StreamingHttpResponse(okResponse);
     } catch (IOException e) {
       throw new IllegalStateException(format("Can not call %s due to network failure", okRequest.url()), e);
     }
   }
 
+  /**
+   * Executes the request and gives the body stream to {@code bodyConsumer}. The response is closed
+   * when the consumer returns.
+   *
+   * @throws HttpException if the response code is not 2xx
+   */
+  public void executeStreaming(Consumer<InputStream> bodyConsumer) {
+    try (StreamingHttpResponse response = executeStreaming()) {
+      bodyConsumer.accept(response.getInputStream());
+    }
+  }
+
   public HttpResponse executeUnsafely() {
     Request okRequest = buildOkHttpRequest();
-    try (Response okResponse = doExecute(okRequest)) {
-      return HttpResponse.from(okResponse);
+    try {
+      return executeWithRetries(okRequest, DEFAULT_RETRY_POLICY, okResponse -> {
+        try (okResponse) {
+          return HttpResponse.from(okResponse);
+        }
+      });
     } catch (IOException e) {
       throw new IllegalStateException(format("Can not call %s due to network failure", okRequest.url()), e);
     }
@@ -190,56 +324,68 @@ public class HttpCall {
   public void downloadToFile(File file) {
     Request okRequest = buildOkHttpRequest();
     try {
-      doDownloadToFile(okRequest, file);
-    } catch (ProtocolException | SocketException | SocketTimeoutException se) {
-      // retry, because of some false-positives when downloading files from GitHub
-      try {
-        doDownloadToFile(okRequest, file);
-      } catch (IOException e2) {
-        throw new IllegalStateException(format("Can not call %s", okRequest.url()), e2);
-      }
+      executeWithRetries(okRequest, DEFAULT_DOWNLOAD_RETRY_POLICY, okResponse -> doDownloadToFile(okRequest, okResponse, file));
     } catch (IOException e) {
       throw new IllegalStateException(format("Can not call %s", okRequest.url()), e);
     }
   }
 
-  private void doDownloadToFile(Request okRequest, File file) throws IOException {
-    try (Response okResponse = doExecute(okRequest)) {
+  private File doDownloadToFile(Request okRequest, Response response, File file) throws IOException {
+    try (Response okResponse = response) {
       if (!okResponse.isSuccessful()) {
         throw new HttpException(okRequest.url(), okResponse.code(), okResponse.body().string());
       }
-      FileUtils.copyInputStreamToFile(okResponse.body().byteStream(), file);
+      writeToFile(okResponse.body(), file);
+      return file;
     }
   }
 
   public File downloadToDirectory(File dir) {
     Request okRequest = buildOkHttpRequest();
     try {
-      return doDownloadToDirectory(dir, okRequest);
-    } catch (ProtocolException | SocketException | SocketTimeoutException se) {
-      // retry, because of some false-positives when downloading files from GitHub
-      try {
-        return doDownloadToDirectory(dir, okRequest);
-      } catch (IOException e2) {
-        throw new IllegalStateException(format("Can not call %s", okRequest.url()), e2);
-      }
+      return executeWithRetries(okRequest, DEFAULT_DOWNLOAD_RETRY_POLICY, okResponse -> doDownloadToDirectory(dir, okRequest, okResponse));
     } catch (IOException e) {
       throw new IllegalStateException(format("Can not call %s", okRequest.url()), e);
     }
   }
 
-  private File doDownloadToDirectory(File dir, Request okRequest) throws IOException {
-    try (Response okResponse = doExecute(okRequest)) {
+  private File doDownloadToDirectory(File dir, Request okRequest, Response response) throws IOException {
+    try (Response okResponse = response) {
       if (!okResponse.isSuccessful()) {
         throw new HttpException(okRequest.url(), okResponse.code(), okResponse.body().string());
       }
       String filename = extractFilename(okResponse);
       File toFile = new File(dir, filename);
-      FileUtils.copyInputStreamToFile(okResponse.body().byteStream(), toFile);
+      writeToFile(okResponse.body(), toFile);
       return toFile;
     }
   }
 
+  private void writeToFile(ResponseBody body, File file) throws IOException {
+    FileChannel channel;
+    try {
+      FileUtils.forceMkdirParent(file);
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      // not a network failure, so it must not be retried
+      throw new IllegalStateException(format("Fail to open file %s", file), e);
+    }
+    try (channel; FileChannelSink sink = new FileChannelSink(channel, body.contentLength())) {
+      long contentLength = body.contentLength();
+      if (contentLength > 0L) {
+        // size the file upfront, so that the file system can allocate it at once
+        channel.write(ByteBuffer.allocate(1), contentLength - 1L);
+      }
+      body.source().readAll(sink);
+      sink.flush();
+      // the body can be shorter than announced, for example when decompressed
+      channel.truncate(sink.getWritten());
+      if (forceToDisk) {
+        channel.force(true);
+      }
+    }
+  }
+
   private Request buildOkHttpRequest() {
     Request.Builder okRequest = switch (method) {
       case GET -> {
@@ -270,15 +416,67 @@ public class HttpCall {
     return okRequest.build();
   }
 
-  private Response doExecute(Request okRequest) throws IOException {
-    OkHttpClient copy = okClient;
-    if (timeoutMs != null) {
-      // see https://github.com/square/okhttp/wiki/Recipes#per-call-configuration
-      copy = okClient.newBuilder()
-        .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
-        .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
-        .build();
+  /**
+   * Executes the request, again if it fails and if the retry policy allows it. The handler is responsible
+   * for closing the response. Failures of the handler other than {@link IOException}, for example
+   * {@link HttpException}, are not retried.
+   *
+   * @param defaultPolicy the policy applied if neither the call nor the client define one
+   */
+  private <T> T executeWithRetries(Request okRequest, RetryPolicy defaultPolicy, ResponseHandler<T> handler) throws IOException {
+    RetryPolicy policy = retryPolicy != null ? retryPolicy : client.getRetryPolicy().orElse(defaultPolicy);
+    int maxAttempts = policy.canRetry(okRequest.method()) ? policy.getMaxAttempts() : 1;
+    for (int attempt = 1;; attempt++) {
+      boolean lastAttempt = attempt >= maxAttempts;
+      long backoffMs;
+      try {
+        Response okResponse = doExecute(okRequest);
+        if (lastAttempt || !policy.isRetryableCode(okResponse.code())) {
+          return handler.handle(okResponse);
+        }
+        try (okResponse) {
+          backoffMs = policy.getBackoffMs(attempt, okResponse.header("Retry-After"));
+        }
+      } catch (IOException e) {
+        if (lastAttempt || !policy.isRetryNetworkFailures() || !isRetryable(e)) {
+          throw e;
+        }
+        backoffMs = policy.getBackoffMs(attempt, null);
+      }
+      client.getMetrics().getEndpoint(okRequest.method(), okRequest.url()).recordRetries(1L);
+      waitBeforeRetry(okRequest, backoffMs);
+    }
+  }
+
+  private static boolean isRetryable(IOException e) {
+    // cancellation and interruption are not network failures
+    return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+  }
+
+  private static void waitBeforeRetry(Request okRequest, long backoffMs) throws InterruptedIOException {
+    if (backoffMs <= 0L) {
+      return;
     }
-    return copy.newCall(okRequest).execute();
+    try {
+      Thread.sleep(backoffMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      InterruptedIOException ioe = new InterruptedIOException("Interrupted before retrying " + okRequest.url());
+      ioe.initCause(e);
+      throw ioe;
+    }
+  }
+
+  private Response doExecute(Request okRequest) throws IOException {
+    return newOkCall(okRequest).execute();
+  }
+
+  private Call newOkCall(Request okRequest) {
+    return client.getUnderlying(timeoutMs).newCall(okRequest);
+  }
+
+  @FunctionalInterface
+  private interface ResponseHandler<T> {
+    T handle(Response okResponse) throws IOException;
   }
 }
@@ -20,9 +20,21 @@
 package com.sonar.orchestrator.http;
 
 import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 import okhttp3.Authenticator;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
 import okhttp3.Credentials;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -34,39 +46,183 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 public class HttpClient {
 
   private final OkHttpClient okClient;
+  private final ConnectionCounter connectionCounter;
+  private final HttpMetrics metrics;
+  @Nullable
+  private final ResponseCache responseCache;
+  @Nullable
+  private final RetryPolicy retryPolicy;
+  /**
+   * Clients derived for the calls that override timeouts. They share the connection pool
+   * and the dispatcher of {@link #okClient}.
+   */
+  private final ConcurrentMap<Long, OkHttpClient> clientsByTimeout = new ConcurrentHashMap<>();
 
-  private HttpClient(OkHttpClient okClient) {
+  private HttpClient(OkHttpClient okClient, ConnectionCounter connectionCounter, HttpMetrics metrics, @Nullable ResponseCache responseCache,
+    @Nullable RetryPolicy retryPolicy) {
     this.okClient = okClient;
+    this.connectionCounter = connectionCounter;
+    this.metrics = metrics;
+    this.responseCache = responseCache;
+    this.retryPolicy = retryPolicy;
   }
 
   public HttpCall newCall(HttpUrl url) {
-    return new HttpCall(okClient, url);
+    return new HttpCall(this, url);
   }
 
   OkHttpClient getUnderlying() {
     return okClient;
   }
 
+  OkHttpClient getUnderlying(@Nullable Long timeoutMs) {
+    if (timeoutMs == null) {
+      return okClient;
+    }
+    // see https://github.com/square/okhttp/wiki/Recipes#per-call-configuration
+    return clientsByTimeout.computeIfAbsent(timeoutMs, t -> okClient.newBuilder()
+      .readTimeout(t, TimeUnit.MILLISECONDS)
+      .writeTimeout(t, TimeUnit.MILLISECONDS)
+      .build());
+  }
+
+  public ConnectionPoolStats getConnectionPoolStats() {
+    ConnectionPool pool = okClient.connectionPool();
+    return new ConnectionPoolStats(pool.idleConnectionCount(), pool.connectionCount(), connectionCounter.acquired.get(), connectionCounter.connected.get());
+  }
+
+  /**
+   * Latency and volume of the calls, by endpoint
+   */
+  public HttpMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * The cache of responses, if enabled with {@link Builder#setResponseCache(ResponseCache)}
+   */
+  public Optional<ResponseCache> getResponseCache() {
+    return Optional.ofNullable(responseCache);
+  }
+
+  /**
+   * The policy applied to the calls that do not define their own with {@link HttpCall#setRetryPolicy(RetryPolicy)},
+   * if overridden with {@link Builder#setRetryPolicy(RetryPolicy)}. If empty, the default policies of {@link HttpCall} apply.
+   */
+  public Optional<RetryPolicy> getRetryPolicy() {
+    return Optional.ofNullable(retryPolicy);
+  }
+
   public static class Builder {
     private SystemProperties system = SystemProperties.INSTANCE;
+    @Nullable
+    private Integer maxRequestsPerHost;
+    private int maxIdleConnections = 5;
+    private long keepAliveMs = TimeUnit.MINUTES.toMillis(5);
+    // super high timeouts because Orchestrator targets build environments
+    // (that are known to be slow or often under pressure...)
+    private long connectTimeoutMs = TimeUnit.SECONDS.toMillis(30);
+    private long readTimeoutMs = TimeUnit.MINUTES.toMillis(5);
+    @Nullable
+    private ResponseCache responseCache;
+    @Nullable
+    private RetryPolicy retryPolicy;
 
     Builder setSystemProperties(SystemProperties sp) {
       this.system = sp;
       return this;
     }
 
+    /**
+     * Maximum number of requests to each host executed concurrently by {@link HttpCall#executeAsync()}. Other
+     * requests are queued. Default value is 5. Synchronous calls are not limited.
+     */
+    public Builder setMaxRequestsPerHost(int i) {
+      if (i < 1) {
+        throw new IllegalArgumentException("Max requests per host must be positive: " + i);
+      }
+      this.maxRequestsPerHost = i;
+      return this;
+    }
+
+    /**
+     * Maximum number of idle connections kept in the pool. Default value is 5.
+     */
+    public Builder setMaxIdleConnections(int i) {
+      if (i < 0) {
+        throw new IllegalArgumentException("Max idle connections must be positive or zero: " + i);
+      }
+      this.maxIdleConnections = i;
+      return this;
+    }
+
+    /**
+     * Duration for which idle connections are kept in the pool. Default value is 5 minutes.
+     */
+    public Builder setKeepAliveMs(long l) {
+      this.keepAliveMs = l;
+      return this;
+    }
+
+    /**
+     * Default value is 30 seconds.
+     */
+    public Builder setConnectTimeoutMs(long l) {
+      this.connectTimeoutMs = l;
+      return this;
+    }
+
+    /**
+     * Read and write timeouts, which can be overridden per call with {@link HttpCall#setTimeoutMs(long)}.
+     * Default value is 5 minutes.
+     */
+    public Builder setReadTimeoutMs(long l) {
+      this.readTimeoutMs = l;
+      return this;
+    }
+
+    /**
+     * Enables the cache of the responses of GET requests. Disabled by default.
+     */
+    public Builder setResponseCache(@Nullable ResponseCache cache) {
+      this.responseCache = cache;
+      return this;
+    }
+
+    /**
+     * Retries of the calls on network failures and transient errors. By default the idempotent calls are retried
+     * on transient error codes according to {@link RetryPolicy#defaultPolicy()}, and the downloads are executed
+     * again once, immediately, if they fail because of the network.
+     */
+    public Builder setRetryPolicy(RetryPolicy policy) {
+      this.retryPolicy = policy;
+      return this;
+    }
+
     public HttpClient build() {
+      ConnectionCounter connectionCounter = new ConnectionCounter();
+      HttpMetrics metrics = new HttpMetrics();
       OkHttpClient.Builder okClient = new OkHttpClient.Builder()
         // make the default values of OkHttp explicit
         .followRedirects(true)
         .followSslRedirects(true)
         .retryOnConnectionFailure(true)
 
-        // super high timeouts because Orchestrator targets build environments
-        // (that are known to be slow or often under pressure...)
-        .connectTimeout(30L, TimeUnit.SECONDS)
-        .readTimeout(5L, TimeUnit.MINUTES)
-        .writeTimeout(5L, TimeUnit.MINUTES);
+        .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+        .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+        .writeTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+        .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+        .eventListenerFactory(metrics.newEventListenerFactory(connectionCounter));
+
+      if (responseCache != null) {
+        okClient.addInterceptor(responseCache.interceptor());
+      }
+
+      if (maxRequestsPerHost != null) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        okClient.dispatcher(dispatcher);
+      }
 
       // OkHttp detects 'http.proxyHost' java property, but credentials should be filled
       String proxyLogin = system.getProperty("http.proxyUser");
@@ -74,7 +230,7 @@ public class HttpClient {
         okClient.proxyAuthenticator(new ProxyAuthenticator(proxyLogin, system.getProperty("http.proxyPassword")));
       }
 
-      return new HttpClient(okClient.build());
+      return new HttpClient(okClient.build(), connectionCounter, metrics, responseCache, retryPolicy);
     }
   }
 
@@ -105,6 +261,24 @@ public class HttpClient {
     }
   }
 
+  /**
+   * Counts the connections acquired by calls and the connections that have been opened, to compute the reuse ratio
+   */
+  static class ConnectionCounter extends EventListener {
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong connected = new AtomicLong();
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+      connected.incrementAndGet();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+      acquired.incrementAndGet();
+    }
+  }
+
   static class SystemProperties {
     private static final SystemProperties INSTANCE = new SystemProperties();
 
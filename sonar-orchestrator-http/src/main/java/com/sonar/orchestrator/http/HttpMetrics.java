@@ -0,0 +1,198 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Metrics of the calls executed by a {@link HttpClient}, grouped by endpoint. The endpoint is the HTTP method
+ * and the path of the URL, in which identifiers are replaced by {@code "{id}"}, for example
+ * {@code "GET /api/v2/users-management/users/{id}"}. Query parameters are ignored.
+ */
+public class HttpMetrics {
+
+  private static final Pattern NUMBER = Pattern.compile("\\d+");
+  // UUIDs and the keys generated by SonarQube, for example "AYzX1_u2Fq0VmNyk7Wrx"
+  private static final Pattern IDENTIFIER = Pattern.compile("(?=.*\\d)[\\w-]{16,}");
+
+  private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+  /**
+   * Metrics of each endpoint, sorted by descending total duration
+   */
+  public List<EndpointMetrics> getEndpoints() {
+    return endpoints.values().stream()
+      .sorted(Comparator.comparingDouble((EndpointMetrics m) -> m.getTotalLatency().getMeanMs() * m.getTotalLatency().getCount()).reversed()
+        .thenComparing(EndpointMetrics::getEndpoint))
+      .toList();
+  }
+
+  public EndpointMetrics getEndpoint(String method, HttpUrl url) {
+    return endpoints.computeIfAbsent(normalize(method, url), EndpointMetrics::new);
+  }
+
+  public long getTotalCalls() {
+    return endpoints.values().stream().mapToLong(EndpointMetrics::getCalls).sum();
+  }
+
+  public void reset() {
+    endpoints.clear();
+  }
+
+  /**
+   * Human-readable report, one line per endpoint
+   */
+  public String dump() {
+    StringBuilder sb = new StringBuilder();
+    getEndpoints().forEach(m -> sb.append(m).append(System.lineSeparator()));
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return dump();
+  }
+
+  static String normalize(String method, HttpUrl url) {
+    StringBuilder sb = new StringBuilder(method).append(' ');
+    for (String segment : url.pathSegments()) {
+      if (segment.isEmpty()) {
+        continue;
+      }
+      sb.append('/');
+      sb.append(NUMBER.matcher(segment).matches() || IDENTIFIER.matcher(segment).matches() ? "{id}" : segment);
+    }
+    if (sb.charAt(sb.length() - 1) == ' ') {
+      sb.append('/');
+    }
+    return sb.toString();
+  }
+
+  EventListener.Factory newEventListenerFactory(@Nullable EventListener delegate) {
+    return call -> new CallListener(this, delegate);
+  }
+
+  /**
+   * Created for each call. The listener of OkHttp is unique for a client, so the listener of connection
+   * statistics of {@link HttpClient} is a delegate.
+   */
+  private static class CallListener extends EventListener {
+    private final HttpMetrics metrics;
+    @Nullable
+    private final EventListener delegate;
+    private EndpointMetrics endpoint;
+    private long callStart;
+    private long connectStart;
+    private long requestStart;
+    private boolean firstByteRecorded = false;
+    private int requests = 0;
+
+    private CallListener(HttpMetrics metrics, @Nullable EventListener delegate) {
+      this.metrics = metrics;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void callStart(Call call) {
+      callStart = System.nanoTime();
+      endpoint = metrics.getEndpoint(call.request().method(), call.request().url());
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+      connectStart = System.nanoTime();
+      if (delegate != null) {
+        delegate.connectStart(call, inetSocketAddress, proxy);
+      }
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, @Nullable Protocol protocol) {
+      endpoint.getConnectLatency().recordNanos(System.nanoTime() - connectStart);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+      if (delegate != null) {
+        delegate.connectionAcquired(call, connection);
+      }
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+      requestStart = System.nanoTime();
+      requests++;
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+      endpoint.recordBytesSent(byteCount);
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+      if (!firstByteRecorded) {
+        firstByteRecorded = true;
+        endpoint.getTimeToFirstByte().recordNanos(System.nanoTime() - requestStart);
+      }
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+      endpoint.recordStatusCode(response.code());
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+      endpoint.recordBytesReceived(byteCount);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+      end(false);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+      end(true);
+    }
+
+    private void end(boolean failed) {
+      if (requests > 1) {
+        endpoint.recordRetries(requests - 1L);
+      }
+      endpoint.recordCall(System.nanoTime() - callStart, failed);
+    }
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import com.eclipsesource.json.JsonHandler;
+import com.eclipsesource.json.JsonParser;
+import com.eclipsesource.json.ParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static java.lang.String.format;
+
+/**
+ * Streaming reader of a JSON document, based on the minimal-json {@link JsonParser}. Events are notified
+ * while the document is parsed and only the current value is kept in memory, so that large responses,
+ * for example the pages of {@code api/issues/search}, can be processed in constant memory.
+ * <p>
+ * Example:
+ * <pre>
+ * try (StreamingHttpResponse response = call.executeStreaming()) {
+ *   response.newJsonReader().read(json -&gt; {
+ *     if (json.getEvent() == Event.STRING &amp;&amp; json.getDepth() == 3 &amp;&amp; "key".equals(json.getName())) {
+ *       process(json.getText());
+ *     }
+ *   });
+ * }
+ * </pre>
+ */
+public class JsonEventReader {
+
+  public enum Event {
+    START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL
+  }
+
+  private final Reader reader;
+  // names of the fields of the enclosing containers, null for the elements of arrays
+  private final List<String> names = new ArrayList<>();
+  private Event event;
+  private String name;
+  private String text;
+
+  public JsonEventReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Parses the whole document, then closes the reader. The listener is called on each event and can
+   * read the current value with the getters of this reader.
+   *
+   * @throws IllegalStateException if the JSON is malformed or can not be read
+   */
+  public void read(Consumer<JsonEventReader> listener) {
+    try (Reader r = reader) {
+      new JsonParser(new Handler(listener)).parse(r);
+    } catch (ParseException e) {
+      throw new IllegalStateException("Malformed JSON: " + e.getMessage(), e);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read JSON document", e);
+    }
+  }
+
+  /**
+   * The current event, or {@code null} if the document has not been read yet.
+   */
+  @CheckForNull
+  public Event getEvent() {
+    return event;
+  }
+
+  /**
+   * Name of the field of the current value, or {@code null} if the value is an element of an array or
+   * the root of the document. It is also set on {@link Event#END_OBJECT} and {@link Event#END_ARRAY}.
+   */
+  @CheckForNull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Text of the current {@link Event#STRING}, {@link Event#NUMBER} or {@link Event#BOOLEAN}.
+   * Returns {@code null} for the other events.
+   */
+  @CheckForNull
+  public String getText() {
+    return text;
+  }
+
+  public long getLong() {
+    checkCurrent(Event.NUMBER);
+    return Long.parseLong(text);
+  }
+
+  public double getDouble() {
+    checkCurrent(Event.NUMBER);
+    return Double.parseDouble(text);
+  }
+
+  public boolean getBoolean() {
+    checkCurrent(Event.BOOLEAN);
+    return Boolean.parseBoolean(text);
+  }
+
+  /**
+   * Number of objects and arrays that enclose the current value. It is 0 for the root value, 1 for
+   * the values of the root object or array, and so on.
+   */
+  public int getDepth() {
+    return names.size();
+  }
+
+  private void checkCurrent(Event expected) {
+    if (event != expected) {
+      throw new IllegalStateException(format("Expected %s but current event is %s", expected, event));
+    }
+  }
+
+  private class Handler extends JsonHandler<Object, Object> {
+    private final Consumer<JsonEventReader> listener;
+    private String nextName;
+
+    private Handler(Consumer<JsonEventReader> listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public Object startArray() {
+      fire(Event.START_ARRAY, null);
+      names.add(nextName);
+      return null;
+    }
+
+    @Override
+    public void endArray(Object array) {
+      nextName = names.remove(names.size() - 1);
+      fire(Event.END_ARRAY, null);
+    }
+
+    @Override
+    public void startArrayValue(Object array) {
+      nextName = null;
+    }
+
+    @Override
+    public Object startObject() {
+      fire(Event.START_OBJECT, null);
+      names.add(nextName);
+      return null;
+    }
+
+    @Override
+    public void endObject(Object object) {
+      nextName = names.remove(names.size() - 1);
+      fire(Event.END_OBJECT, null);
+    }
+
+    @Override
+    public void startObjectValue(Object object, String name) {
+      nextName = name;
+    }
+
+    @Override
+    public void endString(String string) {
+      fire(Event.STRING, string);
+    }
+
+    @Override
+    public void endNumber(String string) {
+      fire(Event.NUMBER, string);
+    }
+
+    @Override
+    public void endBoolean(boolean value) {
+      fire(Event.BOOLEAN, String.valueOf(value));
+    }
+
+    @Override
+    public void endNull() {
+      fire(Event.NULL, null);
+    }
+
+    private void fire(Event e, @Nullable String value) {
+      event = e;
+      name = nextName;
+      text = value;
+      listener.accept(JsonEventReader.this);
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * In-memory cache of the responses of GET requests, enabled with {@link HttpClient.Builder#setResponseCache(ResponseCache)}.
+ * <p>
+ * Only the paths registered with {@link #setTtlMs(String, long)} are cached, for example the web services
+ * that do not change while the server is up. Entries are keyed by method, URL and credentials. The cache
+ * keeps at most {@code maxEntries} entries, the least recently used ones are evicted first.
+ * <p>
+ * A request with another method than GET invalidates all the entries, as it can change the state returned by
+ * any web service. The responses of the GET requests in progress at that time are not cached.
+ * {@link #invalidateAll()} must be called when the server restarts.
+ */
+public class ResponseCache {
+
+  private final int maxEntries;
+  private final LongSupplier clockMs;
+  private final Map<String, Long> ttlMsByPath = new LinkedHashMap<>();
+  private final LinkedHashMap<String, Entry> entries;
+  // incremented on each invalidation, guarded by this
+  private long generation = 0L;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public ResponseCache(int maxEntries) {
+    this(maxEntries, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+  }
+
+  ResponseCache(int maxEntries, LongSupplier clockMs) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Max entries must be positive: " + maxEntries);
+    }
+    this.maxEntries = maxEntries;
+    this.clockMs = clockMs;
+    this.entries = new LinkedHashMap<>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > ResponseCache.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Caches the successful responses of the web service during {@code ttlMs} milliseconds.
+   *
+   * @param path path of the web service, for example {@code "api/server/version"}. The context of the server URL,
+   *             if any, is ignored.
+   */
+  public synchronized ResponseCache setTtlMs(String path, long ttlMs) {
+    ttlMsByPath.put(StringUtils.strip(path, "/"), ttlMs);
+    return this;
+  }
+
+  /**
+   * Removes all the entries. The responses of the requests in progress are not cached.
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    generation++;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  Interceptor interceptor() {
+    return this::intercept;
+  }
+
+  private Response intercept(Interceptor.Chain chain) throws IOException {
+    Request request = chain.request();
+    if (!"GET".equals(request.method())) {
+      try {
+        return chain.proceed(request);
+      } finally {
+        invalidateAll();
+      }
+    }
+    Long ttlMs = ttlMsOf(request.url());
+    if (ttlMs == null) {
+      return chain.proceed(request);
+    }
+    String key = keyOf(request);
+    long requestGeneration = generation();
+    Entry cached = get(key);
+    if (cached != null) {
+      hits.incrementAndGet();
+      return cached.toResponse(request);
+    }
+    misses.incrementAndGet();
+    Response response = chain.proceed(request);
+    if (!response.isSuccessful()) {
+      return response;
+    }
+    Entry entry;
+    try (ResponseBody body = response.body()) {
+      entry = new Entry(response, body.contentType(), body.bytes(), clockMs.getAsLong() + ttlMs);
+    }
+    put(key, entry, requestGeneration);
+    return entry.toResponse(request);
+  }
+
+  @CheckForNull
+  private synchronized Entry get(String key) {
+    Entry entry = entries.get(key);
+    if (entry != null && entry.expiresAtMs <= clockMs.getAsLong()) {
+      entries.remove(key);
+      return null;
+    }
+    return entry;
+  }
+
+  private synchronized long generation() {
+    return generation;
+  }
+
+  /**
+   * Stores the entry only if the cache has not been invalidated since the request started, otherwise
+   * the response may be stale.
+   */
+  private synchronized void put(String key, Entry entry, long requestGeneration) {
+    if (requestGeneration == generation) {
+      entries.put(key, entry);
+    }
+  }
+
+  @CheckForNull
+  private synchronized Long ttlMsOf(HttpUrl url) {
+    String path = StringUtils.strip(url.encodedPath(), "/");
+    for (Map.Entry<String, Long> rule : ttlMsByPath.entrySet()) {
+      if (path.equals(rule.getKey()) || path.endsWith("/" + rule.getKey())) {
+        return rule.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static String keyOf(Request request) {
+    String authorization = request.header("Authorization");
+    return request.method() + " " + request.url() + " " + (authorization == null ? "" : authorization);
+  }
+
+  private static class Entry {
+    private final int code;
+    private final String message;
+    private final Protocol protocol;
+    private final Headers headers;
+    @CheckForNull
+    private final MediaType contentType;
+    private final byte[] body;
+    private final long expiresAtMs;
+
+    private Entry(Response response, @Nullable MediaType contentType, byte[] body, long expiresAtMs) {
+      this.code = response.code();
+      this.message = response.message();
+      this.protocol = response.protocol();
+      this.headers = response.headers();
+      this.contentType = contentType;
+      this.body = body;
+      this.expiresAtMs = expiresAtMs;
+    }
+
+    private Response toResponse(Request request) {
+      return new Response.Builder()
+        .request(request)
+        .protocol(protocol)
+        .code(code)
+        .message(message)
+        .headers(headers)
+        .body(ResponseBody.create(body, contentType))
+        .build();
+    }
+  }
+}
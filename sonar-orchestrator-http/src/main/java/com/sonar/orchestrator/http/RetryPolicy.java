@@ -0,0 +1,289 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+
+import static java.lang.String.format;
+
+/**
+ * Defines if and when a call is executed again after a network failure or a response with a transient
+ * error code. The delay between attempts grows exponentially, with a random jitter so that concurrent
+ * clients do not retry at the same time. The header {@code Retry-After} is honored.
+ * <p>
+ * By default only the idempotent requests (GET, HEAD, PUT, DELETE, OPTIONS) are retried, so that a POST
+ * is never executed twice.
+ * <p>
+ * {@link #defaultPolicy()} is applied to the calls that do not define a policy, except downloads.
+ */
+public class RetryPolicy {
+
+  public static final String PROPERTY_PREFIX = "orchestrator.http.retry.";
+  public static final Set<Integer> DEFAULT_RETRYABLE_CODES = Set.of(429, 502, 503, 504);
+  private static final List<String> PROPERTY_KEYS = List.of("maxAttempts", "initialBackoffMs", "maxBackoffMs", "retryableCodes", "retryNetworkFailures");
+  private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE", "OPTIONS");
+  private static final double JITTER = 0.5;
+
+  private final int maxAttempts;
+  private final long initialBackoffMs;
+  private final long maxBackoffMs;
+  private final Set<Integer> retryableCodes;
+  private final boolean retryNonIdempotent;
+  private final boolean retryNetworkFailures;
+
+  private RetryPolicy(Builder builder) {
+    this.maxAttempts = builder.maxAttempts;
+    this.initialBackoffMs = builder.initialBackoffMs;
+    this.maxBackoffMs = builder.maxBackoffMs;
+    this.retryableCodes = Set.copyOf(builder.retryableCodes);
+    this.retryNonIdempotent = builder.retryNonIdempotent;
+    this.retryNetworkFailures = builder.retryNetworkFailures;
+  }
+
+  /**
+   * Calls are executed only once
+   */
+  public static RetryPolicy none() {
+    return builder().setMaxAttempts(1).build();
+  }
+
+  /**
+   * Up to 3 attempts of the idempotent requests, with a backoff of 500ms then 1s (+/- 50%), on the codes
+   * {@link #DEFAULT_RETRYABLE_CODES}. The header {@code Retry-After} is honored up to 10s. Network failures are
+   * not retried, so that a read timeout of a slow web service does not multiply its duration.
+   */
+  public static RetryPolicy defaultPolicy() {
+    return builder().setRetryNetworkFailures(false).build();
+  }
+
+  /**
+   * The {@link #defaultPolicy() default policy}, overridden by the properties "orchestrator.http.retry.maxAttempts",
+   * ".initialBackoffMs", ".maxBackoffMs", ".retryableCodes" (comma-separated list) and ".retryNetworkFailures"
+   *
+   * @param properties for example {@code configuration::getString}
+   * @return empty if none of the properties is defined, so that the default policies of {@link HttpCall} apply
+   */
+  public static Optional<RetryPolicy> fromProperties(Function<String, String> properties) {
+    if (PROPERTY_KEYS.stream().allMatch(key -> StringUtils.isBlank(properties.apply(PROPERTY_PREFIX + key)))) {
+      return Optional.empty();
+    }
+    Builder builder = builder().setRetryNetworkFailures(false);
+    readLong(properties, "maxAttempts").ifPresent(l -> builder.setMaxAttempts(l.intValue()));
+    readLong(properties, "initialBackoffMs").ifPresent(builder::setInitialBackoffMs);
+    readLong(properties, "maxBackoffMs").ifPresent(builder::setMaxBackoffMs);
+    String codes = properties.apply(PROPERTY_PREFIX + "retryableCodes");
+    if (codes != null) {
+      builder.setRetryableCodes(Arrays.stream(StringUtils.split(codes, ','))
+        .map(String::trim)
+        .map(c -> parseLong(PROPERTY_PREFIX + "retryableCodes", c).intValue())
+        .collect(Collectors.toSet()));
+    }
+    String networkFailures = properties.apply(PROPERTY_PREFIX + "retryNetworkFailures");
+    if (StringUtils.isNotBlank(networkFailures)) {
+      builder.setRetryNetworkFailures(Boolean.parseBoolean(networkFailures.trim()));
+    }
+    return Optional.of(builder.build());
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getInitialBackoffMs() {
+    return initialBackoffMs;
+  }
+
+  public long getMaxBackoffMs() {
+    return maxBackoffMs;
+  }
+
+  public Set<Integer> getRetryableCodes() {
+    return retryableCodes;
+  }
+
+  public boolean isRetryNonIdempotent() {
+    return retryNonIdempotent;
+  }
+
+  public boolean isRetryNetworkFailures() {
+    return retryNetworkFailures;
+  }
+
+  /**
+   * Whether a request with the given HTTP method can be executed again
+   */
+  public boolean canRetry(String method) {
+    return maxAttempts > 1 && (retryNonIdempotent || IDEMPOTENT_METHODS.contains(method));
+  }
+
+  public boolean isRetryableCode(int code) {
+    return retryableCodes.contains(code);
+  }
+
+  /**
+   * Delay before the next attempt
+   *
+   * @param attempt    the attempt that failed, starting from 1
+   * @param retryAfter value of the response header {@code Retry-After}, if any. It is capped by {@link #getMaxBackoffMs()}.
+   */
+  public long getBackoffMs(int attempt, @Nullable String retryAfter) {
+    return getBackoffMs(attempt, retryAfter, System::currentTimeMillis);
+  }
+
+  long getBackoffMs(int attempt, @Nullable String retryAfter, LongSupplier nowMs) {
+    Long retryAfterMs = parseRetryAfterMs(retryAfter, nowMs);
+    if (retryAfterMs != null) {
+      return Math.min(retryAfterMs, maxBackoffMs);
+    }
+    double exponential = initialBackoffMs * Math.pow(2, (double) attempt - 1);
+    double capped = Math.min(exponential, maxBackoffMs);
+    double jitter = capped * JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+    return Math.max(0L, Math.round(capped + jitter));
+  }
+
+  @Nullable
+  private static Long parseRetryAfterMs(@Nullable String retryAfter, LongSupplier nowMs) {
+    if (StringUtils.isBlank(retryAfter)) {
+      return null;
+    }
+    String value = retryAfter.trim();
+    if (StringUtils.isNumeric(value)) {
+      return Duration.ofSeconds(Long.parseLong(value)).toMillis();
+    }
+    try {
+      long date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+      return Math.max(0L, date - nowMs.getAsLong());
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  private static Optional<Long> readLong(Function<String, String> properties, String key) {
+    String value = properties.apply(PROPERTY_PREFIX + key);
+    if (StringUtils.isBlank(value)) {
+      return Optional.empty();
+    }
+    return Optional.of(parseLong(PROPERTY_PREFIX + key, value.trim()));
+  }
+
+  private static Long parseLong(String key, String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(format("Property %s must be a number: %s", key, value), e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return format("RetryPolicy{maxAttempts=%d, initialBackoffMs=%d, maxBackoffMs=%d, retryableCodes=%s, retryNonIdempotent=%s, retryNetworkFailures=%s}",
+      maxAttempts, initialBackoffMs, maxBackoffMs, retryableCodes, retryNonIdempotent, retryNetworkFailures);
+  }
+
+  public static class Builder {
+    private int maxAttempts = 3;
+    private long initialBackoffMs = 500L;
+    private long maxBackoffMs = 10_000L;
+    private Set<Integer> retryableCodes = DEFAULT_RETRYABLE_CODES;
+    private boolean retryNonIdempotent = false;
+    private boolean retryNetworkFailures = true;
+
+    private Builder() {
+    }
+
+    /**
+     * Maximum number of executions of a call, including the first one. Default value is 3.
+     */
+    public Builder setMaxAttempts(int i) {
+      if (i < 1) {
+        throw new IllegalArgumentException("Max attempts must be positive: " + i);
+      }
+      this.maxAttempts = i;
+      return this;
+    }
+
+    /**
+     * Delay before the first retry, doubled at each attempt. Default value is 500ms.
+     */
+    public Builder setInitialBackoffMs(long l) {
+      if (l < 0) {
+        throw new IllegalArgumentException("Backoff must be positive or zero: " + l);
+      }
+      this.initialBackoffMs = l;
+      return this;
+    }
+
+    /**
+     * Maximum delay between two attempts. Default value is 10 seconds.
+     */
+    public Builder setMaxBackoffMs(long l) {
+      if (l < 0) {
+        throw new IllegalArgumentException("Backoff must be positive or zero: " + l);
+      }
+      this.maxBackoffMs = l;
+      return this;
+    }
+
+    /**
+     * Response codes that are retried. Default values are {@link #DEFAULT_RETRYABLE_CODES}.
+     */
+    public Builder setRetryableCodes(Set<Integer> codes) {
+      this.retryableCodes = codes;
+      return this;
+    }
+
+    /**
+     * Whether the non-idempotent requests, like POST, are retried. Default value is false.
+     */
+    public Builder setRetryNonIdempotent(boolean b) {
+      this.retryNonIdempotent = b;
+      return this;
+    }
+
+    /**
+     * Whether the network failures, including read timeouts, are retried. Default value is true.
+     */
+    public Builder setRetryNetworkFailures(boolean b) {
+      this.retryNetworkFailures = b;
+      return this;
+    }
+
+    public RetryPolicy build() {
+      return new RetryPolicy(this);
+    }
+  }
+}
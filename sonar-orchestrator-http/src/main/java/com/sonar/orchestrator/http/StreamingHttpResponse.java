@@ -0,0 +1,93 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.CheckForNull;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+/**
+ * Response of {@link HttpCall#executeStreaming()}. Contrary to {@link HttpResponse}, the body is not
+ * loaded in memory but read from the network while it is consumed.
+ * <p>
+ * The response holds a connection, so it must be closed, ideally with try-with-resources.
+ */
+public class StreamingHttpResponse implements Closeable {
+
+  private final Response okResponse;
+  private final Charset charset;
+
+  StreamingHttpResponse(Response okResponse) {
+    this.okResponse = okResponse;
+    MediaType contentType = okResponse.body().contentType();
+    this.charset = contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+  }
+
+  public int getCode() {
+    return okResponse.code();
+  }
+
+  public Charset getCharset() {
+    return charset;
+  }
+
+  @CheckForNull
+  public String getHeader(String key) {
+    return okResponse.header(key);
+  }
+
+  /**
+   * Length of the body as declared by the header Content-Length, or -1 if unknown.
+   */
+  public long getContentLength() {
+    return okResponse.body().contentLength();
+  }
+
+  public InputStream getInputStream() {
+    return okResponse.body().byteStream();
+  }
+
+  public BufferedSource getSource() {
+    return okResponse.body().source();
+  }
+
+  public Reader getReader() {
+    return new InputStreamReader(getInputStream(), charset);
+  }
+
+  /**
+   * Streaming reader of the JSON body. It keeps in memory only the current value, whatever the size of the body.
+   */
+  public JsonEventReader newJsonReader() {
+    return new JsonEventReader(getReader());
+  }
+
+  @Override
+  public void close() {
+    okResponse.close();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileChannelSinkTest {
+
+  @TempDir
+  Path temp;
+
+  @Test
+  void write_by_chunks() throws IOException {
+    Path file = temp.resolve("file");
+    String content = "a".repeat(FileChannelSink.MAX_CHUNK_SIZE) + "bc";
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      FileChannelSink underTest = new FileChannelSink(channel, -1L);
+      underTest.write(new Buffer().writeUtf8(content), content.length());
+      // only complete chunks are written
+      assertThat(underTest.getWritten()).isEqualTo(FileChannelSink.MAX_CHUNK_SIZE);
+
+      underTest.close();
+      assertThat(underTest.getWritten()).isEqualTo(content.length());
+      assertThat(channel.isOpen()).isTrue();
+    }
+    assertThat(Files.readString(file, UTF_8)).isEqualTo(content);
+  }
+
+  @Test
+  void small_content_is_written_on_flush() throws IOException {
+    Path file = temp.resolve("file");
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      FileChannelSink underTest = new FileChannelSink(channel, 3L);
+      underTest.write(new Buffer().writeUtf8("foo"), 3L);
+      underTest.flush();
+
+      assertThat(underTest.getWritten()).isEqualTo(3L);
+    }
+    assertThat(Files.readString(file, UTF_8)).isEqualTo("foo");
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.junit5.StartStop;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Timeout(60)
+class HttpBatchTest {
+
+  @StartStop
+  public final MockWebServer server = new MockWebServer();
+
+  private final HttpClient client = new HttpClient.Builder().build();
+
+  @Test
+  void execute_all_calls() {
+    HttpBatch underTest = new HttpBatch(4);
+    for (int i = 0; i < 20; i++) {
+      server.enqueue(new MockResponse.Builder().body("ok").build());
+      underTest.add(client.newCall(server.url("api/projects/create")).setMethod(HttpMethod.POST).setParam("project", "p" + i));
+    }
+
+    HttpBatchResult result = underTest.execute();
+
+    assertThat(underTest.size()).isEqualTo(20);
+    assertThat(result.isSuccessful()).isTrue();
+    assertThat(result.getResults()).hasSize(20)
+      .allSatisfy(r -> assertThat(r.getResponse()).hasValueSatisfying(response -> assertThat(response.getBodyAsString()).isEqualTo("ok")));
+    assertThat(result.getFailures()).isEmpty();
+    assertThat(server.getRequestCount()).isEqualTo(20);
+    assertThat(result.getLatencyPercentileMs(50)).isLessThanOrEqualTo(result.getLatencyPercentileMs(100));
+    assertThat(result.toString()).startsWith("HttpBatchResult{calls=20, failures=0, ");
+    result.failIfAnyError();
+  }
+
+  @Test
+  void errors_do_not_stop_execution() {
+    server.enqueue(new MockResponse.Builder().body("ok").build());
+    server.enqueue(new MockResponse.Builder().code(400).body("{\"errors\":[]}").build());
+    server.enqueue(new MockResponse.Builder().body("ok").build());
+    HttpBatch underTest = new HttpBatch(1);
+    for (int i = 0; i < 3; i++) {
+      underTest.add(client.newCall(server.url("api/projects/create")));
+    }
+
+    HttpBatchResult result = underTest.execute();
+
+    assertThat(result.isSuccessful()).isFalse();
+    assertThat(result.getResults()).extracting(HttpBatchResult.CallResult::isSuccessful).containsExactly(true, false, true);
+    HttpBatchResult.CallResult failure = result.getFailures().get(0);
+    assertThat(failure.getResponse()).isEmpty();
+    assertThat(failure.getError()).isInstanceOfSatisfying(HttpException.class, e -> assertThat(e.getCode()).isEqualTo(400));
+    assertThatThrownBy(result::failIfAnyError)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to execute 1 of 3 HTTP calls")
+      .hasCauseInstanceOf(HttpException.class);
+  }
+
+  @Test
+  void execute_empty_batch() {
+    HttpBatchResult result = new HttpBatch(2).execute();
+
+    assertThat(result.getResults()).isEmpty();
+    assertThat(result.getThroughput()).isZero();
+    assertThat(result.getLatencyPercentileMs(95)).isZero();
+  }
+
+  @Test
+  void fail_if_max_concurrency_is_not_positive() {
+    assertThatThrownBy(() -> new HttpBatch(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Max concurrency must be positive: 0");
+  }
+
+  @Test
+  void fail_if_percentile_is_out_of_bounds() {
+    HttpBatchResult result = new HttpBatch(2).execute();
+
+    assertThatThrownBy(() -> result.getLatencyPercentileMs(101))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Percentile must be between 0 and 100: 101.0");
+  }
+}
@@ -24,12 +24,18 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import mockwebserver3.MockResponse;
 import mockwebserver3.MockWebServer;
 import mockwebserver3.RecordedRequest;
 import mockwebserver3.SocketEffect;
 import mockwebserver3.junit5.StartStop;
+import okio.Buffer;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -249,6 +255,16 @@ class HttpCallTest {
     verifyHeader(recordedRequest, "Authorization", "Basic " + base64("admin:admin"));
   }
 
+  @Test
+  void setAdminCredentials_uses_admin_token_if_defined() throws Exception {
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+
+    newCall("").setAdminToken("abcde").setAdminCredentials().execute();
+
+    RecordedRequest recordedRequest = server.takeRequest();
+    verifyHeader(recordedRequest, "Authorization", "Basic " + base64("abcde:"));
+  }
+
   @Test
   void setAuthenticationToken_adds_Authorization_header_with_token_as_login_and_empty_password() throws Exception {
     server.enqueue(new MockResponse.Builder().body(PONG).build());
@@ -336,6 +352,19 @@ class HttpCallTest {
     assertThat(file).exists().isFile().hasContent(PONG);
   }
 
+  @Test
+  void downloadToFile_writes_large_body_and_truncates_existing_file(@TempDir Path temp) throws Exception {
+    byte[] content = new byte[3 * FileChannelSink.MAX_CHUNK_SIZE + 17];
+    new Random(42).nextBytes(content);
+    server.enqueue(new MockResponse.Builder().body(new Buffer().write(content)).build());
+    File target = temp.resolve("large.zip").toFile();
+    Files.write(target.toPath(), new byte[content.length * 2]);
+
+    newCall("api/system/ping").setForceToDisk(true).downloadToFile(target);
+
+    assertThat(Files.readAllBytes(target.toPath())).isEqualTo(content);
+  }
+
   @Test
   void downloadToFile_throws_ISE_if_target_is_a_directory(@TempDir File dir) {
     server.enqueue(new MockResponse.Builder().body(PONG).build());
@@ -344,7 +373,7 @@ class HttpCallTest {
 
     assertThatThrownBy(() -> httpCall.downloadToFile(dir))
       .isInstanceOf(IllegalStateException.class)
-      .hasMessage("Can not call " + server.url("api/system/ping"));
+      .hasMessage("Fail to open file " + dir);
   }
 
   @Test
@@ -443,6 +472,134 @@ class HttpCallTest {
       .hasMessageStartingWith("Can not call " + server.url("api/system/ping") + " due to network failure");
   }
 
+  @Test
+  void executeAsync_returns_response() throws Exception {
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+
+    HttpResponse response = newCall("api/system/ping").setParam("foo", "bar").executeAsync().get();
+
+    verifySuccess(response, PONG);
+    verifyRecorded(server.takeRequest(), "GET", "api/system/ping?foo=bar");
+  }
+
+  @Test
+  void executeAsync_fails_with_HttpException_if_response_code_is_not_2xx() {
+    server.enqueue(new MockResponse.Builder().body("<error>").code(500).build());
+
+    CompletableFuture<HttpResponse> future = newCall("api/system/ping").executeAsync();
+
+    assertThatThrownBy(future::join)
+      .isInstanceOf(CompletionException.class)
+      .cause()
+      .isInstanceOfSatisfying(HttpException.class, e -> {
+        assertThat(e.getCode()).isEqualTo(500);
+        assertThat(e.getBody()).isEqualTo("<error>");
+      });
+  }
+
+  @Test
+  void executeAsync_honors_timeout() {
+    server.enqueue(new MockResponse.Builder().onResponseStart(SocketEffect.Stall.INSTANCE).build());
+
+    CompletableFuture<HttpResponse> future = newCall("api/system/ping").setTimeoutMs(1L).executeAsync();
+
+    assertThatThrownBy(future::join)
+      .isInstanceOf(CompletionException.class)
+      .cause()
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Can not call " + server.url("api/system/ping") + " due to network failure");
+  }
+
+  @Test
+  void executeAsync_is_cancelled_with_future() throws Exception {
+    server.enqueue(new MockResponse.Builder().onResponseStart(SocketEffect.Stall.INSTANCE).build());
+
+    CompletableFuture<HttpResponse> future = newCall("api/system/ping").executeAsync();
+    server.takeRequest();
+    future.cancel(true);
+
+    assertThat(future).isCancelled();
+    // the connection is released, so the server can serve the next request
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+    verifySuccess(newCall("api/system/ping").executeAsync().get(), PONG);
+  }
+
+  @Test
+  void executeStreaming_exposes_body_as_stream() throws Exception {
+    server.enqueue(new MockResponse.Builder().body(PONG).setHeader("Content-Type", "text/plain; charset=iso-8859-1").build());
+
+    try (StreamingHttpResponse response = newCall("api/system/ping").setParam("foo", "bar").executeStreaming()) {
+      assertThat(response.getCode()).isEqualTo(200);
+      assertThat(response.getCharset()).isEqualTo(ISO_8859_1);
+      assertThat(response.getContentLength()).isEqualTo(PONG.length());
+      assertThat(response.getHeader("Content-Type")).isEqualTo("text/plain; charset=iso-8859-1");
+      assertThat(response.getInputStream()).hasContent(PONG);
+    }
+    verifyRecorded(server.takeRequest(), "GET", "api/system/ping?foo=bar");
+  }
+
+  @Test
+  void executeStreaming_gives_body_to_consumer() {
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+    StringBuilder body = new StringBuilder();
+
+    newCall("api/system/ping").executeStreaming(input -> {
+      try {
+        body.append(new String(input.readAllBytes(), UTF_8));
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    assertThat(body).hasToString(PONG);
+  }
+
+  @Test
+  void executeStreaming_fails_with_HttpException_if_response_code_is_not_2xx() {
+    server.enqueue(new MockResponse.Builder().body("<error>").code(500).build());
+
+    HttpCall httpCall = newCall("api/system/ping");
+
+    assertThatThrownBy(httpCall::executeStreaming)
+      .isInstanceOfSatisfying(HttpException.class, e -> {
+        assertThat(e.getCode()).isEqualTo(500);
+        assertThat(e.getBody()).isEqualTo("<error>");
+      });
+  }
+
+  @Test
+  void executeStreaming_reads_json_events() {
+    server.enqueue(new MockResponse.Builder().body("{\"issues\": [{\"key\": \"A\"}, {\"key\": \"B\"}]}").build());
+
+    List<String> keys = new ArrayList<>();
+    try (StreamingHttpResponse response = newCall("api/issues/search").executeStreaming()) {
+      response.newJsonReader().read(json -> {
+        if (json.getEvent() == JsonEventReader.Event.STRING && "key".equals(json.getName())) {
+          keys.add(json.getText());
+        }
+      });
+    }
+
+    assertThat(keys).containsExactly("A", "B");
+  }
+
+  @Test
+  void connections_are_reused_by_calls() {
+    HttpClient client = new HttpClient.Builder().build();
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+
+    client.newCall(server.url("api/system/ping")).execute();
+    client.newCall(server.url("api/system/ping")).setTimeoutMs(10_000L).execute();
+
+    ConnectionPoolStats stats = client.getConnectionPoolStats();
+    assertThat(stats.getAcquiredConnections()).isEqualTo(2);
+    assertThat(stats.getOpenedConnections()).isEqualTo(1);
+    assertThat(stats.getReuseRatio()).isEqualTo(0.5);
+    assertThat(stats.getIdleConnections()).isEqualTo(1);
+    assertThat(stats.getActiveConnections()).isZero();
+  }
+
   @Test
   void charset_of_response_body_is_defined_by_header_ContentType() {
     server.enqueue(new MockResponse.Builder().body(PONG)
@@ -474,6 +631,139 @@ class HttpCallTest {
     assertThat(response.getCharset()).isEqualTo(UTF_8);
   }
 
+  @Test
+  void execute_retries_transient_error_codes() throws Exception {
+    server.enqueue(new MockResponse.Builder().code(503).build());
+    server.enqueue(new MockResponse.Builder().code(429).setHeader("Retry-After", "0").build());
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+    HttpClient client = new HttpClient.Builder().build();
+
+    HttpResponse response = client.newCall(server.url("api/system/ping"))
+      .setRetryPolicy(RetryPolicy.builder().setInitialBackoffMs(1L).build())
+      .execute();
+
+    verifySuccess(response, PONG);
+    assertThat(server.getRequestCount()).isEqualTo(3);
+    assertThat(client.getMetrics().getEndpoint("GET", server.url("api/system/ping")).getRetries()).isEqualTo(2);
+  }
+
+  @Test
+  void execute_retries_transient_error_codes_by_default() throws Exception {
+    server.enqueue(new MockResponse.Builder().code(503).setHeader("Retry-After", "0").build());
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+
+    HttpResponse response = newCall("api/system/ping").execute();
+
+    verifySuccess(response, PONG);
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  void execute_fails_when_all_attempts_fail() {
+    server.enqueue(new MockResponse.Builder().code(502).body("<error>").build());
+    server.enqueue(new MockResponse.Builder().code(502).body("<error>").build());
+
+    HttpCall httpCall = newCall("api/system/ping")
+      .setRetryPolicy(RetryPolicy.builder().setMaxAttempts(2).setInitialBackoffMs(1L).build());
+
+    assertThatThrownBy(httpCall::execute)
+      .isInstanceOfSatisfying(HttpException.class, e -> assertThat(e.getCode()).isEqualTo(502));
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  void execute_does_not_retry_POST_by_default() {
+    server.enqueue(new MockResponse.Builder().code(503).build());
+
+    HttpCall httpCall = newCall("api/projects/create")
+      .setMethod(HttpMethod.POST)
+      .setRetryPolicy(RetryPolicy.builder().setInitialBackoffMs(1L).build());
+
+    assertThatThrownBy(httpCall::execute)
+      .isInstanceOfSatisfying(HttpException.class, e -> assertThat(e.getCode()).isEqualTo(503));
+    assertThat(server.getRequestCount()).isOne();
+  }
+
+  @Test
+  void execute_retries_POST_if_enabled_by_policy() throws Exception {
+    server.enqueue(new MockResponse.Builder().code(503).build());
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+
+    HttpResponse response = newCall("api/projects/create")
+      .setMethod(HttpMethod.POST)
+      .setParam("project", "foo")
+      .setRetryPolicy(RetryPolicy.builder().setInitialBackoffMs(1L).setRetryNonIdempotent(true).build())
+      .execute();
+
+    verifySuccess(response, PONG);
+    server.takeRequest();
+    assertThat(server.takeRequest().getBody().utf8()).isEqualTo("project=foo");
+  }
+
+  @Test
+  void execute_does_not_retry_network_failures_by_default() {
+    server.enqueue(new MockResponse.Builder().onResponseStart(SocketEffect.ShutdownConnection.INSTANCE).build());
+
+    HttpCall httpCall = newCall("api/system/ping");
+
+    assertThatThrownBy(httpCall::execute)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Can not call " + server.url("api/system/ping") + " due to network failure");
+    assertThat(server.getRequestCount()).isOne();
+  }
+
+  @Test
+  void execute_retries_network_failures_if_enabled_by_client() {
+    server.enqueue(new MockResponse.Builder().onResponseStart(SocketEffect.ShutdownConnection.INSTANCE).build());
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+    HttpClient client = new HttpClient.Builder()
+      .setRetryPolicy(RetryPolicy.builder().setInitialBackoffMs(1L).build())
+      .build();
+
+    HttpResponse response = client.newCall(server.url("api/system/ping")).execute();
+
+    verifySuccess(response, PONG);
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  void downloadToFile_retries_network_failure_once_by_default(@TempDir Path dir) {
+    server.enqueue(new MockResponse.Builder().onResponseStart(SocketEffect.ShutdownConnection.INSTANCE).build());
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+    File file = dir.resolve("foo.jar").toFile();
+
+    newCall("api/system/ping").downloadToFile(file);
+
+    assertThat(file).hasContent(PONG);
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  void execute_does_not_retry_if_policy_is_none() {
+    server.enqueue(new MockResponse.Builder().onResponseStart(SocketEffect.ShutdownConnection.INSTANCE).build());
+
+    HttpCall httpCall = newCall("api/system/ping").setRetryPolicy(RetryPolicy.none());
+
+    assertThatThrownBy(httpCall::execute)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Can not call " + server.url("api/system/ping") + " due to network failure");
+    assertThat(server.getRequestCount()).isOne();
+  }
+
+  @Test
+  void downloadToFile_retries_transient_error_codes(@TempDir Path dir) throws Exception {
+    server.enqueue(new MockResponse.Builder().code(504).build());
+    server.enqueue(new MockResponse.Builder().body(PONG).build());
+    File file = dir.resolve("foo.jar").toFile();
+
+    newCall("api/system/ping")
+      .setRetryPolicy(RetryPolicy.builder().setInitialBackoffMs(1L).build())
+      .downloadToFile(file);
+
+    assertThat(file).hasContent(PONG);
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
   private void verifySuccess(HttpResponse response, String expectedBody) {
     assertThat(response.getCode()).isEqualTo(200);
     assertThat(response.getBodyAsString()).isEqualTo(expectedBody);
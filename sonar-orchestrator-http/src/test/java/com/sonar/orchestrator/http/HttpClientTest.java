@@ -24,6 +24,7 @@ import okhttp3.OkHttpClient;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -40,6 +41,52 @@ class HttpClientTest {
     assertThat(okClient.followRedirects()).isTrue();
     assertThat(okClient.followSslRedirects()).isTrue();
     assertThat(okClient.retryOnConnectionFailure()).isTrue();
+    assertThat(okClient.dispatcher().getMaxRequestsPerHost()).isEqualTo(5);
+  }
+
+  @Test
+  void should_configure_pool_and_timeouts() {
+    HttpClient underTest = new HttpClient.Builder()
+      .setMaxIdleConnections(10)
+      .setKeepAliveMs(1_000L)
+      .setConnectTimeoutMs(2_000L)
+      .setReadTimeoutMs(3_000L)
+      .build();
+
+    OkHttpClient okClient = underTest.getUnderlying();
+    assertThat(okClient.connectTimeoutMillis()).isEqualTo(2_000);
+    assertThat(okClient.readTimeoutMillis()).isEqualTo(3_000);
+    assertThat(okClient.writeTimeoutMillis()).isEqualTo(3_000);
+  }
+
+  @Test
+  void should_cache_clients_that_override_timeouts() {
+    HttpClient underTest = newClient();
+
+    OkHttpClient variant = underTest.getUnderlying(1_000L);
+
+    assertThat(variant).isNotSameAs(underTest.getUnderlying());
+    assertThat(variant.readTimeoutMillis()).isEqualTo(1_000);
+    assertThat(variant.connectionPool()).isSameAs(underTest.getUnderlying().connectionPool());
+    assertThat(variant.dispatcher()).isSameAs(underTest.getUnderlying().dispatcher());
+    assertThat(underTest.getUnderlying(1_000L)).isSameAs(variant);
+    assertThat(underTest.getUnderlying(null)).isSameAs(underTest.getUnderlying());
+  }
+
+  @Test
+  void should_configure_max_requests_per_host() {
+    HttpClient underTest = new HttpClient.Builder().setMaxRequestsPerHost(20).build();
+
+    assertThat(underTest.getUnderlying().dispatcher().getMaxRequestsPerHost()).isEqualTo(20);
+  }
+
+  @Test
+  void should_fail_if_max_requests_per_host_is_not_positive() {
+    HttpClient.Builder builder = new HttpClient.Builder();
+
+    assertThatThrownBy(() -> builder.setMaxRequestsPerHost(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Max requests per host must be positive: 0");
   }
 
   @Test
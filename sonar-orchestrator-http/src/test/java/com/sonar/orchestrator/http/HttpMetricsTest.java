@@ -0,0 +1,119 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.junit5.StartStop;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class HttpMetricsTest {
+
+  @StartStop
+  public final MockWebServer server = new MockWebServer();
+
+  private final HttpClient client = new HttpClient.Builder().build();
+
+  @Test
+  void record_calls_by_endpoint() {
+    server.enqueue(new MockResponse.Builder().body("pong").build());
+    server.enqueue(new MockResponse.Builder().body("pong").build());
+    server.enqueue(new MockResponse.Builder().code(404).body("{}").build());
+
+    client.newCall(server.url("api/system/ping")).execute();
+    client.newCall(server.url("api/system/ping")).setParam("foo", "bar").execute();
+    HttpCall notFound = client.newCall(server.url("api/ce/task")).setMethod(HttpMethod.POST).setParam("id", "AYzX1");
+    assertThatThrownBy(notFound::execute).isInstanceOf(HttpException.class);
+
+    HttpMetrics metrics = client.getMetrics();
+    assertThat(metrics.getTotalCalls()).isEqualTo(3);
+    assertThat(metrics.getEndpoints()).extracting(EndpointMetrics::getEndpoint)
+      .containsExactlyInAnyOrder("GET /api/system/ping", "POST /api/ce/task");
+
+    EndpointMetrics ping = metrics.getEndpoint("GET", server.url("api/system/ping"));
+    assertThat(ping.getCalls()).isEqualTo(2);
+    assertThat(ping.getFailures()).isZero();
+    assertThat(ping.getRetries()).isZero();
+    assertThat(ping.getStatusCodes()).containsExactly(entry(200, 2L));
+    assertThat(ping.getBytesReceived()).isEqualTo(8);
+    assertThat(ping.getConnectLatency().getCount()).isOne();
+    assertThat(ping.getTimeToFirstByte().getCount()).isEqualTo(2);
+    assertThat(ping.getTotalLatency().getCount()).isEqualTo(2);
+
+    EndpointMetrics task = metrics.getEndpoint("POST", server.url("api/ce/task"));
+    assertThat(task.getStatusCodes()).containsExactly(entry(404, 1L));
+    assertThat(task.getBytesSent()).isEqualTo("id=AYzX1".length());
+    assertThat(metrics.dump()).contains("GET /api/system/ping calls=2 ", "POST /api/ce/task calls=1 ");
+  }
+
+  @Test
+  void record_network_failures() throws IOException {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    HttpUrl url = HttpUrl.parse("http://localhost:" + port + "/api/system/ping");
+
+    HttpCall call = client.newCall(url);
+    assertThatThrownBy(call::execute).isInstanceOf(IllegalStateException.class);
+
+    EndpointMetrics ping = client.getMetrics().getEndpoint("GET", url);
+    assertThat(ping.getCalls()).isOne();
+    assertThat(ping.getFailures()).isOne();
+  }
+
+  @Test
+  void connection_statistics_are_still_recorded() {
+    server.enqueue(new MockResponse.Builder().body("pong").build());
+
+    client.newCall(server.url("api/system/ping")).execute();
+
+    assertThat(client.getConnectionPoolStats().getOpenedConnections()).isOne();
+    assertThat(client.getConnectionPoolStats().getAcquiredConnections()).isOne();
+  }
+
+  @Test
+  void reset_metrics() {
+    server.enqueue(new MockResponse.Builder().body("pong").build());
+    client.newCall(server.url("api/system/ping")).execute();
+
+    client.getMetrics().reset();
+
+    assertThat(client.getMetrics().getTotalCalls()).isZero();
+    assertThat(client.getMetrics().dump()).isEmpty();
+  }
+
+  @Test
+  void identifiers_are_removed_from_paths() {
+    assertThat(HttpMetrics.normalize("GET", HttpUrl.parse("http://localhost/api/ce/task?id=AYzX1_u2Fq0VmNyk7Wrx"))).isEqualTo("GET /api/ce/task");
+    assertThat(HttpMetrics.normalize("GET", HttpUrl.parse("http://localhost/api/v2/users-management/users/AYzX1_u2Fq0VmNyk7Wrx")))
+      .isEqualTo("GET /api/v2/users-management/users/{id}");
+    assertThat(HttpMetrics.normalize("DELETE", HttpUrl.parse("http://localhost/api/v2/projects/42/"))).isEqualTo("DELETE /api/v2/projects/{id}");
+    assertThat(HttpMetrics.normalize("GET", HttpUrl.parse("http://localhost/api/v2/clean-code-policy/rules"))).isEqualTo("GET /api/v2/clean-code-policy/rules");
+    assertThat(HttpMetrics.normalize("GET", HttpUrl.parse("http://localhost/"))).isEqualTo("GET /");
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import com.sonar.orchestrator.http.JsonEventReader.Event;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonEventReaderTest {
+
+  @Test
+  void read_events_of_document() {
+    JsonEventReader underTest = new JsonEventReader(new StringReader("""
+      {"total": 2, "ratio": -1.5e3, "issues": [{"key": "a\\"b\\u00e9"}, {"key": null}], "done": true}"""));
+
+    List<String> events = new ArrayList<>();
+    underTest.read(json -> events.add(json.getDepth() + ":" + json.getName() + ":" + json.getEvent() + ":" + json.getText()));
+
+    assertThat(events).containsExactly("0:null:START_OBJECT:null",
+      "1:total:NUMBER:2",
+      "1:ratio:NUMBER:-1.5e3",
+      "1:issues:START_ARRAY:null",
+      "2:null:START_OBJECT:null", "3:key:STRING:a\"bé", "2:null:END_OBJECT:null",
+      "2:null:START_OBJECT:null", "3:key:NULL:null", "2:null:END_OBJECT:null",
+      "1:issues:END_ARRAY:null",
+      "1:done:BOOLEAN:true",
+      "0:null:END_OBJECT:null");
+  }
+
+  @Test
+  void typed_values() {
+    JsonEventReader underTest = new JsonEventReader(new StringReader("[42, 0.25, false]"));
+
+    List<Object> values = new ArrayList<>();
+    underTest.read(json -> {
+      switch (json.getEvent()) {
+        case NUMBER -> {
+          if (json.getText().contains(".")) {
+            values.add(json.getDouble());
+          } else {
+            values.add(json.getLong());
+          }
+        }
+        case BOOLEAN -> {
+          values.add(json.getBoolean());
+          assertThatThrownBy(json::getLong)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Expected NUMBER but current event is BOOLEAN");
+        }
+        default -> {
+          // ignored
+        }
+      }
+    });
+
+    assertThat(values).containsExactly(42L, 0.25, false);
+  }
+
+  @Test
+  void read_document_larger_than_buffer() {
+    int size = 10_000;
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      json.append(i == 0 ? "" : ", ").append("\"item").append(i).append('"');
+    }
+    json.append(']');
+    JsonEventReader underTest = new JsonEventReader(new StringReader(json.toString()));
+
+    List<String> items = new ArrayList<>();
+    underTest.read(event -> {
+      if (event.getEvent() == Event.STRING) {
+        items.add(event.getText());
+      }
+    });
+
+    assertThat(items).hasSize(size).startsWith("item0", "item1").endsWith("item" + (size - 1));
+  }
+
+  @Test
+  void close_reader_after_reading() {
+    CloseAwareReader reader = new CloseAwareReader("{}");
+
+    new JsonEventReader(reader).read(json -> {
+    });
+
+    assertThat(reader.closed).isTrue();
+  }
+
+  @Test
+  void fail_if_malformed() {
+    assertThatThrownBy(() -> readAll("{\"a\" 1}"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Malformed JSON: Expected ':'");
+    assertThatThrownBy(() -> readAll("[1,"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Malformed JSON: ");
+    assertThatThrownBy(() -> readAll("[tru]"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Malformed JSON: ");
+    assertThatThrownBy(() -> readAll("[01]"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Malformed JSON: ");
+    assertThatThrownBy(() -> readAll("{} {}"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Malformed JSON: ");
+  }
+
+  @Test
+  void fail_if_reader_fails() {
+    Reader reader = new Reader() {
+      @Override
+      public int read(char[] buffer, int off, int len) throws IOException {
+        throw new IOException("BOOM");
+      }
+
+      @Override
+      public void close() {
+        // nothing to do
+      }
+    };
+
+    assertThatThrownBy(() -> new JsonEventReader(reader).read(json -> {
+    }))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to read JSON document")
+      .hasRootCauseMessage("BOOM");
+  }
+
+  private static void readAll(String json) {
+    new JsonEventReader(new StringReader(json)).read(event -> {
+    });
+  }
+
+  private static class CloseAwareReader extends StringReader {
+    private boolean closed = false;
+
+    CloseAwareReader(String s) {
+      super(s);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      super.close();
+    }
+  }
+}
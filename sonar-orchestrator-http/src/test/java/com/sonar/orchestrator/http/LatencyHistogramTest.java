@@ -0,0 +1,72 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+  private final LatencyHistogram underTest = new LatencyHistogram();
+
+  @Test
+  void empty_histogram() {
+    assertThat(underTest.getCount()).isZero();
+    assertThat(underTest.getMeanMs()).isZero();
+    assertThat(underTest.getMaxMs()).isZero();
+    assertThat(underTest.getPercentileMs(99)).isZero();
+  }
+
+  @Test
+  void percentiles_are_approximated_with_bounded_error() {
+    for (int i = 1; i <= 1000; i++) {
+      underTest.recordNanos(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+
+    assertThat(underTest.getCount()).isEqualTo(1000);
+    assertThat(underTest.getMeanMs()).isCloseTo(500.5, within(0.01));
+    assertThat(underTest.getMaxMs()).isEqualTo(1000.0);
+    assertThat(underTest.getPercentileMs(50)).isBetween(500.0, 500.0 * 1.125);
+    assertThat(underTest.getPercentileMs(99)).isBetween(990.0, 1000.0);
+    assertThat(underTest.getPercentileMs(100)).isEqualTo(1000.0);
+  }
+
+  @Test
+  void buckets_are_contiguous() {
+    for (long micros = 0; micros < 100_000; micros++) {
+      int index = LatencyHistogram.indexOf(micros);
+      assertThat(LatencyHistogram.upperBoundOf(index)).isGreaterThanOrEqualTo(micros);
+      if (index > 0) {
+        assertThat(LatencyHistogram.upperBoundOf(index - 1)).isLessThan(micros);
+      }
+    }
+  }
+
+  @Test
+  void fail_if_percentile_is_out_of_bounds() {
+    assertThatThrownBy(() -> underTest.getPercentileMs(-1))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Percentile must be between 0 and 100: -1.0");
+  }
+}
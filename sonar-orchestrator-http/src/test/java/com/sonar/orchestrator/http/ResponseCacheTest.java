@@ -0,0 +1,186 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import mockwebserver3.junit5.StartStop;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResponseCacheTest {
+
+  @StartStop
+  public final MockWebServer server = new MockWebServer();
+
+  private final AtomicLong clockMs = new AtomicLong(1_000L);
+  private final ResponseCache underTest = new ResponseCache(2, clockMs::get)
+    .setTtlMs("api/server/version", 10_000L)
+    .setTtlMs("api/plugins/installed", 10_000L);
+  private final HttpClient client = new HttpClient.Builder().setResponseCache(underTest).build();
+
+  @Test
+  void cache_responses_of_configured_paths() {
+    enqueue("10.0", "10.1");
+
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.0");
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.0");
+
+    assertThat(server.getRequestCount()).isOne();
+    assertThat(underTest.getHits()).isOne();
+    assertThat(underTest.getMisses()).isOne();
+    assertThat(underTest.size()).isOne();
+  }
+
+  @Test
+  void do_not_cache_other_paths() {
+    enqueue("pong", "pong");
+
+    get("api/system/ping");
+    get("api/system/ping");
+
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  void entries_expire_after_ttl() {
+    enqueue("10.0", "10.1");
+
+    get("api/server/version");
+    clockMs.addAndGet(10_000L);
+
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.1");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  void entries_are_keyed_by_credentials() {
+    enqueue("10.0", "10.1");
+
+    get("api/server/version");
+    HttpResponse response = client.newCall(server.url("api/server/version")).setAdminCredentials().execute();
+
+    assertThat(response.getBodyAsString()).isEqualTo("10.1");
+    assertThat(underTest.size()).isEqualTo(2);
+  }
+
+  @Test
+  void errors_are_not_cached() {
+    server.enqueue(new MockResponse.Builder().code(500).build());
+    enqueue("10.0");
+
+    HttpCall call = client.newCall(server.url("api/server/version"));
+    assertThatThrownBy(call::execute).isInstanceOf(HttpException.class);
+
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.0");
+  }
+
+  @Test
+  void least_recently_used_entries_are_evicted() {
+    enqueue("a", "b", "c", "d");
+
+    get("api/server/version?v=1");
+    get("api/server/version?v=2");
+    get("api/server/version?v=1");
+    get("api/server/version?v=3");
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(get("api/server/version?v=1").getBodyAsString()).isEqualTo("a");
+    assertThat(get("api/server/version?v=2").getBodyAsString()).isEqualTo("d");
+  }
+
+  @Test
+  void POST_invalidates_all_entries() {
+    enqueue("10.0", "[foo]", "", "[foo, bar]", "10.1");
+
+    get("api/server/version");
+    get("api/plugins/installed");
+    client.newCall(server.url("api/plugins/install")).setMethod(HttpMethod.POST).execute();
+
+    assertThat(get("api/plugins/installed").getBodyAsString()).isEqualTo("[foo, bar]");
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.1");
+  }
+
+  @Test
+  void response_of_request_in_progress_during_invalidation_is_not_cached() {
+    server.setDispatcher(new Dispatcher() {
+      private int count = 0;
+
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        count++;
+        if (count == 1) {
+          // for example a POST executed by another thread
+          underTest.invalidateAll();
+        }
+        return new MockResponse.Builder().body("10." + count).build();
+      }
+    });
+
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.1");
+    assertThat(underTest.size()).isZero();
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.2");
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.2");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  void invalidateAll_removes_all_entries() {
+    enqueue("10.0", "10.1");
+
+    get("api/server/version");
+    underTest.invalidateAll();
+
+    assertThat(get("api/server/version").getBodyAsString()).isEqualTo("10.1");
+  }
+
+  @Test
+  void path_is_matched_without_server_context() {
+    enqueue("10.0");
+
+    get("sonarqube/api/server/version");
+    get("sonarqube/api/server/version");
+
+    assertThat(server.getRequestCount()).isOne();
+  }
+
+  @Test
+  void fail_if_max_entries_is_not_positive() {
+    assertThatThrownBy(() -> new ResponseCache(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Max entries must be positive: 0");
+  }
+
+  private HttpResponse get(String pathAndQuery) {
+    return client.newCall(server.url(pathAndQuery)).execute();
+  }
+
+  private void enqueue(String... bodies) {
+    for (String body : bodies) {
+      server.enqueue(new MockResponse.Builder().body(body).build());
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Orchestrator Http Client
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.http;
+
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetryPolicyTest {
+
+  @Test
+  void default_policy_retries_transient_errors_of_idempotent_requests() {
+    RetryPolicy underTest = RetryPolicy.defaultPolicy();
+
+    assertThat(underTest.getMaxAttempts()).isEqualTo(3);
+    assertThat(underTest.getRetryableCodes()).containsExactlyInAnyOrder(429, 502, 503, 504);
+    assertThat(underTest.isRetryableCode(503)).isTrue();
+    assertThat(underTest.isRetryableCode(500)).isFalse();
+    assertThat(underTest.canRetry("GET")).isTrue();
+    assertThat(underTest.canRetry("PUT")).isTrue();
+    assertThat(underTest.canRetry("POST")).isFalse();
+    assertThat(underTest.isRetryNetworkFailures()).isFalse();
+  }
+
+  @Test
+  void none_does_not_retry() {
+    RetryPolicy underTest = RetryPolicy.none();
+
+    assertThat(underTest.getMaxAttempts()).isOne();
+    assertThat(underTest.canRetry("GET")).isFalse();
+  }
+
+  @Test
+  void POST_can_be_retried_if_enabled() {
+    RetryPolicy underTest = RetryPolicy.builder().setRetryNonIdempotent(true).build();
+
+    assertThat(underTest.canRetry("POST")).isTrue();
+  }
+
+  @Test
+  void backoff_grows_exponentially_with_jitter() {
+    RetryPolicy underTest = RetryPolicy.builder().setInitialBackoffMs(100L).setMaxBackoffMs(1_000L).build();
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(underTest.getBackoffMs(1, null)).isBetween(50L, 150L);
+      assertThat(underTest.getBackoffMs(2, null)).isBetween(100L, 300L);
+      assertThat(underTest.getBackoffMs(3, null)).isBetween(200L, 600L);
+      assertThat(underTest.getBackoffMs(10, null)).isBetween(500L, 1_500L);
+    }
+  }
+
+  @Test
+  void backoff_is_zero_if_initial_backoff_is_zero() {
+    RetryPolicy underTest = RetryPolicy.builder().setInitialBackoffMs(0L).build();
+
+    assertThat(underTest.getBackoffMs(3, null)).isZero();
+  }
+
+  @Test
+  void backoff_honors_Retry_After_in_seconds() {
+    RetryPolicy underTest = RetryPolicy.builder().setMaxBackoffMs(5_000L).build();
+
+    assertThat(underTest.getBackoffMs(1, "2")).isEqualTo(2_000L);
+    // capped by max backoff
+    assertThat(underTest.getBackoffMs(1, "60")).isEqualTo(5_000L);
+  }
+
+  @Test
+  void backoff_honors_Retry_After_as_date() {
+    RetryPolicy underTest = RetryPolicy.builder().setMaxBackoffMs(60_000L).build();
+    // Wed, 21 Oct 2015 07:28:00 GMT
+    long now = 1_445_412_470_000L;
+
+    assertThat(underTest.getBackoffMs(1, "Wed, 21 Oct 2015 07:28:00 GMT", () -> now)).isEqualTo(10_000L);
+    assertThat(underTest.getBackoffMs(1, "Wed, 21 Oct 2015 07:27:00 GMT", () -> now)).isZero();
+  }
+
+  @Test
+  void invalid_Retry_After_is_ignored() {
+    RetryPolicy underTest = RetryPolicy.builder().setInitialBackoffMs(100L).build();
+
+    assertThat(underTest.getBackoffMs(1, "soon")).isBetween(50L, 150L);
+  }
+
+  @Test
+  void fromProperties_overrides_default_values() {
+    Map<String, String> props = Map.of(
+      "orchestrator.http.retry.maxAttempts", "5",
+      "orchestrator.http.retry.initialBackoffMs", "10",
+      "orchestrator.http.retry.maxBackoffMs", "20",
+      "orchestrator.http.retry.retryableCodes", "500, 503",
+      "orchestrator.http.retry.retryNetworkFailures", "true");
+
+    RetryPolicy underTest = RetryPolicy.fromProperties(props::get).orElseThrow();
+
+    assertThat(underTest.getMaxAttempts()).isEqualTo(5);
+    assertThat(underTest.getInitialBackoffMs()).isEqualTo(10L);
+    assertThat(underTest.getMaxBackoffMs()).isEqualTo(20L);
+    assertThat(underTest.getRetryableCodes()).isEqualTo(Set.of(500, 503));
+    assertThat(underTest.isRetryNetworkFailures()).isTrue();
+  }
+
+  @Test
+  void fromProperties_returns_empty_if_properties_are_not_set() {
+    assertThat(RetryPolicy.fromProperties(key -> null)).isEmpty();
+  }
+
+  @Test
+  void fromProperties_uses_default_values_of_properties_that_are_not_set() {
+    RetryPolicy underTest = RetryPolicy.fromProperties(Map.of("orchestrator.http.retry.initialBackoffMs", "10")::get).orElseThrow();
+
+    assertThat(underTest.getMaxAttempts()).isEqualTo(3);
+    assertThat(underTest.getInitialBackoffMs()).isEqualTo(10L);
+    assertThat(underTest.getRetryableCodes()).isEqualTo(RetryPolicy.DEFAULT_RETRYABLE_CODES);
+    assertThat(underTest.isRetryNetworkFailures()).isFalse();
+  }
+
+  @Test
+  void fromProperties_fails_if_property_is_not_a_number() {
+    assertThatThrownBy(() -> RetryPolicy.fromProperties(Map.of("orchestrator.http.retry.maxAttempts", "three")::get))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Property orchestrator.http.retry.maxAttempts must be a number: three");
+  }
+
+  @Test
+  void max_attempts_must_be_positive() {
+    RetryPolicy.Builder builder = RetryPolicy.builder();
+
+    assertThatThrownBy(() -> builder.setMaxAttempts(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Max attempts must be positive: 0");
+  }
+}
@@ -27,6 +27,10 @@ import com.sonar.orchestrator.container.Server;
 import com.sonar.orchestrator.container.SonarDistribution;
 import com.sonar.orchestrator.db.Database;
 import com.sonar.orchestrator.locator.FileLocation;
+import com.sonar.orchestrator.server.CeActivityReport;
+import com.sonar.orchestrator.server.CeTask;
+import java.time.Instant;
+import javax.annotation.Nullable;
 
 /**
  * To be used as a JUnit 4 {@link org.junit.Rule} or {@link org.junit.ClassRule}. For example:
@@ -170,6 +174,22 @@ public class OrchestratorRule extends SingleStartExternalResource {
     return orchestrator.executeBuilds(builds);
   }
 
+  public BuildResult[] executeBuildsParallel(int maxConcurrency, Build<?>... builds) {
+    return orchestrator.executeBuildsParallel(maxConcurrency, builds);
+  }
+
+  public CeTask waitForTask(String taskId) {
+    return orchestrator.waitForTask(taskId);
+  }
+
+  public CeActivityReport getComputeEngineActivity() {
+    return orchestrator.getComputeEngineActivity();
+  }
+
+  public CeActivityReport getComputeEngineActivity(@Nullable Instant minSubmittedAt) {
+    return orchestrator.getComputeEngineActivity(minSubmittedAt);
+  }
+
   public static OrchestratorRuleBuilder builderEnv() {
     return builder(Configuration.createEnv());
   }
@@ -0,0 +1,127 @@
+/*
+ * Orchestrator Locators
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.locator;
+
+import com.sonar.orchestrator.config.FileSystem;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.UUID;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressed store of artifacts, located in {@link FileSystem#getStoreDir()}.
+ * <p>
+ * Each blob is named by the SHA-256 of its content, for example {@code store/sha256/3f/3f9a...}.
+ * Entries of the cache are hard links to the blobs, so the same bytes downloaded under different
+ * coordinates (classifiers, version aliases, ...) are stored only once on disk.
+ * <p>
+ * Hard links require the store, the cache and the temp directory to be on the same file system.
+ * When links are not supported, files are kept as is and are not deduplicated.
+ */
+public class ArtifactStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ArtifactStore.class);
+  private static final String ALGORITHM = "sha256";
+
+  private final Path storeDir;
+  private final Path tempDir;
+
+  public ArtifactStore(FileSystem fileSystem) {
+    this(fileSystem.getStoreDir(), fileSystem.getTempDir());
+  }
+
+  ArtifactStore(Path storeDir, Path tempDir) {
+    this.storeDir = storeDir;
+    this.tempDir = tempDir;
+  }
+
+  public static String sha256(Path file) {
+    try (InputStream input = Files.newInputStream(file)) {
+      return DigestUtils.sha256Hex(input);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to compute checksum of " + file, e);
+    }
+  }
+
+  /**
+   * Path of the blob with the given SHA-256, whether it exists or not.
+   */
+  public Path blobPath(String sha256) {
+    return storeDir.resolve(ALGORITHM).resolve(sha256.substring(0, 2)).resolve(sha256);
+  }
+
+  public Optional<Path> get(String sha256) {
+    Path blob = blobPath(sha256);
+    return Files.isRegularFile(blob) ? Optional.of(blob) : Optional.empty();
+  }
+
+  /**
+   * Adds {@code file} to the store. If the same content is already stored, {@code file} is atomically
+   * replaced by a hard link to the existing blob.
+   *
+   * @return the blob, or {@link Optional#empty()} if the file system does not support hard links
+   */
+  public Optional<Path> add(Path file) {
+    String sha256 = sha256(file);
+    Path blob = blobPath(sha256);
+    try {
+      Files.createDirectories(blob.getParent());
+      Files.createDirectories(tempDir);
+      if (!Files.exists(blob)) {
+        // the blob and the file become the same inode
+        atomicLink(file, blob);
+      } else if (!Files.isSameFile(file, blob)) {
+        atomicLink(blob, file);
+        LOG.debug("Deduplicated {} with {}", file, blob);
+      }
+      return Optional.of(blob);
+    } catch (IOException | UnsupportedOperationException e) {
+      LOG.debug("Can not add {} to artifact store: {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Checks that the content of the blob matches its name.
+   */
+  public boolean verify(Path blob) {
+    return Files.isRegularFile(blob) && blob.getFileName().toString().equals(sha256(blob));
+  }
+
+  /**
+   * Creates {@code link} as a hard link to {@code existing}. The link is created in the temp
+   * directory then moved in place, so that readers never see a partial state.
+   */
+  private void atomicLink(Path existing, Path link) throws IOException {
+    Path tempLink = tempDir.resolve(link.getFileName() + "-" + UUID.randomUUID() + ".link");
+    try {
+      Files.createLink(tempLink, existing);
+      Files.move(tempLink, link, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tempLink);
+    }
+  }
+}
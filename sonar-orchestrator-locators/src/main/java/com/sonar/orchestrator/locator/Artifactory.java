@@ -24,6 +24,7 @@ import com.eclipsesource.json.JsonArray;
 import com.sonar.orchestrator.http.HttpCall;
 import com.sonar.orchestrator.http.HttpClientFactory;
 import com.sonar.orchestrator.http.HttpException;
+import com.sonar.orchestrator.http.RetryPolicy;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
@@ -54,6 +55,8 @@ public abstract class Artifactory {
   protected final String apiKey;
   @Nullable
   protected final String accessToken;
+  @Nullable
+  private RetryPolicy retryPolicy = null;
 
   protected Artifactory(File tempDir, String baseUrl, @Nullable String accessToken, @Nullable String apiKey) {
     this.tempDir = tempDir;
@@ -155,8 +158,19 @@ public abstract class Artifactory {
       errorMessage);
   }
 
+  /**
+   * Retries of the requests to Artifactory, which may fail with 502/503/504 when under pressure.
+   * By default the policies of the HTTP client apply, for example {@link RetryPolicy#defaultPolicy()}.
+   */
+  void setRetryPolicy(RetryPolicy policy) {
+    this.retryPolicy = policy;
+  }
+
   protected HttpCall newArtifactoryCall(HttpUrl url) {
     HttpCall call = HttpClientFactory.create().newCall(url);
+    if (retryPolicy != null) {
+      call.setRetryPolicy(retryPolicy);
+    }
     if (!isEmpty(accessToken)) {
       call.setHeader("Authorization", "Bearer " + accessToken);
     } else if (!isEmpty(apiKey)) {
@@ -20,6 +20,7 @@
 package com.sonar.orchestrator.locator;
 
 import com.sonar.orchestrator.config.Configuration;
+import com.sonar.orchestrator.http.RetryPolicy;
 import java.io.File;
 import java.util.List;
 
@@ -54,13 +55,16 @@ public class ArtifactoryFactory {
     File downloadTempDir = configuration.fileSystem().getTempDir().toFile();
     String baseUrl = defaultIfEmpty(configuration.getStringByKeys("orchestrator.artifactory.url", "ARTIFACTORY_URL"), DEFAULT_ARTIFACTORY_URL);
 
+    Artifactory artifactory;
     if (isSonarSourceArtifactory(baseUrl)) {
       String accessToken = configuration.getStringByKeys("orchestrator.artifactory.accessToken", "ARTIFACTORY_ACCESS_TOKEN");
       String apiKey = configuration.getStringByKeys("orchestrator.artifactory.apiKey", "ARTIFACTORY_API_KEY");
-      return new DefaultArtifactory(downloadTempDir, baseUrl, accessToken, apiKey);
+      artifactory = new DefaultArtifactory(downloadTempDir, baseUrl, accessToken, apiKey);
     } else {
-      return new MavenArtifactory(downloadTempDir, baseUrl);
+      artifactory = new MavenArtifactory(downloadTempDir, baseUrl);
     }
+    RetryPolicy.fromProperties(configuration::getString).ifPresent(artifactory::setRetryPolicy);
+    return artifactory;
   }
 
   private static boolean isSonarSourceArtifactory(String baseUrl) {
@@ -0,0 +1,431 @@
+/*
+ * Orchestrator Locators
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.locator;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import com.sonar.orchestrator.config.FileSystem;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Portable archive of a subset of the Orchestrator cache, for example to be saved and restored
+ * by the cache of a CI system instead of the whole {@code ~/.sonar/orchestrator} directory.
+ * <p>
+ * The archive is a zip file that contains:
+ * <ul>
+ *   <li>{@code manifest.json}: the fingerprint of the bundle and, for each file, its location, size and SHA-256</li>
+ *   <li>{@code cache/...}: the entries of {@link FileSystem#getCacheDir()}</li>
+ *   <li>{@code workspace/...}: optional directories of {@link FileSystem#workspace()}, for example
+ *   the installations of SonarScanner</li>
+ * </ul>
+ * Files are verified against the manifest when the bundle is restored. Files that are not in the
+ * Orchestrator cache (local files, Maven local repository) are not exported.
+ */
+public class CacheBundle {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CacheBundle.class);
+  static final String MANIFEST = "manifest.json";
+  private static final String CACHE_PREFIX = "cache/";
+  private static final String WORKSPACE_PREFIX = "workspace/";
+  private static final int FORMAT_VERSION = 1;
+
+  private final FileSystem fileSystem;
+  private final Locators locators;
+  private final ArtifactStore store;
+
+  public CacheBundle(FileSystem fileSystem, Locators locators) {
+    this.fileSystem = fileSystem;
+    this.locators = locators;
+    this.store = new ArtifactStore(fileSystem);
+  }
+
+  /**
+   * Fingerprint of a set of locations, independent of their order. Version aliases are resolved, so the
+   * fingerprint changes when a new version is released. It can be used as key of the CI cache.
+   */
+  public String fingerprint(Collection<? extends Location> locations) {
+    return DigestUtils.sha256Hex(String.join("\n", locations.stream()
+      .map(this::resolve)
+      .map(Object::toString)
+      .distinct()
+      .sorted()
+      .toList()));
+  }
+
+  private Location resolve(Location location) {
+    if (location instanceof MavenLocation mavenLocation) {
+      return locators.maven().resolveLocation(mavenLocation);
+    }
+    return location;
+  }
+
+  /**
+   * Writes a lockfile that lists the given Maven locations with their version aliases resolved, one
+   * {@code groupId:artifactId:version[:classifier]:packaging} per line. Other types of locations are ignored.
+   */
+  public void writeLockfile(Collection<? extends Location> locations, Path lockfile) {
+    List<String> lines = new ArrayList<>();
+    lines.add("# Generated by Orchestrator. Do not edit.");
+    locations.stream()
+      .filter(MavenLocation.class::isInstance)
+      .map(location -> toCoordinates((MavenLocation) resolve(location)))
+      .distinct()
+      .sorted()
+      .forEach(lines::add);
+    try {
+      Files.write(lockfile, lines, UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write lockfile " + lockfile, e);
+    }
+  }
+
+  public static List<MavenLocation> readLockfile(Path lockfile) {
+    try (Stream<String> lines = Files.lines(lockfile, UTF_8)) {
+      return lines.map(String::trim)
+        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+        .map(CacheBundle::parseCoordinates)
+        .toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read lockfile " + lockfile, e);
+    }
+  }
+
+  /**
+   * Locates the artifacts, downloading them if needed, then writes the bundle.
+   *
+   * @param workspaceDirs directories of {@link FileSystem#workspace()} to be included, for example {@code "sonar-scanner-7.0.2.4839"}.
+   *                      Missing directories are ignored.
+   * @return the manifest of the bundle
+   */
+  public Manifest export(Collection<? extends Location> locations, Collection<String> workspaceDirs, Path archive) {
+    Map<String, File> files = locators.prefetch(locations);
+    Path cacheDir = fileSystem.getCacheDir().toAbsolutePath().normalize();
+    Path workspace = fileSystem.workspace().toAbsolutePath().normalize();
+
+    // sorted by path, so that the same inputs produce the same archive
+    Map<String, Entry> entries = new TreeMap<>();
+    files.forEach((location, file) -> {
+      Path path = file.toPath().toAbsolutePath().normalize();
+      if (path.startsWith(cacheDir)) {
+        String entryPath = CACHE_PREFIX + toEntryPath(cacheDir.relativize(path));
+        entries.put(entryPath, Entry.of(entryPath, location, path));
+      } else {
+        LOG.info("Not exported, {} is not in Orchestrator cache: {}", location, file);
+      }
+    });
+    for (String workspaceDir : workspaceDirs) {
+      Path dir = workspace.resolve(workspaceDir).normalize();
+      if (!dir.startsWith(workspace) || dir.equals(workspace)) {
+        throw new IllegalArgumentException("Directory must be inside the workspace " + workspace + ": " + workspaceDir);
+      }
+      listFiles(dir).forEach(file -> {
+        String entryPath = WORKSPACE_PREFIX + toEntryPath(workspace.relativize(file));
+        entries.put(entryPath, Entry.of(entryPath, null, file));
+      });
+    }
+
+    Manifest manifest = new Manifest(fingerprint(locations), new ArrayList<>(entries.values()));
+    writeArchive(manifest, archive);
+    LOG.info("Exported {} files to {}", manifest.getEntries().size(), archive);
+    return manifest;
+  }
+
+  private void writeArchive(Manifest manifest, Path archive) {
+    try {
+      if (archive.getParent() != null) {
+        Files.createDirectories(archive.getParent());
+      }
+      try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+        // artifacts are mostly already compressed
+        zip.setLevel(Deflater.BEST_SPEED);
+        zip.putNextEntry(new ZipEntry(MANIFEST));
+        zip.write(manifest.toJson().getBytes(UTF_8));
+        zip.closeEntry();
+        for (Entry entry : manifest.getEntries()) {
+          zip.putNextEntry(new ZipEntry(entry.getPath()));
+          Files.copy(entry.source, zip);
+          zip.closeEntry();
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write cache bundle " + archive, e);
+    }
+  }
+
+  /**
+   * Restores the files of the bundle. Files that already exist with the expected content are not
+   * overwritten. Each file is verified then atomically moved to its final location.
+   *
+   * @param expectedFingerprint if not null, the bundle is rejected when its fingerprint is different
+   * @return the manifest of the bundle
+   * @throws IllegalStateException if the bundle is corrupted or does not match the expected fingerprint
+   */
+  public Manifest restore(Path archive, @Nullable String expectedFingerprint) {
+    try (ZipFile zip = new ZipFile(archive.toFile())) {
+      Manifest manifest = readManifest(zip);
+      if (expectedFingerprint != null && !expectedFingerprint.equals(manifest.getFingerprint())) {
+        throw new IllegalStateException(String.format("Cache bundle %s has fingerprint %s, expected %s", archive, manifest.getFingerprint(), expectedFingerprint));
+      }
+      int restored = 0;
+      for (Entry entry : manifest.getEntries()) {
+        if (restore(zip, entry)) {
+          restored++;
+        }
+      }
+      LOG.info("Restored {} files from {} ({} already up-to-date)", restored, archive, manifest.getEntries().size() - restored);
+      return manifest;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read cache bundle " + archive, e);
+    }
+  }
+
+  private boolean restore(ZipFile zip, Entry entry) throws IOException {
+    Path target = targetOf(entry.getPath());
+    if (Files.isRegularFile(target) && Files.size(target) == entry.getSize() && ArtifactStore.sha256(target).equals(entry.getSha256())) {
+      return false;
+    }
+    ZipEntry zipEntry = zip.getEntry(entry.getPath());
+    if (zipEntry == null) {
+      throw new IllegalStateException("Cache bundle is corrupted, missing file " + entry.getPath());
+    }
+    Path tempDir = fileSystem.getTempDir();
+    Files.createDirectories(tempDir);
+    Path tempFile = tempDir.resolve(target.getFileName() + "-" + UUID.randomUUID() + ".tmp");
+    try {
+      try (InputStream input = zip.getInputStream(zipEntry)) {
+        Files.copy(input, tempFile);
+      }
+      if (Files.size(tempFile) != entry.getSize() || !ArtifactStore.sha256(tempFile).equals(entry.getSha256())) {
+        throw new IllegalStateException("Cache bundle is corrupted, checksum does not match for " + entry.getPath());
+      }
+      if (entry.isExecutable()) {
+        tempFile.toFile().setExecutable(true, false);
+      }
+      Files.createDirectories(target.getParent());
+      Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+    if (entry.getPath().startsWith(CACHE_PREFIX)) {
+      store.add(target);
+    }
+    return true;
+  }
+
+  private Path targetOf(String entryPath) {
+    Path root;
+    String relativePath;
+    if (entryPath.startsWith(CACHE_PREFIX)) {
+      root = fileSystem.getCacheDir().toAbsolutePath().normalize();
+      relativePath = entryPath.substring(CACHE_PREFIX.length());
+    } else if (entryPath.startsWith(WORKSPACE_PREFIX)) {
+      root = fileSystem.workspace().toAbsolutePath().normalize();
+      relativePath = entryPath.substring(WORKSPACE_PREFIX.length());
+    } else {
+      throw new IllegalStateException("Cache bundle is corrupted, unexpected file " + entryPath);
+    }
+    Path target = root.resolve(relativePath).normalize();
+    if (!target.startsWith(root) || target.equals(root)) {
+      // vulnerability - trying to create a file outside the target directory
+      throw new IllegalStateException("Restoring a file outside the target directory is not allowed: " + entryPath);
+    }
+    return target;
+  }
+
+  private static Manifest readManifest(ZipFile zip) throws IOException {
+    ZipEntry manifestEntry = zip.getEntry(MANIFEST);
+    if (manifestEntry == null) {
+      throw new IllegalStateException("Not a cache bundle, missing " + MANIFEST + ": " + zip.getName());
+    }
+    try (Reader reader = new InputStreamReader(zip.getInputStream(manifestEntry), UTF_8)) {
+      return Manifest.parse(Json.parse(reader).asObject());
+    }
+  }
+
+  private static List<Path> listFiles(Path dir) {
+    if (!Files.isDirectory(dir)) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to list files of " + dir, e);
+    }
+  }
+
+  private static String toEntryPath(Path relativePath) {
+    return relativePath.toString().replace(File.separatorChar, '/');
+  }
+
+  private static String toCoordinates(MavenLocation location) {
+    StringBuilder sb = new StringBuilder()
+      .append(location.getGroupId()).append(':')
+      .append(location.getArtifactId()).append(':')
+      .append(location.getVersion()).append(':');
+    if (location.getClassifier() != null && !location.getClassifier().isEmpty()) {
+      sb.append(location.getClassifier()).append(':');
+    }
+    return sb.append(location.getPackaging()).toString();
+  }
+
+  private static MavenLocation parseCoordinates(String coordinates) {
+    String[] fields = coordinates.split(":");
+    if (fields.length != 4 && fields.length != 5) {
+      throw new IllegalArgumentException("Format is groupId:artifactId:version[:classifier]:packaging. Please check the lockfile entry: " + coordinates);
+    }
+    return MavenLocation.builder()
+      .setKey(fields[0], fields[1], fields[2])
+      .setClassifier(fields.length == 5 ? fields[3] : null)
+      .withPackaging(fields[fields.length - 1])
+      .build();
+  }
+
+  public static class Manifest {
+    private final String fingerprint;
+    private final List<Entry> entries;
+
+    Manifest(String fingerprint, List<Entry> entries) {
+      this.fingerprint = fingerprint;
+      this.entries = entries;
+    }
+
+    public String getFingerprint() {
+      return fingerprint;
+    }
+
+    public List<Entry> getEntries() {
+      return Collections.unmodifiableList(entries);
+    }
+
+    String toJson() {
+      JsonArray array = Json.array();
+      entries.forEach(entry -> {
+        JsonObject json = Json.object()
+          .add("path", entry.path)
+          .add("sha256", entry.sha256)
+          .add("size", entry.size)
+          .add("executable", entry.executable);
+        if (entry.location != null) {
+          json.add("location", entry.location);
+        }
+        array.add(json);
+      });
+      return Json.object()
+        .add("formatVersion", FORMAT_VERSION)
+        .add("fingerprint", fingerprint)
+        .add("entries", array)
+        .toString();
+    }
+
+    static Manifest parse(JsonObject json) {
+      int formatVersion = json.getInt("formatVersion", -1);
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IllegalStateException("Unsupported format of cache bundle: " + formatVersion);
+      }
+      List<Entry> entries = new ArrayList<>();
+      for (JsonValue value : json.get("entries").asArray()) {
+        JsonObject entry = value.asObject();
+        entries.add(new Entry(entry.getString("path", null), entry.getString("location", null), entry.getString("sha256", null),
+          entry.getLong("size", -1L), entry.getBoolean("executable", false), null));
+      }
+      return new Manifest(json.getString("fingerprint", null), entries);
+    }
+  }
+
+  public static class Entry {
+    private final String path;
+    @Nullable
+    private final String location;
+    private final String sha256;
+    private final long size;
+    private final boolean executable;
+    @Nullable
+    private final Path source;
+
+    Entry(String path, @Nullable String location, String sha256, long size, boolean executable, @Nullable Path source) {
+      this.path = Objects.requireNonNull(path, "Missing path of cache bundle entry");
+      this.location = location;
+      this.sha256 = Objects.requireNonNull(sha256, "Missing checksum of cache bundle entry");
+      this.size = size;
+      this.executable = executable;
+      this.source = source;
+    }
+
+    private static Entry of(String path, @Nullable String location, Path file) {
+      try {
+        return new Entry(path, location, ArtifactStore.sha256(file), Files.size(file), Files.isExecutable(file), file);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read " + file, e);
+      }
+    }
+
+    /**
+     * Path in the archive, for example {@code "cache/<hash>/sonar-java-plugin-1.0.jar"}
+     */
+    public String getPath() {
+      return path;
+    }
+
+    @Nullable
+    public String getLocation() {
+      return location;
+    }
+
+    public String getSha256() {
+      return sha256;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public boolean isExecutable() {
+      return executable;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonValue;
 import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.http.HttpCall;
+import com.sonar.orchestrator.http.RetryPolicy;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.Comparator;
@@ -47,7 +48,9 @@ public class DefaultArtifactory extends Artifactory {
     String baseUrl = defaultIfEmpty(configuration.getStringByKeys("orchestrator.artifactory.url", "ARTIFACTORY_URL"), "https://repox.jfrog.io/repox");
     String apiKey = configuration.getStringByKeys("orchestrator.artifactory.apiKey", "ARTIFACTORY_API_KEY");
     String accessToken = configuration.getStringByKeys("orchestrator.artifactory.accessToken", "ARTIFACTORY_ACCESS_TOKEN");
-    return new DefaultArtifactory(downloadTempDir, baseUrl, accessToken, apiKey);
+    DefaultArtifactory artifactory = new DefaultArtifactory(downloadTempDir, baseUrl, accessToken, apiKey);
+    RetryPolicy.fromProperties(configuration::getString).ifPresent(artifactory::setRetryPolicy);
+    return artifactory;
   }
 
   @Override
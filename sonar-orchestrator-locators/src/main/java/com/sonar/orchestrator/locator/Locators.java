@@ -23,9 +23,24 @@ import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.config.FileSystem;
 import java.io.File;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Locators {
 
+  private static final Logger LOG = LoggerFactory.getLogger(Locators.class);
+  public static final int DEFAULT_PREFETCH_THREADS = 4;
+
   private final FileLocator fileLocator;
   private final MavenLocator mavenLocator;
   private final ResourceLocator resourceLocator;
@@ -69,6 +84,74 @@ public class Locators {
     return file;
   }
 
+  /**
+   * Locates the given artifacts in parallel, downloading them to the cache when needed, so that
+   * later calls to {@link #locate(Location)} are served locally. Progress is logged after each artifact.
+   *
+   * @return the located files, in the order of {@code locations}, keyed by {@link Location#toString()}. Locations are not
+   *         used as keys because {@link MavenLocation#equals(Object)} ignores the classifier.
+   * @throws IllegalStateException if at least one artifact can not be located. All the artifacts are
+   *                               processed before failing.
+   */
+  public Map<String, File> prefetch(Collection<? extends Location> locations) {
+    return prefetch(locations, DEFAULT_PREFETCH_THREADS);
+  }
+
+  public Map<String, File> prefetch(Collection<? extends Location> locations, int threads) {
+    // MavenLocation#equals() ignores the classifier
+    Map<String, Location> locationsByKey = new LinkedHashMap<>();
+    locations.forEach(location -> locationsByKey.putIfAbsent(location.toString(), location));
+    List<Location> distinctLocations = new ArrayList<>(locationsByKey.values());
+    Map<String, File> files = new LinkedHashMap<>();
+    if (distinctLocations.isEmpty()) {
+      return files;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(Math.max(threads, 1), distinctLocations.size()));
+    AtomicInteger done = new AtomicInteger();
+    long start = System.currentTimeMillis();
+    try {
+      Map<String, CompletableFuture<File>> futures = new LinkedHashMap<>();
+      for (Location location : distinctLocations) {
+        futures.put(location.toString(), CompletableFuture.supplyAsync(() -> prefetch(location, done, distinctLocations.size()), executor));
+      }
+      List<RuntimeException> failures = new ArrayList<>();
+      futures.forEach((key, future) -> {
+        try {
+          files.put(key, future.join());
+        } catch (CompletionException e) {
+          failures.add(e.getCause() instanceof RuntimeException cause ? cause : e);
+        }
+      });
+      if (!failures.isEmpty()) {
+        IllegalStateException exception = new IllegalStateException(
+          String.format("Fail to prefetch %d of %d artifacts", failures.size(), distinctLocations.size()), failures.get(0));
+        failures.stream().skip(1).forEach(exception::addSuppressed);
+        throw exception;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    LOG.info("Prefetched {} artifacts in {} ms", files.size(), System.currentTimeMillis() - start);
+    return files;
+  }
+
+  private File prefetch(Location location, AtomicInteger done, int total) {
+    long start = System.currentTimeMillis();
+    File file;
+    try {
+      file = locate(location);
+    } catch (RuntimeException e) {
+      LOG.warn("[{}/{}] Fail to prefetch {}: {}", done.incrementAndGet(), total, location, e.getMessage());
+      throw e;
+    }
+    if (file == null || !file.exists()) {
+      LOG.warn("[{}/{}] Fail to prefetch {}: not found", done.incrementAndGet(), total, location);
+      throw new IllegalStateException("Can not find " + location);
+    }
+    LOG.info("[{}/{}] Prefetched {} in {} ms", done.incrementAndGet(), total, location, System.currentTimeMillis() - start);
+    return file;
+  }
+
   private IllegalArgumentException throwNotSupported(Location location) {
     return new IllegalArgumentException("Unknown location type: " + location.getClass());
   }
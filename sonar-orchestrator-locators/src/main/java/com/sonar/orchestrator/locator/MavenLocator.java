@@ -38,19 +38,36 @@ import org.slf4j.LoggerFactory;
 public class MavenLocator implements Locator<MavenLocation> {
   private static final Logger LOG = LoggerFactory.getLogger(MavenLocator.class);
 
+  /**
+   * Artifacts located by all the locators of the JVM, keyed by their directory in cache. Concurrent
+   * requests of the same artifact (parallel test classes, parallel installs of plugins) wait for
+   * a single lookup and download.
+   */
+  private static final SingleFlight<Path, File> LOCATED_FILES = new SingleFlight<>(file -> file != null && file.exists());
+
   private final FileSystem fileSystem;
   private final Artifactory artifactory;
+  private final ArtifactStore store;
+  /**
+   * Version aliases are resolved once per locator, so that all the artifacts of a run
+   * share the same resolution and Artifactory is requested only once per alias.
+   */
+  private final SingleFlight<String, Optional<String>> resolvedVersions = new SingleFlight<>(Optional::isPresent);
 
   public MavenLocator(FileSystem fileSystem, Artifactory artifactory) {
     this.fileSystem = fileSystem;
     this.artifactory = artifactory;
+    this.store = new ArtifactStore(fileSystem);
   }
 
   private static String pathInMavenLocalRepository(MavenLocation location) {
     return Strings.CS.replace(location.getGroupId(), ".", "/") + "/" + location.getArtifactId() + "/" + location.getVersion() + "/" + location.getFilename();
   }
 
-  static String cacheKeyOf(MavenLocation location) {
+  /**
+   * Name of the directory of {@link FileSystem#getCacheDir()} that contains the artifact
+   */
+  public static String cacheKeyOf(MavenLocation location) {
     return DigestUtils.md5Hex(location.toString());
   }
 
@@ -58,7 +75,8 @@ public class MavenLocator implements Locator<MavenLocation> {
   public File locate(MavenLocation location) {
     // resolve the version alias if needed (requires to be online)
     MavenLocation resolvedLocation = resolveLocation(location);
-    return locateResolvedVersion(resolvedLocation);
+    Path cachedDir = fileSystem.getCacheDir().resolve(cacheKeyOf(resolvedLocation));
+    return LOCATED_FILES.get(cachedDir, () -> locateResolvedVersion(resolvedLocation));
   }
 
   @Nullable
@@ -88,11 +106,20 @@ public class MavenLocator implements Locator<MavenLocation> {
       return null;
     }
     Path cachedFile = cachedDir.resolve(resolvedLocation.getFilename());
-    boolean found = artifactory.downloadToFile(resolvedLocation, cachedFile.toFile());
-    return found ? cachedFile.toFile() : null;
+    if (!artifactory.downloadToFile(resolvedLocation, cachedFile.toFile())) {
+      return null;
+    }
+    // the cache entry becomes a hard link to the content-addressed blob
+    store.add(cachedFile);
+    return cachedFile.toFile();
   }
 
-  private MavenLocation resolveLocation(MavenLocation location) {
+  /**
+   * Same location with the version alias, if any, replaced by the resolved version
+   *
+   * @throws IllegalStateException if the alias can not be resolved
+   */
+  public MavenLocation resolveLocation(MavenLocation location) {
     Optional<String> version = resolveVersion(location);
     if (!version.isPresent()) {
       throw new IllegalStateException("Version can not be resolved: " + location);
@@ -110,7 +137,7 @@ public class MavenLocator implements Locator<MavenLocation> {
   }
 
   public Optional<String> resolveVersion(MavenLocation location) {
-    return artifactory.resolveVersion(location);
+    return resolvedVersions.get(location.toString(), () -> artifactory.resolveVersion(location));
   }
 
   @CheckForNull
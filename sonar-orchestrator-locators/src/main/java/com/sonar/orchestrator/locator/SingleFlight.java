@@ -0,0 +1,92 @@
+/*
+ * Orchestrator Locators
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.locator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+
+/**
+ * Deduplicates concurrent loads of the same key: the first caller runs the loader, the others wait
+ * for its result and get it, whatever it is. Results accepted by the {@code reusable} predicate are kept
+ * for the lifetime of the instance, others (for example "not found") are dropped so that the next caller
+ * loads again. A kept result is checked again when it's requested later, for example because the cached
+ * file may have been deleted meanwhile.
+ */
+class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+  private final Predicate<V> reusable;
+
+  SingleFlight(Predicate<V> reusable) {
+    this.reusable = reusable;
+  }
+
+  @CheckForNull
+  V get(K key, Supplier<V> loader) {
+    while (true) {
+      CompletableFuture<V> flight = new CompletableFuture<>();
+      CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+      if (existing == null) {
+        return load(key, flight, loader);
+      }
+      if (!existing.isDone()) {
+        // the caller awaited this flight, so it gets its result even if it's not reusable
+        return await(existing);
+      }
+      V value = await(existing);
+      if (reusable.test(value)) {
+        return value;
+      }
+      // result is not reusable anymore (for example cached file has been deleted), load again
+      flights.remove(key, existing);
+    }
+  }
+
+  private V load(K key, CompletableFuture<V> flight, Supplier<V> loader) {
+    try {
+      V value = loader.get();
+      if (!reusable.test(value)) {
+        flights.remove(key, flight);
+      }
+      flight.complete(value);
+      return value;
+    } catch (RuntimeException e) {
+      flights.remove(key, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private static <V> V await(CompletableFuture<V> flight) {
+    try {
+      return flight.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
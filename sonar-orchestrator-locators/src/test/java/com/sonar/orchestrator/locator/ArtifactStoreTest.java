@@ -0,0 +1,103 @@
+/*
+ * Orchestrator Locators
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.locator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArtifactStoreTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ArtifactStore underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    underTest = new ArtifactStore(temp.newFolder("store").toPath(), temp.newFolder("tmp").toPath());
+  }
+
+  @Test
+  public void blob_is_named_by_sha256_of_content() throws IOException {
+    Path file = newFile("foo.jar", "content");
+    String sha256 = DigestUtils.sha256Hex("content");
+
+    Path blob = underTest.add(file).orElseThrow();
+
+    assertThat(blob.getFileName()).hasToString(sha256);
+    assertThat(blob.getParent().getFileName()).hasToString(sha256.substring(0, 2));
+    assertThat(Files.isSameFile(blob, file)).isTrue();
+    assertThat(underTest.get(sha256)).contains(blob);
+    assertThat(underTest.verify(blob)).isTrue();
+  }
+
+  @Test
+  public void same_content_is_stored_once() throws IOException {
+    Path file1 = newFile("foo.jar", "content");
+    Path file2 = newFile("bar.jar", "content");
+
+    Path blob1 = underTest.add(file1).orElseThrow();
+    Path blob2 = underTest.add(file2).orElseThrow();
+
+    assertThat(blob1).isEqualTo(blob2);
+    assertThat(Files.isSameFile(file1, file2)).isTrue();
+    assertThat(file2).hasContent("content");
+    assertThat(temp.getRoot().toPath().resolve("tmp")).isEmptyDirectory();
+  }
+
+  @Test
+  public void different_contents_are_stored_separately() throws IOException {
+    Path blob1 = underTest.add(newFile("foo.jar", "content1")).orElseThrow();
+    Path blob2 = underTest.add(newFile("bar.jar", "content2")).orElseThrow();
+
+    assertThat(blob1).isNotEqualTo(blob2);
+  }
+
+  @Test
+  public void verify_detects_corrupted_blob() throws IOException {
+    Path blob = underTest.add(newFile("foo.jar", "content")).orElseThrow();
+
+    FileUtils.write(blob.toFile(), "corrupted", StandardCharsets.UTF_8);
+
+    assertThat(underTest.verify(blob)).isFalse();
+  }
+
+  @Test
+  public void get_returns_empty_if_blob_does_not_exist() {
+    assertThat(underTest.get(DigestUtils.sha256Hex("unknown"))).isEmpty();
+  }
+
+  private Path newFile(String name, String content) throws IOException {
+    File file = new File(temp.newFolder(), name);
+    FileUtils.write(file, content, StandardCharsets.UTF_8);
+    return file.toPath();
+  }
+}
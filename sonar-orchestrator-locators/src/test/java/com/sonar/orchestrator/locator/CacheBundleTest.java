@@ -0,0 +1,223 @@
+/*
+ * Orchestrator Locators
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.locator;
+
+import com.sonar.orchestrator.config.FileSystem;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CacheBundleTest {
+
+  private static final MavenLocation PLUGIN = MavenLocation.of("org.foo", "foo-plugin", "1.0");
+  private static final MavenLocation PLUGIN_ALIAS = MavenLocation.of("org.foo", "foo-plugin", "LATEST_RELEASE");
+  private static final MavenLocation ZIP = MavenLocation.builder().setKey("org.foo", "foo", "2.0").setClassifier("linux").withPackaging("zip").build();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final FileSystem fileSystem = mock(FileSystem.class);
+  private final Locators locators = mock(Locators.class, Mockito.RETURNS_DEEP_STUBS);
+  private Path cacheDir;
+  private Path workspace;
+  private CacheBundle underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDir = temp.newFolder("cache").toPath();
+    workspace = temp.newFolder("workspace").toPath();
+    when(fileSystem.getCacheDir()).thenReturn(cacheDir);
+    when(fileSystem.workspace()).thenReturn(workspace);
+    when(fileSystem.getTempDir()).thenReturn(temp.newFolder("tmp").toPath());
+    when(fileSystem.getStoreDir()).thenReturn(temp.newFolder("store").toPath());
+    when(locators.maven().resolveLocation(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(locators.maven().resolveLocation(PLUGIN_ALIAS)).thenReturn(PLUGIN);
+    underTest = new CacheBundle(fileSystem, locators);
+  }
+
+  @Test
+  public void export_and_restore_cache_and_workspace() throws IOException {
+    Path plugin = addToCache(PLUGIN, "plugin");
+    Path zip = addToCache(ZIP, "zip");
+    Path script = workspace.resolve("sonar-scanner-1.0/bin/sonar-scanner");
+    Files.createDirectories(script.getParent());
+    Files.writeString(script, "#!/bin/sh");
+    script.toFile().setExecutable(true);
+    prepareLocate(Map.of(PLUGIN, plugin, ZIP, zip));
+    Path archive = temp.getRoot().toPath().resolve("bundle.zip");
+
+    CacheBundle.Manifest exported = underTest.export(List.of(PLUGIN, ZIP), List.of("sonar-scanner-1.0", "missing"), archive);
+
+    assertThat(exported.getEntries()).extracting(CacheBundle.Entry::getPath).containsExactlyInAnyOrder(
+      "cache/" + MavenLocator.cacheKeyOf(PLUGIN) + "/foo-plugin-1.0.jar",
+      "cache/" + MavenLocator.cacheKeyOf(ZIP) + "/foo-2.0-linux.zip",
+      "workspace/sonar-scanner-1.0/bin/sonar-scanner");
+    assertThat(exported.getFingerprint()).isEqualTo(underTest.fingerprint(List.of(ZIP, PLUGIN)));
+
+    deleteContent(cacheDir);
+    deleteContent(workspace);
+    CacheBundle.Manifest restored = underTest.restore(archive, exported.getFingerprint());
+
+    assertThat(restored.getEntries()).hasSize(3);
+    assertThat(plugin).hasContent("plugin");
+    assertThat(zip).hasContent("zip");
+    assertThat(script).hasContent("#!/bin/sh");
+    assertThat(Files.isExecutable(script)).isTrue();
+  }
+
+  @Test
+  public void files_outside_cache_are_not_exported() throws IOException {
+    File localFile = temp.newFile("local.jar");
+    FileLocation location = FileLocation.of(localFile);
+    prepareLocate(Map.of(location, localFile));
+
+    CacheBundle.Manifest manifest = underTest.export(List.of(location), List.of(), temp.getRoot().toPath().resolve("bundle.zip"));
+
+    assertThat(manifest.getEntries()).isEmpty();
+  }
+
+  @Test
+  public void fail_to_export_directory_outside_workspace() {
+    prepareLocate(Map.of());
+
+    assertThatThrownBy(() -> underTest.export(List.of(), List.of("../cache"), temp.getRoot().toPath().resolve("bundle.zip")))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining("Directory must be inside the workspace");
+  }
+
+  @Test
+  public void fail_to_restore_bundle_with_different_fingerprint() throws IOException {
+    Path archive = export(PLUGIN);
+
+    assertThatThrownBy(() -> underTest.restore(archive, "other"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("expected other");
+  }
+
+  @Test
+  public void fail_to_restore_corrupted_file() throws IOException {
+    String path = "cache/" + MavenLocator.cacheKeyOf(PLUGIN) + "/foo-plugin-1.0.jar";
+    Path archive = writeArchive(manifest(path, DigestUtils.sha256Hex("plugin"), 6), path, "corrupted");
+
+    assertThatThrownBy(() -> underTest.restore(archive, null))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Cache bundle is corrupted, checksum does not match for " + path);
+    assertThat(cacheDir).isEmptyDirectory();
+  }
+
+  @Test
+  public void fail_to_restore_file_outside_target_directory() throws IOException {
+    String path = "cache/../evil.sh";
+    Path archive = writeArchive(manifest(path, DigestUtils.sha256Hex("evil"), 4), path, "evil");
+
+    assertThatThrownBy(() -> underTest.restore(archive, null))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Restoring a file outside the target directory is not allowed: " + path);
+  }
+
+  @Test
+  public void restore_does_not_overwrite_up_to_date_files() throws IOException {
+    Path archive = export(PLUGIN);
+    Path plugin = cacheDir.resolve(MavenLocator.cacheKeyOf(PLUGIN)).resolve(PLUGIN.getFilename());
+    long lastModified = plugin.toFile().lastModified() - 10_000L;
+    plugin.toFile().setLastModified(lastModified);
+
+    underTest.restore(archive, null);
+
+    assertThat(plugin.toFile().lastModified()).isEqualTo(lastModified);
+  }
+
+  @Test
+  public void write_and_read_lockfile() throws IOException {
+    Path lockfile = temp.getRoot().toPath().resolve("orchestrator.lock");
+
+    underTest.writeLockfile(List.of(PLUGIN_ALIAS, ZIP, FileLocation.of("local.jar")), lockfile);
+
+    assertThat(Files.readAllLines(lockfile)).containsExactly("# Generated by Orchestrator. Do not edit.", "org.foo:foo-plugin:1.0:jar", "org.foo:foo:2.0:linux:zip");
+    assertThat(CacheBundle.readLockfile(lockfile)).extracting(MavenLocation::toString)
+      .containsExactly(PLUGIN.toString(), ZIP.toString());
+  }
+
+  @Test
+  public void fingerprint_resolves_aliases_and_ignores_order() {
+    assertThat(underTest.fingerprint(List.of(PLUGIN_ALIAS, ZIP))).isEqualTo(underTest.fingerprint(List.of(ZIP, PLUGIN)));
+    assertThat(underTest.fingerprint(List.of(PLUGIN))).isNotEqualTo(underTest.fingerprint(List.of(ZIP)));
+  }
+
+  private Path export(MavenLocation location) throws IOException {
+    Path file = addToCache(location, location.toString());
+    prepareLocate(Map.of(location, file));
+    Path archive = temp.getRoot().toPath().resolve("bundle.zip");
+    underTest.export(List.of(location), List.of(), archive);
+    return archive;
+  }
+
+  private void prepareLocate(Map<? extends Location, ?> files) {
+    Map<String, File> result = new LinkedHashMap<>();
+    files.forEach((location, file) -> result.put(location.toString(), file instanceof Path path ? path.toFile() : (File) file));
+    when(locators.prefetch(any())).thenReturn(result);
+  }
+
+  private Path addToCache(MavenLocation location, String content) throws IOException {
+    Path file = cacheDir.resolve(MavenLocator.cacheKeyOf(location)).resolve(location.getFilename());
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+    return file;
+  }
+
+  private static String manifest(String path, String sha256, long size) {
+    return "{\"formatVersion\":1,\"fingerprint\":\"abc\",\"entries\":[{\"path\":\"" + path + "\",\"sha256\":\"" + sha256 + "\",\"size\":" + size + "}]}";
+  }
+
+  private Path writeArchive(String manifest, String path, String content) throws IOException {
+    Path archive = temp.newFile().toPath();
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+      zip.putNextEntry(new ZipEntry(CacheBundle.MANIFEST));
+      zip.write(manifest.getBytes(UTF_8));
+      zip.putNextEntry(new ZipEntry(path));
+      zip.write(content.getBytes(UTF_8));
+    }
+    return archive;
+  }
+
+  private static void deleteContent(Path dir) throws IOException {
+    FileUtils.cleanDirectory(dir.toFile());
+  }
+}
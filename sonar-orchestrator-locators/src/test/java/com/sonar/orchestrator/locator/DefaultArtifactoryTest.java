@@ -384,6 +384,9 @@ public class DefaultArtifactoryTest {
 
   @Test
   public void resolveVersion_throws_ISE_on_response_error() throws Exception {
+    // one response per attempt of the default retry policy
+    prepareResponseError(502);
+    prepareResponseError(502);
     prepareResponseError(502);
     Configuration configuration = newConfiguration()
       .build();
@@ -403,6 +406,22 @@ public class DefaultArtifactoryTest {
     DefaultArtifactory.create(configuration).resolveVersion(MavenLocation.of("org.sonarsource.sonarqube", "sonar-plugin-api", "LATEST_RELEASE"));
   }
 
+  @Test
+  public void resolveVersion_retries_transient_response_errors() {
+    prepareResponseError(503);
+    prepareResponseError(502);
+    prepareVersions("7.1.0.1000", "7.2.1.1500");
+    Configuration configuration = newConfiguration()
+      .setProperty("orchestrator.http.retry.initialBackoffMs", "1")
+      .build();
+
+    Optional<String> version = DefaultArtifactory.create(configuration)
+      .resolveVersion(MavenLocation.of("org.sonarsource.sonarqube", "sonar-plugin-api", "LATEST_RELEASE"));
+
+    assertThat(version).hasValue("7.2.1.1500");
+    assertThat(mockWebServerRule.getServer().getRequestCount()).isEqualTo(3);
+  }
+
   private void verifyVersionsRequest(String groupId, String artifactId, String versionLayout, String repositories) throws InterruptedException {
     RecordedRequest request = mockWebServerRule.getServer().takeRequest();
     assertThat(request.getTarget()).isEqualTo("/api/search/versions?g=" + groupId + "&a=" + artifactId + "&remote=1&repos=" + repositories + "&v=" + versionLayout);
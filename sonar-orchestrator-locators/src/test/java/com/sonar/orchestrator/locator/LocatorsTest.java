@@ -21,14 +21,26 @@ package com.sonar.orchestrator.locator;
 
 import com.sonar.orchestrator.config.FileSystem;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class LocatorsTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   FileLocator fileLocator = mock(FileLocator.class);
   MavenLocator mavenLocator = mock(MavenLocator.class);
   ResourceLocator resourceLocator = mock(ResourceLocator.class);
@@ -248,6 +260,62 @@ public class LocatorsTest {
     locators.openInputStream(new UnsupportedLocation());
   }
 
+  // Prefetch
+
+  @Test
+  public void should_prefetch_all_locations_in_order() throws IOException {
+    MavenLocation location1 = MavenLocation.of("org.foo", "foo", "1.0");
+    MavenLocation location2 = MavenLocation.of("org.foo", "bar", "1.0");
+    FileLocation location3 = FileLocation.of(temp.newFile());
+    File file1 = temp.newFile();
+    File file2 = temp.newFile();
+    when(mavenLocator.locate(location1)).thenReturn(file1);
+    when(mavenLocator.locate(location2)).thenReturn(file2);
+    when(fileLocator.locate(location3)).thenReturn(location3.getFile());
+
+    Map<String, File> files = locators.prefetch(List.of(location1, location2, location3, location1));
+
+    assertThat(files).containsExactly(Map.entry(location1.toString(), file1), Map.entry(location2.toString(), file2),
+      Map.entry(location3.toString(), location3.getFile()));
+    verify(mavenLocator, times(1)).locate(location1);
+  }
+
+  @Test
+  public void should_prefetch_artifacts_differing_only_by_classifier() throws IOException {
+    MavenLocation jar = MavenLocation.create("org.foo", "foo", "1.0");
+    MavenLocation sources = MavenLocation.create("org.foo", "foo", "1.0", "sources");
+    File jarFile = temp.newFile();
+    File sourcesFile = temp.newFile();
+    // MavenLocation#equals() ignores the classifier
+    when(mavenLocator.locate(any(MavenLocation.class)))
+      .thenAnswer(invocation -> "sources".equals(invocation.<MavenLocation>getArgument(0).getClassifier()) ? sourcesFile : jarFile);
+
+    Map<String, File> files = locators.prefetch(List.of(jar, sources));
+
+    assertThat(files).containsExactly(Map.entry(jar.toString(), jarFile), Map.entry(sources.toString(), sourcesFile));
+  }
+
+  @Test
+  public void should_prefetch_all_locations_before_failing() throws IOException {
+    MavenLocation missing = MavenLocation.of("org.foo", "missing", "1.0");
+    MavenLocation failing = MavenLocation.of("org.foo", "failing", "1.0");
+    MavenLocation found = MavenLocation.of("org.foo", "found", "1.0");
+    when(mavenLocator.locate(failing)).thenThrow(new IllegalStateException("Download failed"));
+    when(mavenLocator.locate(found)).thenReturn(temp.newFile());
+
+    assertThatThrownBy(() -> locators.prefetch(List.of(missing, failing, found), 1))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to prefetch 2 of 3 artifacts")
+      .hasRootCauseMessage("Can not find [org.foo:missing:1.0:jar]")
+      .satisfies(e -> assertThat(e.getSuppressed()).extracting(Throwable::getMessage).containsExactly("Download failed"));
+    verify(mavenLocator).locate(found);
+  }
+
+  @Test
+  public void should_prefetch_nothing() {
+    assertThat(locators.prefetch(List.of())).isEmpty();
+  }
+
   private static class UnsupportedLocation implements Location {
   }
 }
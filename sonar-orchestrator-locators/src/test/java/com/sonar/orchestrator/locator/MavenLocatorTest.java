@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Optional;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -41,14 +42,17 @@ public class MavenLocatorTest {
 
   private final FileSystem fileSystem = Mockito.mock(FileSystem.class, Mockito.RETURNS_DEEP_STUBS);
   private final Artifactory artifactory = Mockito.mock(Artifactory.class, Mockito.RETURNS_DEEP_STUBS);
-  private final MavenLocator underTest = new MavenLocator(fileSystem, artifactory);
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
+  private MavenLocator underTest;
 
   @Before
   public void setUp() throws Exception {
     File cacheDir = temp.newFolder();
     Mockito.when(fileSystem.getCacheDir()).thenReturn(cacheDir.toPath());
+    Mockito.when(fileSystem.getStoreDir()).thenReturn(temp.newFolder().toPath());
+    Mockito.when(fileSystem.getTempDir()).thenReturn(temp.newFolder().toPath());
+    underTest = new MavenLocator(fileSystem, artifactory);
   }
 
   @Test
@@ -107,6 +111,43 @@ public class MavenLocatorTest {
     assertThat(file.getAbsolutePath()).startsWith(fileSystem.getCacheDir().toFile().getCanonicalPath());
   }
 
+  @Test
+  public void locate_downloads_and_resolves_alias_only_once() {
+    Mockito.when(artifactory.resolveVersion(ArgumentMatchers.any())).thenReturn(Optional.of("1.1"));
+    Mockito.when(artifactory.downloadToFile(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer((Answer<Boolean>) invocationOnMock -> {
+      File file = (File) invocationOnMock.getArguments()[1];
+      FileUtils.write(file, "content of file", StandardCharsets.UTF_8);
+      return true;
+    });
+    MavenLocation location = MavenLocation.of("foo", "bar", "LATEST_RELEASE");
+
+    File first = underTest.locate(location);
+    File second = underTest.locate(location);
+
+    assertThat(first).exists().hasName("bar-1.1.jar");
+    assertThat(second).isEqualTo(first);
+    Mockito.verify(artifactory, Mockito.times(1)).resolveVersion(location);
+    Mockito.verify(artifactory, Mockito.times(1)).downloadToFile(ArgumentMatchers.any(), ArgumentMatchers.any());
+  }
+
+  @Test
+  public void downloaded_files_are_deduplicated_in_store() throws Exception {
+    Mockito.when(artifactory.downloadToFile(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer((Answer<Boolean>) invocationOnMock -> {
+      File file = (File) invocationOnMock.getArguments()[1];
+      FileUtils.write(file, "same content", StandardCharsets.UTF_8);
+      return true;
+    });
+
+    File jar = underTest.locateResolvedVersion(MavenLocation.of("foo", "bar", "1.1"));
+    File sources = underTest.locateResolvedVersion(MavenLocation.create("foo", "bar", "1.1", "sources"));
+
+    assertThat(jar).isNotEqualTo(sources);
+    assertThat(sources).usingCharset(StandardCharsets.UTF_8).hasContent("same content");
+    assertThat(Files.isSameFile(jar.toPath(), sources.toPath())).isTrue();
+    ArtifactStore store = new ArtifactStore(fileSystem);
+    assertThat(store.get(ArtifactStore.sha256(jar.toPath()))).isPresent();
+  }
+
   private void verifyEmptyCache() {
     assertThat(fileSystem.getCacheDir()).isEmptyDirectory();
   }
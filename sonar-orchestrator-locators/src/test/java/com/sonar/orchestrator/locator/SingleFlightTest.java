@@ -0,0 +1,137 @@
+/*
+ * Orchestrator Locators
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.locator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+
+  private final SingleFlight<String, String> underTest = new SingleFlight<>(Objects::nonNull);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void concurrent_callers_share_a_single_load() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      results.add(executor.submit(() -> underTest.get("key", () -> {
+        loading.countDown();
+        await(release);
+        return "value" + loads.incrementAndGet();
+      })));
+      loading.await(10, TimeUnit.SECONDS);
+      for (int i = 0; i < 3; i++) {
+        results.add(executor.submit(() -> underTest.get("key", () -> "value" + loads.incrementAndGet())));
+      }
+      release.countDown();
+
+      for (Future<String> result : results) {
+        assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("value1");
+      }
+      assertThat(loads).hasValue(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void concurrent_callers_share_a_result_that_is_not_reusable() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> results = Collections.synchronizedList(new ArrayList<>());
+    Thread loader = new Thread(() -> results.add(underTest.get("key", () -> {
+      loading.countDown();
+      await(release);
+      loads.incrementAndGet();
+      return null;
+    })));
+    loader.start();
+    loading.await(10, TimeUnit.SECONDS);
+    List<Thread> waiters = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Thread waiter = new Thread(() -> results.add(underTest.get("key", () -> "value" + loads.incrementAndGet())));
+      waiter.start();
+      waiters.add(waiter);
+    }
+    for (Thread waiter : waiters) {
+      while (waiter.getState() != Thread.State.WAITING) {
+        Thread.sleep(1L);
+      }
+    }
+    release.countDown();
+    loader.join();
+    for (Thread waiter : waiters) {
+      waiter.join();
+    }
+
+    assertThat(results).hasSize(4).containsOnlyNulls();
+    assertThat(loads).hasValue(1);
+    // not cached for the next callers
+    assertThat(underTest.get("key", () -> "value" + loads.incrementAndGet())).isEqualTo("value2");
+  }
+
+  @Test
+  public void reusable_results_are_cached() {
+    assertThat(underTest.get("key", () -> "value" + loads.incrementAndGet())).isEqualTo("value1");
+    assertThat(underTest.get("key", () -> "value" + loads.incrementAndGet())).isEqualTo("value1");
+    assertThat(underTest.get("other", () -> "value" + loads.incrementAndGet())).isEqualTo("value2");
+  }
+
+  @Test
+  public void results_that_are_not_reusable_are_not_cached() {
+    assertThat(underTest.get("key", () -> {
+      loads.incrementAndGet();
+      return null;
+    })).isNull();
+    assertThat(underTest.get("key", () -> "value" + loads.incrementAndGet())).isEqualTo("value2");
+  }
+
+  @Test
+  public void failures_are_not_cached() {
+    assertThatThrownBy(() -> underTest.get("key", () -> {
+      throw new IllegalStateException("boom");
+    })).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+
+    assertThat(underTest.get("key", () -> "value")).isEqualTo("value");
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Orchestrator Mirror
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.mirror;
+
+import com.sonar.orchestrator.config.Configuration;
+import com.sonar.orchestrator.config.FileSystem;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP server that exposes the Orchestrator cache and the Maven local repository with the layout of
+ * a Maven repository. Setting the property {@code orchestrator.artifactory.url} to {@link #getUrl()}
+ * allows to run Orchestrator offline, or to feed several agents from a single machine with a warm cache.
+ * <p>
+ * Standalone usage:
+ * <pre>
+ *   java -Dorchestrator.mirror.port=8081 -cp ... com.sonar.orchestrator.mirror.ArtifactMirror
+ * </pre>
+ * The server listens on the loopback address by default. The property {@code orchestrator.mirror.host} must be
+ * set explicitly, for example to {@code 0.0.0.0}, to expose the cache to other machines.
+ */
+public class ArtifactMirror implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ArtifactMirror.class);
+  private static final String LOOPBACK_HOST = InetAddress.getLoopbackAddress().getHostAddress();
+
+  private final CachedArtifacts artifacts;
+  @CheckForNull
+  private HttpServer server;
+  @CheckForNull
+  private ExecutorService executor;
+
+  public ArtifactMirror(FileSystem fileSystem) {
+    this(new CachedArtifacts(fileSystem.getCacheDir(), fileSystem.mavenLocalRepository()));
+  }
+
+  ArtifactMirror(CachedArtifacts artifacts) {
+    this.artifacts = artifacts;
+  }
+
+  public static void main(String[] args) {
+    Configuration config = Configuration.createEnv();
+    String host = config.getString("orchestrator.mirror.host", LOOPBACK_HOST);
+    int port = config.getInt("orchestrator.mirror.port", 8081);
+    ArtifactMirror mirror = new ArtifactMirror(config.fileSystem()).start(new InetSocketAddress(host, port));
+    Runtime.getRuntime().addShutdownHook(new Thread(mirror::stop));
+  }
+
+  /**
+   * Starts the server on a random port of the loopback address
+   */
+  public ArtifactMirror start() {
+    return start(new InetSocketAddress("localhost", 0));
+  }
+
+  public synchronized ArtifactMirror start(InetSocketAddress address) {
+    if (server != null) {
+      throw new IllegalStateException("Artifact mirror is already started");
+    }
+    try {
+      server = HttpServer.create(address, 0);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to start artifact mirror on " + address, e);
+    }
+    executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.createContext("/", new MirrorHandler(artifacts));
+    server.start();
+    LOG.info("Artifact mirror is listening on {}", getUrl());
+    return this;
+  }
+
+  /**
+   * Base URL of the mirror, for example {@code "http://localhost:8081"}
+   */
+  public synchronized String getUrl() {
+    if (server == null) {
+      throw new IllegalStateException("Artifact mirror is not started");
+    }
+    InetSocketAddress address = server.getAddress();
+    String host = address.getAddress().isAnyLocalAddress() ? "localhost" : address.getHostString();
+    return "http://" + host + ":" + address.getPort();
+  }
+
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop(0);
+      server = null;
+    }
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    stop();
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Orchestrator Mirror
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.mirror;
+
+import com.sonar.orchestrator.locator.MavenLocation;
+import com.sonar.orchestrator.locator.MavenLocator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.artifact.versioning.ComparableVersion;
+
+/**
+ * Read-only view of the artifacts available in the Orchestrator cache and in the Maven local repository.
+ * <p>
+ * Directories of the cache are named by the hash of the Maven coordinates (see {@link MavenLocator#cacheKeyOf(MavenLocation)}).
+ * Coordinates are guessed from the name of the cached file, then confirmed by computing the hash again.
+ */
+class CachedArtifacts {
+
+  private final Path cacheDir;
+  @Nullable
+  private final Path mavenLocalRepository;
+
+  CachedArtifacts(Path cacheDir, @Nullable Path mavenLocalRepository) {
+    this.cacheDir = cacheDir;
+    this.mavenLocalRepository = mavenLocalRepository;
+  }
+
+  Optional<Path> find(String groupId, String artifactId, String version, String filename) {
+    for (MavenLocation candidate : guessLocations(groupId, artifactId, filename)) {
+      if (candidate.getVersion().equals(version)) {
+        Optional<Path> cached = findInCache(candidate);
+        if (cached.isPresent()) {
+          return cached;
+        }
+      }
+    }
+    return resolveInLocalRepository(groupId, artifactId, version, filename).filter(Files::isRegularFile);
+  }
+
+  /**
+   * Released versions of the artifact, sorted from the oldest to the latest.
+   */
+  List<String> versions(String groupId, String artifactId) {
+    Set<ComparableVersion> versions = new TreeSet<>();
+    listCachedFiles().forEach(file -> guessLocations(groupId, artifactId, file.getFileName().toString()).stream()
+      .filter(location -> MavenLocator.cacheKeyOf(location).equals(file.getParent().getFileName().toString()))
+      .forEach(location -> versions.add(new ComparableVersion(location.getVersion()))));
+    versions.addAll(versionsInLocalRepository(groupId, artifactId));
+    return versions.stream()
+      .map(ComparableVersion::toString)
+      .filter(v -> !v.endsWith("-SNAPSHOT"))
+      .toList();
+  }
+
+  private Optional<Path> findInCache(MavenLocation location) {
+    Path file = cacheDir.resolve(MavenLocator.cacheKeyOf(location)).resolve(location.getFilename()).normalize();
+    return file.startsWith(cacheDir.normalize()) && Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+  }
+
+  /**
+   * Path of a file or directory of the Maven local repository. Empty if the repository is not defined or if the
+   * coordinates are not plain names, for example ".." that would allow to read any file of the machine.
+   */
+  private Optional<Path> resolveInLocalRepository(String groupId, String... segments) {
+    if (mavenLocalRepository == null
+      || !Arrays.stream(groupId.split("\\.", -1)).allMatch(CachedArtifacts::isSafeSegment)
+      || !Arrays.stream(segments).allMatch(CachedArtifacts::isSafeSegment)) {
+      return Optional.empty();
+    }
+    Path root = mavenLocalRepository.normalize();
+    Path path = root.resolve(groupId.replace('.', '/'));
+    for (String segment : segments) {
+      path = path.resolve(segment);
+    }
+    path = path.normalize();
+    return path.startsWith(root) ? Optional.of(path) : Optional.empty();
+  }
+
+  /**
+   * A segment of URL or of coordinates that can safely be used as a file name
+   */
+  static boolean isSafeSegment(String segment) {
+    return !segment.isEmpty()
+      && !".".equals(segment)
+      && !"..".equals(segment)
+      && segment.indexOf('/') < 0
+      && segment.indexOf('\\') < 0;
+  }
+
+  private List<Path> listCachedFiles() {
+    if (!Files.isDirectory(cacheDir)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.find(cacheDir, 2, (path, attributes) -> attributes.isRegularFile() && !path.getParent().equals(cacheDir))) {
+      return files.toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to list cache " + cacheDir, e);
+    }
+  }
+
+  private List<ComparableVersion> versionsInLocalRepository(String groupId, String artifactId) {
+    Path artifactDir = resolveInLocalRepository(groupId, artifactId).orElse(null);
+    if (artifactDir == null || !Files.isDirectory(artifactDir)) {
+      return List.of();
+    }
+    try (Stream<Path> dirs = Files.list(artifactDir)) {
+      return dirs.filter(Files::isDirectory)
+        .map(dir -> dir.getFileName().toString())
+        .map(ComparableVersion::new)
+        .toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to list versions in " + artifactDir, e);
+    }
+  }
+
+  /**
+   * Candidate coordinates of a file named {@code <artifactId>-<version>[-<classifier>].<packaging>}.
+   * As both version and classifier may contain dashes, all the splits are returned.
+   */
+  static List<MavenLocation> guessLocations(String groupId, String artifactId, String filename) {
+    String prefix = artifactId + "-";
+    int extension = filename.lastIndexOf('.');
+    if (!filename.startsWith(prefix) || extension <= prefix.length()) {
+      return List.of();
+    }
+    String packaging = filename.substring(extension + 1);
+    String versionAndClassifier = filename.substring(prefix.length(), extension);
+    List<MavenLocation> locations = new ArrayList<>();
+    locations.add(newLocation(groupId, artifactId, versionAndClassifier, null, packaging));
+    for (int dash = versionAndClassifier.indexOf('-'); dash > 0; dash = versionAndClassifier.indexOf('-', dash + 1)) {
+      String classifier = versionAndClassifier.substring(dash + 1);
+      if (!StringUtils.isEmpty(classifier)) {
+        locations.add(newLocation(groupId, artifactId, versionAndClassifier.substring(0, dash), classifier, packaging));
+      }
+    }
+    return locations;
+  }
+
+  private static MavenLocation newLocation(String groupId, String artifactId, String version, @Nullable String classifier, String packaging) {
+    return MavenLocation.builder()
+      .setGroupId(groupId)
+      .setArtifactId(artifactId)
+      .setVersion(version)
+      .setClassifier(classifier)
+      .withPackaging(packaging)
+      .build();
+  }
+}
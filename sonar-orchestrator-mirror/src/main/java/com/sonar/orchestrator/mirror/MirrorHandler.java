@@ -0,0 +1,216 @@
+/*
+ * Orchestrator Mirror
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.mirror;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.net.HttpURLConnection.HTTP_BAD_METHOD;
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serves the artifacts with the URL layout expected by {@link com.sonar.orchestrator.locator.Artifactory}:
+ * <ul>
+ *   <li>{@code [/<repository>]/<group path>/<artifactId>/<version>/<filename>} to download an artifact. The optional
+ *   repository segment (for example {@code sonarsource}) is ignored.</li>
+ *   <li>{@code <group path>/<artifactId>/maven-metadata.xml}, requested by {@link com.sonar.orchestrator.locator.MavenVersionResolver}</li>
+ *   <li>{@code api/search/versions?g=<groupId>&a=<artifactId>&v=<prefix>*}, requested by
+ *   {@link com.sonar.orchestrator.locator.DefaultArtifactory}</li>
+ * </ul>
+ */
+class MirrorHandler implements HttpHandler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MirrorHandler.class);
+  private static final String MAVEN_METADATA_XML = "maven-metadata.xml";
+  private static final String SEARCH_VERSIONS = "api/search/versions";
+
+  private final CachedArtifacts artifacts;
+
+  MirrorHandler(CachedArtifacts artifacts) {
+    this.artifacts = artifacts;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    try {
+      String method = exchange.getRequestMethod();
+      if (!"GET".equals(method) && !"HEAD".equals(method)) {
+        sendEmpty(exchange, HTTP_BAD_METHOD);
+        return;
+      }
+      String path = StringUtils.strip(exchange.getRequestURI().getPath(), "/");
+      if (path.endsWith(SEARCH_VERSIONS)) {
+        searchVersions(exchange);
+      } else if (path.endsWith("/" + MAVEN_METADATA_XML)) {
+        mavenMetadata(exchange, path);
+      } else {
+        download(exchange, path);
+      }
+    } catch (RuntimeException e) {
+      LOG.warn("Fail to serve {}", exchange.getRequestURI(), e);
+      if (exchange.getResponseCode() == -1) {
+        sendEmpty(exchange, HTTP_BAD_REQUEST);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void download(HttpExchange exchange, String path) throws IOException {
+    List<String> segments = Arrays.asList(path.split("/", -1));
+    if (!segments.stream().allMatch(CachedArtifacts::isSafeSegment)) {
+      sendEmpty(exchange, HTTP_BAD_REQUEST);
+      return;
+    }
+    Optional<Path> file = findArtifact(segments);
+    if (file.isEmpty() && segments.size() > 4) {
+      // first segment may be the name of an Artifactory repository
+      file = findArtifact(segments.subList(1, segments.size()));
+    }
+    if (file.isEmpty()) {
+      LOG.debug("Not found: {}", path);
+      sendEmpty(exchange, HTTP_NOT_FOUND);
+      return;
+    }
+    LOG.info("Serving {}", file.get());
+    exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+    long length = Files.size(file.get());
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+      exchange.sendResponseHeaders(HTTP_OK, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(HTTP_OK, length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      Files.copy(file.get(), output);
+    }
+  }
+
+  private Optional<Path> findArtifact(List<String> segments) {
+    if (segments.size() < 4) {
+      return Optional.empty();
+    }
+    int size = segments.size();
+    String groupId = String.join(".", segments.subList(0, size - 3));
+    return artifacts.find(groupId, segments.get(size - 3), segments.get(size - 2), segments.get(size - 1));
+  }
+
+  private void mavenMetadata(HttpExchange exchange, String path) throws IOException {
+    List<String> segments = Arrays.asList(path.split("/", -1));
+    if (!segments.stream().allMatch(CachedArtifacts::isSafeSegment)) {
+      sendEmpty(exchange, HTTP_BAD_REQUEST);
+      return;
+    }
+    if (segments.size() < 3) {
+      sendEmpty(exchange, HTTP_NOT_FOUND);
+      return;
+    }
+    int size = segments.size();
+    String groupId = String.join(".", segments.subList(0, size - 2));
+    String artifactId = segments.get(size - 2);
+    List<String> versions = artifacts.versions(groupId, artifactId);
+    if (versions.isEmpty()) {
+      sendEmpty(exchange, HTTP_NOT_FOUND);
+      return;
+    }
+    String latest = versions.get(versions.size() - 1);
+    StringBuilder xml = new StringBuilder()
+      .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+      .append("<metadata>\n")
+      .append("  <groupId>").append(groupId).append("</groupId>\n")
+      .append("  <artifactId>").append(artifactId).append("</artifactId>\n")
+      .append("  <versioning>\n")
+      .append("    <latest>").append(latest).append("</latest>\n")
+      .append("    <release>").append(latest).append("</release>\n")
+      .append("    <versions>\n");
+    versions.forEach(v -> xml.append("      <version>").append(v).append("</version>\n"));
+    xml.append("    </versions>\n")
+      .append("  </versioning>\n")
+      .append("</metadata>\n");
+    send(exchange, "application/xml", xml.toString());
+  }
+
+  private void searchVersions(HttpExchange exchange) throws IOException {
+    Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+    String groupId = params.get("g");
+    String artifactId = params.get("a");
+    if (StringUtils.isEmpty(groupId) || StringUtils.isEmpty(artifactId)) {
+      sendEmpty(exchange, HTTP_BAD_REQUEST);
+      return;
+    }
+    String prefix = Strings.CS.removeEnd(Objects.toString(params.get("v"), ""), "*");
+    JsonArray results = Json.array();
+    artifacts.versions(groupId, artifactId).stream()
+      .filter(v -> v.startsWith(prefix))
+      .forEach(v -> results.add(Json.object().add("version", v).add("integrity", false)));
+    send(exchange, "application/json", Json.object().add("results", results).toString());
+  }
+
+  private static Map<String, String> parseQuery(@Nullable String rawQuery) {
+    Map<String, String> params = new HashMap<>();
+    if (StringUtils.isEmpty(rawQuery)) {
+      return params;
+    }
+    for (String param : rawQuery.split("&")) {
+      String key = StringUtils.substringBefore(param, "=");
+      String value = param.contains("=") ? StringUtils.substringAfter(param, "=") : "";
+      params.put(URLDecoder.decode(key, UTF_8), URLDecoder.decode(value, UTF_8));
+    }
+    return params;
+  }
+
+  private static void send(HttpExchange exchange, String contentType, String body) throws IOException {
+    byte[] bytes = body.getBytes(UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType + ";charset=utf-8");
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      exchange.sendResponseHeaders(HTTP_OK, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(HTTP_OK, bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  private static void sendEmpty(HttpExchange exchange, int code) throws IOException {
+    exchange.sendResponseHeaders(code, -1);
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Orchestrator Mirror
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.mirror;
+
+import com.sonar.orchestrator.config.Configuration;
+import com.sonar.orchestrator.locator.Locators;
+import com.sonar.orchestrator.locator.MavenLocation;
+import com.sonar.orchestrator.locator.MavenLocator;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArtifactMirrorTest {
+
+  @TempDir
+  Path cacheDir;
+  @TempDir
+  Path mavenRepository;
+  @TempDir
+  Path clientHome;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private ArtifactMirror underTest;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    addToCache(MavenLocation.of("org.foo", "bar", "1.0"), "content of 1.0");
+    addToCache(MavenLocation.of("org.foo", "bar", "1.1"), "content of 1.1");
+    underTest = new ArtifactMirror(new CachedArtifacts(cacheDir, mavenRepository)).start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  void download_artifact() throws Exception {
+    HttpResponse<String> response = get("/org/foo/bar/1.0/bar-1.0.jar");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).isEqualTo("content of 1.0");
+  }
+
+  @Test
+  void download_artifact_prefixed_by_repository_name() throws Exception {
+    HttpResponse<String> response = get("/sonarsource/org/foo/bar/1.1/bar-1.1.jar");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).isEqualTo("content of 1.1");
+  }
+
+  @Test
+  void return_404_if_artifact_is_missing() throws Exception {
+    assertThat(get("/org/foo/bar/2.0/bar-2.0.jar").statusCode()).isEqualTo(404);
+    assertThat(get("/org/foo/other/maven-metadata.xml").statusCode()).isEqualTo(404);
+  }
+
+  @Test
+  void reject_path_traversal() throws Exception {
+    assertThat(get("/../../../etc/passwd").statusCode()).isEqualTo(400);
+    assertThat(get("/org/%2e%2e/%2e%2e/%2e%2e/etc/passwd").statusCode()).isEqualTo(400);
+    assertThat(get("/org//foo/bar/1.0/bar-1.0.jar").statusCode()).isEqualTo(400);
+    assertThat(get("/org/../maven-metadata.xml").statusCode()).isEqualTo(400);
+  }
+
+  @Test
+  void generate_maven_metadata() throws Exception {
+    HttpResponse<String> response = get("/org/foo/bar/maven-metadata.xml");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body())
+      .contains("<release>1.1</release>")
+      .contains("<version>1.0</version>")
+      .contains("<version>1.1</version>");
+  }
+
+  @Test
+  void search_versions() throws Exception {
+    HttpResponse<String> response = get("/api/search/versions?g=org.foo&a=bar&v=1.1*");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).isEqualTo("{\"results\":[{\"version\":\"1.1\",\"integrity\":false}]}");
+  }
+
+  @Test
+  void reject_write_requests() throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(underTest.getUrl() + "/org/foo/bar/1.0/bar-1.0.jar"))
+      .PUT(HttpRequest.BodyPublishers.ofString("foo"))
+      .build();
+
+    assertThat(client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(405);
+  }
+
+  @Test
+  void locators_resolve_artifacts_from_mirror() throws IOException {
+    Configuration config = Configuration.builder()
+      .setProperty("orchestrator.home", clientHome.resolve("home").toString())
+      .setProperty("maven.localRepository", clientHome.resolve("repository").toString())
+      .setProperty("orchestrator.artifactory.url", underTest.getUrl())
+      .build();
+
+    File file = new Locators(config).locate(MavenLocation.of("org.foo", "bar", "LATEST_RELEASE"));
+
+    assertThat(file).hasContent("content of 1.1");
+  }
+
+  @Test
+  void fail_to_start_twice() {
+    assertThatThrownBy(() -> underTest.start())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Artifact mirror is already started");
+  }
+
+  private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(underTest.getUrl() + path)).GET().build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private void addToCache(MavenLocation location, String content) throws IOException {
+    Path file = cacheDir.resolve(MavenLocator.cacheKeyOf(location)).resolve(location.getFilename());
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Orchestrator Mirror
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.mirror;
+
+import com.sonar.orchestrator.locator.MavenLocation;
+import com.sonar.orchestrator.locator.MavenLocator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedArtifactsTest {
+
+  @TempDir
+  Path cacheDir;
+  @TempDir
+  Path mavenRepository;
+
+  private CachedArtifacts underTest;
+
+  @BeforeEach
+  void setUp() {
+    underTest = new CachedArtifacts(cacheDir, mavenRepository);
+  }
+
+  @Test
+  void find_artifact_in_cache() throws IOException {
+    Path file = addToCache(MavenLocation.of("org.foo", "bar", "1.0"));
+
+    assertThat(underTest.find("org.foo", "bar", "1.0", "bar-1.0.jar")).contains(file);
+    assertThat(underTest.find("org.foo", "bar", "2.0", "bar-2.0.jar")).isEmpty();
+    assertThat(underTest.find("org.foo", "other", "1.0", "other-1.0.jar")).isEmpty();
+  }
+
+  @Test
+  void find_artifact_with_classifier_in_cache() throws IOException {
+    MavenLocation location = MavenLocation.builder().setKey("org.foo", "bar", "1.0-RC1").setClassifier("linux-x64").withPackaging("zip").build();
+    Path file = addToCache(location);
+
+    assertThat(underTest.find("org.foo", "bar", "1.0-RC1", "bar-1.0-RC1-linux-x64.zip")).contains(file);
+  }
+
+  @Test
+  void find_artifact_in_maven_local_repository() throws IOException {
+    Path file = addToMavenRepository("org/foo/bar/1.0/bar-1.0.jar");
+
+    assertThat(underTest.find("org.foo", "bar", "1.0", "bar-1.0.jar")).contains(file);
+  }
+
+  @Test
+  void do_not_find_files_outside_maven_local_repository() throws IOException {
+    // file outside the repository: <repository>/../<cache dir name>/secret/passwd
+    Files.createDirectories(cacheDir.resolve("secret"));
+    Files.writeString(cacheDir.resolve("secret/passwd"), "secret");
+    String outside = cacheDir.getFileName().toString();
+
+    assertThat(underTest.find("..", outside, "secret", "passwd")).isEmpty();
+    assertThat(underTest.find(".....", "..", outside, "passwd")).isEmpty();
+    assertThat(underTest.find("org.foo", "..", "..", "passwd")).isEmpty();
+    assertThat(underTest.find("org.foo", "bar", "1.0", "../../../passwd")).isEmpty();
+    assertThat(underTest.versions("..", outside)).isEmpty();
+  }
+
+  @Test
+  void safe_segments() {
+    assertThat(CachedArtifacts.isSafeSegment("bar-1.0.jar")).isTrue();
+    assertThat(CachedArtifacts.isSafeSegment("")).isFalse();
+    assertThat(CachedArtifacts.isSafeSegment(".")).isFalse();
+    assertThat(CachedArtifacts.isSafeSegment("..")).isFalse();
+    assertThat(CachedArtifacts.isSafeSegment("a/b")).isFalse();
+    assertThat(CachedArtifacts.isSafeSegment("a\\b")).isFalse();
+  }
+
+  @Test
+  void versions_are_sorted_and_exclude_snapshots() throws IOException {
+    addToCache(MavenLocation.of("org.foo", "bar", "1.10"));
+    addToCache(MavenLocation.of("org.foo", "bar", "1.9"));
+    addToCache(MavenLocation.of("org.foo", "barbar", "3.0"));
+    addToMavenRepository("org/foo/bar/2.0/bar-2.0.jar");
+    addToMavenRepository("org/foo/bar/3.0-SNAPSHOT/bar-3.0-SNAPSHOT.jar");
+
+    assertThat(underTest.versions("org.foo", "bar")).containsExactly("1.9", "1.10", "2.0");
+    assertThat(underTest.versions("org.foo", "unknown")).isEmpty();
+  }
+
+  @Test
+  void guess_locations_from_filename() {
+    assertThat(CachedArtifacts.guessLocations("org.foo", "bar", "bar-1.0-RC1-linux.zip"))
+      .extracting(MavenLocation::toString)
+      .containsExactly("[org.foo:bar:1.0-RC1-linux:zip]", "[org.foo:bar:1.0-RC1:linux:zip]", "[org.foo:bar:1.0:RC1-linux:zip]");
+    assertThat(CachedArtifacts.guessLocations("org.foo", "bar", "other-1.0.jar")).isEmpty();
+  }
+
+  private Path addToCache(MavenLocation location) throws IOException {
+    Path file = cacheDir.resolve(MavenLocator.cacheKeyOf(location)).resolve(location.getFilename());
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, location.toString());
+    return file;
+  }
+
+  private Path addToMavenRepository(String relativePath) throws IOException {
+    Path file = mavenRepository.resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, relativePath);
+    return file;
+  }
+}
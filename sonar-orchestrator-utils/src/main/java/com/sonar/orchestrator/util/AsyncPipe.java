@@ -0,0 +1,332 @@
+/*
+ * Orchestrator Utils
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.sonar.orchestrator.util.Preconditions.checkArgument;
+
+/**
+ * Asynchronous variant of {@link StreamConsumer.Pipe}. The thread that reads the output of the process only
+ * appends the lines to bounded lock-free ring buffers, so that a slow console (for example a log collector
+ * of CI) does not slow down the process through its stdout pipe. The console and the writer have their own
+ * buffer. A single consumer task, run by the {@link OutputExecutor}, writes the pending lines by batches.
+ * When the buffer of the writer is full, for example because the consumer is blocked by the console, the
+ * thread that reads the output writes the pending lines of the writer itself.
+ * <p>
+ * {@link #close()} must be called when the process is finished. It waits until all the lines are written.
+ */
+public class AsyncPipe implements StreamConsumer, Closeable {
+
+  /**
+   * If "true", the lines are not displayed on the console. They are still copied to the writer.
+   */
+  public static final String QUIET_CONSOLE_PROPERTY = "orchestrator.console.quiet";
+
+  /**
+   * Name of the {@link OverflowPolicy}, "BLOCK" by default.
+   */
+  public static final String OVERFLOW_PROPERTY = "orchestrator.console.overflow";
+
+  public static final int DEFAULT_CAPACITY = 8_192;
+
+  /**
+   * Behavior when the console buffer is full. The copy to the writer is never lossy: the thread that reads
+   * the output writes the pending lines itself when the writer buffer is full, whatever the policy.
+   */
+  public enum OverflowPolicy {
+    /**
+     * The thread that reads the output writes the pending lines itself until the buffer has free space.
+     * Lines are never lost.
+     */
+    BLOCK,
+    /**
+     * The lines that do not fit in the console buffer are not displayed, so that the process is never slowed
+     * down by the console. The number of skipped lines is displayed instead. The writer still receives all the lines.
+     */
+    DROP;
+
+    public static OverflowPolicy parse(@Nullable String s) {
+      return s == null || s.isBlank() ? BLOCK : valueOf(s.trim().toUpperCase(Locale.ENGLISH));
+    }
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncPipe.class);
+  private static final int MAX_BATCH_LINES = 1_024;
+
+  @CheckForNull
+  private final Lane writerLane;
+  @CheckForNull
+  private final Lane consoleLane;
+
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+  private volatile boolean consumerWaiting = false;
+  @CheckForNull
+  private volatile Thread consumerThread;
+  private final Future<?> consumer;
+
+  /**
+   * Copies the lines to the console and to the writer, blocking when more than {@link #DEFAULT_CAPACITY}
+   * lines are pending.
+   */
+  public AsyncPipe(Writer writer) {
+    this(writer, System.out, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+  }
+
+  /**
+   * @param writer         copy of the lines, for example the logs of a build. Can be {@code null}.
+   * @param console        the console, {@code null} to not display the lines
+   * @param capacity       maximum number of pending lines per destination, rounded up to a power of two
+   * @param overflowPolicy behavior when the console buffer is full
+   */
+  public AsyncPipe(@Nullable Writer writer, @Nullable PrintStream console, int capacity, OverflowPolicy overflowPolicy) {
+    checkArgument(capacity > 0, "Capacity must be positive: %s", capacity);
+    checkArgument(capacity <= (1 << 30), "Capacity must not exceed 2^30: %s", capacity);
+    this.writerLane = writer == null ? null : new Lane(capacity, OverflowPolicy.BLOCK, batch -> {
+      try {
+        writer.write(batch);
+        writer.flush();
+      } catch (IOException | RuntimeException e) {
+        LOG.error("Fail to write : " + batch, e);
+      }
+    });
+    this.consoleLane = console == null ? null : new Lane(capacity, overflowPolicy, batch -> {
+      console.print(batch);
+      console.flush();
+    });
+    this.consumer = OutputExecutor.get().submit(this::consume);
+  }
+
+  /**
+   * @param quietConsole if {@code true}, the lines are copied to the writer only. See {@link #QUIET_CONSOLE_PROPERTY}.
+   */
+  public static AsyncPipe create(@Nullable Writer writer, boolean quietConsole, OverflowPolicy overflowPolicy) {
+    return new AsyncPipe(writer, quietConsole ? null : System.out, DEFAULT_CAPACITY, overflowPolicy);
+  }
+
+  @Override
+  public void consumeLine(String line) {
+    if (writerLane != null) {
+      writerLane.offerOrDrain(line);
+    }
+    if (consoleLane != null) {
+      consoleLane.offerOrDrain(line);
+    }
+    if (closed.get()) {
+      // consumer may be stopped. Lines are written by the caller thread.
+      drain();
+    } else if (consumerWaiting) {
+      LockSupport.unpark(consumerThread);
+    }
+  }
+
+  /**
+   * Number of lines not displayed on the console because its buffer was full. Always zero with
+   * {@link OverflowPolicy#BLOCK}. The writer never drops lines.
+   */
+  public long getDroppedLines() {
+    return consoleLane == null ? 0L : consoleLane.droppedLines.get();
+  }
+
+  /**
+   * Waits until the pending lines are written. The lines consumed afterwards are written synchronously.
+   */
+  @Override
+  public void close() {
+    if (closed.getAndSet(true)) {
+      return;
+    }
+    Thread thread = consumerThread;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+    try {
+      consumer.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      LOG.error("Fail to write the output of process", e.getCause());
+    }
+    while (drain() > 0) {
+      // write the lines that were appended while the consumer was stopping
+    }
+  }
+
+  private void consume() {
+    consumerThread = Thread.currentThread();
+    while (true) {
+      if (drain() > 0) {
+        continue;
+      }
+      if (closed.get()) {
+        return;
+      }
+      consumerWaiting = true;
+      // lines appended before consumerWaiting is set are detected here, the others unpark the consumer
+      if (!hasPendingLines() && !closed.get()) {
+        LockSupport.park(this);
+      }
+      consumerWaiting = false;
+    }
+  }
+
+  /**
+   * Writes a batch of pending lines of each destination
+   *
+   * @return the number of written lines
+   */
+  private int drain() {
+    int count = 0;
+    if (writerLane != null) {
+      count += writerLane.drain();
+    }
+    if (consoleLane != null) {
+      count += consoleLane.drain();
+    }
+    return count;
+  }
+
+  private boolean hasPendingLines() {
+    return (writerLane != null && writerLane.hasPendingLines()) || (consoleLane != null && consoleLane.hasPendingLines());
+  }
+
+  /**
+   * Buffer of a destination
+   */
+  private static final class Lane {
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<String> output;
+
+    // Bounded multi-producer single-consumer queue. The sequence of a slot is its position when it can be written,
+    // and its position + 1 when it can be read.
+    private final int mask;
+    private final AtomicReferenceArray<String> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerPosition = new AtomicLong();
+    // guarded by this
+    private long consumerPosition = 0L;
+    private long reportedDroppedLines = 0L;
+
+    private final AtomicLong droppedLines = new AtomicLong();
+
+    private Lane(int capacity, OverflowPolicy overflowPolicy, Consumer<String> output) {
+      this.overflowPolicy = overflowPolicy;
+      this.output = output;
+      int size = Integer.highestOneBit(capacity) == capacity ? capacity : (Integer.highestOneBit(capacity) << 1);
+      this.mask = size - 1;
+      this.slots = new AtomicReferenceArray<>(size);
+      this.sequences = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+        sequences.set(i, i);
+      }
+    }
+
+    private void offerOrDrain(String line) {
+      while (!offer(line)) {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+          droppedLines.incrementAndGet();
+          return;
+        }
+        // lines are written in order, as the batches are written under the lock of the lane
+        drain();
+      }
+    }
+
+    private boolean offer(String line) {
+      long position = producerPosition.get();
+      while (true) {
+        int index = (int) (position & mask);
+        long diff = sequences.get(index) - position;
+        if (diff == 0L) {
+          if (producerPosition.compareAndSet(position, position + 1)) {
+            slots.set(index, line);
+            sequences.set(index, position + 1);
+            return true;
+          }
+          position = producerPosition.get();
+        } else if (diff < 0L) {
+          // full
+          return false;
+        } else {
+          // slot taken by another producer
+          position = producerPosition.get();
+        }
+      }
+    }
+
+    @CheckForNull
+    private String poll() {
+      int index = (int) (consumerPosition & mask);
+      if (sequences.get(index) != consumerPosition + 1) {
+        return null;
+      }
+      String line = slots.get(index);
+      slots.set(index, null);
+      sequences.set(index, consumerPosition + mask + 1);
+      consumerPosition++;
+      return line;
+    }
+
+    private synchronized boolean hasPendingLines() {
+      return sequences.get((int) (consumerPosition & mask)) == consumerPosition + 1
+        || droppedLines.get() > reportedDroppedLines;
+    }
+
+    /**
+     * Writes a batch of pending lines
+     *
+     * @return the number of written lines
+     */
+    private synchronized int drain() {
+      StringBuilder batch = new StringBuilder();
+      int count = 0;
+      String line;
+      while (count < MAX_BATCH_LINES && (line = poll()) != null) {
+        batch.append(line).append('\n');
+        count++;
+      }
+      long dropped = droppedLines.get();
+      if (dropped > reportedDroppedLines) {
+        batch.append("[").append(dropped - reportedDroppedLines).append(" lines dropped because the console is too slow]\n");
+        reportedDroppedLines = dropped;
+      }
+      if (batch.length() > 0) {
+        output.accept(batch.toString());
+      }
+      return count;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Orchestrator Utils
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared executor of the tasks that copy the output of processes. Tasks run in virtual threads on Java 21+,
+ * or in a shared pool of daemon threads on Java 17, so that no platform thread is created per process.
+ */
+public final class OutputExecutor {
+
+  private static final ExecutorService INSTANCE = newExecutor();
+
+  private OutputExecutor() {
+    // only static methods
+  }
+
+  public static ExecutorService get() {
+    return INSTANCE;
+  }
+
+  private static ExecutorService newExecutor() {
+    try {
+      // Java 21+
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ProcessStreamGobbler");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
@@ -19,27 +19,35 @@
  */
 package com.sonar.orchestrator.util.command;
 
+import com.sonar.orchestrator.util.OutputExecutor;
 import com.sonar.orchestrator.util.StreamConsumer;
 import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.concurrent.Callable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * Synchronously execute a native command line. It's much more limited than the Apache Commons Exec library.
  * For example it does not allow to run asynchronously or to automatically quote command-line arguments.
+ * <p>
+ * No threads are created per command: the exit of the process is awaited through {@link Process#onExit()} and
+ * its output is read by the {@link OutputExecutor}.
  *
  * @since 2.7
  */
@@ -49,6 +57,13 @@ public class CommandExecutor {
 
   private static final CommandExecutor INSTANCE = new CommandExecutor();
 
+  private static final ExecutorService OUTPUT_EXECUTOR = OutputExecutor.get();
+
+  // delay given to a process to handle SIGTERM before being killed
+  static final long DESTROY_GRACE_PERIOD_MS = 5_000L;
+  // delay given to the output to be fully read once the process is killed
+  static final long OUTPUT_TIMEOUT_MS = 5_000L;
+
   private CommandExecutor() {
   }
 
@@ -62,11 +77,26 @@ public class CommandExecutor {
    * @since 3.0
    */
   public int execute(Command command, StreamConsumer stdOut, long timeoutMilliseconds) {
+    return execute(command, stdOut, timeoutMilliseconds, process -> {
+    });
+  }
+
+  /**
+   * Same as {@link #execute(Command, StreamConsumer, long)}, but notifies {@code onStart} with the handle of the process
+   * as soon as it's started, for example to inspect its descendants or its resource usage while it's running.
+   * The listener is called by the calling thread, so it must not block.
+   * <p>
+   * The process and its descendants are killed if the timeout is exceeded. They are first asked to terminate, then
+   * forcibly killed if they are still alive after a grace period of {@value #DESTROY_GRACE_PERIOD_MS} ms.
+   *
+   * @throws CommandException
+   */
+  public int execute(Command command, StreamConsumer stdOut, long timeoutMilliseconds, Consumer<ProcessHandle> onStart) {
     requireNonNull(command);
 
-    ExecutorService executorService = null;
     Process process = null;
-    StreamGobbler outputGobbler = null;
+    OutputReader outputReader = null;
+    Future<?> output = null;
     ProcessBuilder builder = new ProcessBuilder(command.toStrings());
     try {
       if (command.getDirectory() != null) {
@@ -77,47 +107,41 @@ public class CommandExecutor {
       builder.redirectErrorStream(true);
       process = builder.start();
 
-      outputGobbler = new StreamGobbler(process.getInputStream(), stdOut);
-      outputGobbler.start();
+      outputReader = new OutputReader(process.getInputStream(), stdOut);
+      output = OUTPUT_EXECUTOR.submit(outputReader);
+      onStart.accept(process.toHandle());
 
-      final Process finalProcess = process;
-      executorService = Executors.newSingleThreadExecutor();
-      Future<Integer> ft = executorService.submit(new Callable<Integer>() {
-        @Override
-        public Integer call() throws InterruptedException {
-          return finalProcess.waitFor();
-        }
-      });
-      int exitCode = ft.get(timeoutMilliseconds, TimeUnit.MILLISECONDS);
-      waitUntilFinish(outputGobbler);
-      verifyGobbler(command, outputGobbler);
+      int exitCode = process.onExit().get(timeoutMilliseconds, MILLISECONDS).exitValue();
+      waitUntilFinish(output);
+      verifyOutputReader(command, outputReader);
       return exitCode;
 
     } catch (TimeoutException te) {
-      if (process != null) {
-        process.destroy();
-      }
       throw new CommandException(command, "Timeout exceeded: " + timeoutMilliseconds + " ms", te);
 
     } catch (CommandException e) {
       throw e;
 
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CommandException(command, e);
+
     } catch (Exception e) {
       throw new CommandException(command, e);
 
     } finally {
-      waitUntilFinish(outputGobbler);
-      closeStreams(process);
-
-      if (executorService != null) {
-        executorService.shutdown();
+      if (process != null && process.isAlive()) {
+        // timeout, interruption or failure of the listener
+        destroy(process);
       }
+      waitUntilFinish(output, OUTPUT_TIMEOUT_MS);
+      closeStreams(process);
     }
   }
 
-  private static void verifyGobbler(Command command, StreamGobbler gobbler) {
-    if (gobbler.getException() != null) {
-      throw new CommandException(command, gobbler.getException());
+  private static void verifyOutputReader(Command command, OutputReader outputReader) {
+    if (outputReader.getException() != null) {
+      throw new CommandException(command, outputReader.getException());
     }
   }
 
@@ -133,6 +157,34 @@ public class CommandExecutor {
     return execute(command, new DefaultConsumer(), timeoutMilliseconds);
   }
 
+  /**
+   * Descendants are killed first, for example the JVM started by the script of a build tool,
+   * otherwise they would keep the output stream open. The processes that ignore or delay SIGTERM are
+   * forcibly killed after {@link #DESTROY_GRACE_PERIOD_MS}, or immediately if the calling thread is interrupted.
+   */
+  private static void destroy(Process process) {
+    List<ProcessHandle> tree = Stream.concat(process.descendants(), Stream.of(process.toHandle())).collect(Collectors.toList());
+    tree.forEach(ProcessHandle::destroy);
+    if (!Thread.currentThread().isInterrupted()) {
+      try {
+        CompletableFuture.allOf(tree.stream().map(ProcessHandle::onExit).toArray(CompletableFuture[]::new))
+          .get(DESTROY_GRACE_PERIOD_MS, MILLISECONDS);
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException | TimeoutException e) {
+        // still alive
+      }
+    }
+    // processes started during the grace period are killed too
+    Stream.concat(process.descendants(), tree.stream())
+      .filter(ProcessHandle::isAlive)
+      .forEach(p -> {
+        LOG.warn("Process {} is still alive, killing it forcibly", p.pid());
+        p.destroyForcibly();
+      });
+  }
+
   private static void closeStreams(@Nullable Process process) {
     if (process != null) {
       closeQuietly(process.getInputStream());
@@ -152,24 +204,45 @@ public class CommandExecutor {
     }
   }
 
-  private static void waitUntilFinish(@Nullable StreamGobbler thread) {
-    if (thread != null) {
+  private static void waitUntilFinish(@Nullable Future<?> output) {
+    if (output != null) {
+      try {
+        output.get();
+      } catch (InterruptedException e) {
+        LOG.error("InterruptedException while waiting finish of process output", e);
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        LOG.error("Fail to read process output", e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #waitUntilFinish(Future)}, but does not block forever if the output stream is kept open,
+   * for example by a process that could not be killed.
+   */
+  private static void waitUntilFinish(@Nullable Future<?> output, long timeoutMilliseconds) {
+    if (output != null) {
       try {
-        thread.join();
+        output.get(timeoutMilliseconds, MILLISECONDS);
       } catch (InterruptedException e) {
-        LOG.error("InterruptedException while waiting finish of " + thread.toString(), e);
+        LOG.error("InterruptedException while waiting finish of process output", e);
         Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        LOG.error("Fail to read process output", e.getCause());
+      } catch (TimeoutException e) {
+        LOG.warn("Process output is still open after {} ms, stop reading it", timeoutMilliseconds);
+        output.cancel(true);
       }
     }
   }
 
-  private static class StreamGobbler extends Thread {
+  private static class OutputReader implements Runnable {
     private final InputStream is;
     private final StreamConsumer consumer;
     private volatile Exception exception;
 
-    StreamGobbler(InputStream is, StreamConsumer consumer) {
-      super("ProcessStreamGobbler");
+    OutputReader(InputStream is, StreamConsumer consumer) {
       this.is = is;
       this.consumer = consumer;
     }
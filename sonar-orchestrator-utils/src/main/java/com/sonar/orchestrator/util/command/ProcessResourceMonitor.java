@@ -0,0 +1,253 @@
+/*
+ * Orchestrator Utils
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.util.command;
+
+import com.sonar.orchestrator.util.StreamConsumer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Samples the resources used by a process and by its descendants while it's running. It must be passed to
+ * {@link CommandExecutor#execute(Command, StreamConsumer, long, Consumer)}, then {@link #getUsage(String, int)}
+ * returns the usage once the command is finished.
+ * <p>
+ * Processes are sampled every 200 ms by a single shared thread, so the CPU consumed
+ * during the last interval before the exit of a process is not accounted. On Linux, user and system CPU times are
+ * read from {@code /proc/<pid>/stat} and the peak RSS from {@code /proc/<pid>/status}. The CPU times then include
+ * the children that were waited for by the processes of the tree (cutime and cstime), so that short-lived
+ * processes that terminated between two samples are accounted. The peak RSS is the highest resident memory of
+ * the process tree seen by samples (VmRSS), or the peak of a single process (VmHWM) if greater.
+ */
+public class ProcessResourceMonitor implements Consumer<ProcessHandle> {
+
+  static final long SAMPLING_INTERVAL_MS = 200L;
+
+  // USER_HZ, the unit of CPU times in /proc/<pid>/stat, is 100 on all the architectures supported by Linux
+  private static final long MILLIS_PER_CLOCK_TICK = 10L;
+
+  private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "ProcessResourceMonitor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Path procDir;
+  private final boolean procfs;
+
+  // guarded by this
+  private final Map<Long, CpuSample> cpuByPid = new HashMap<>();
+  private long peakRssBytes = -1L;
+  // CPU times of the tree, including waited-for children, at the last sample of the root process
+  private long treeUserTicks = -1L;
+  private long treeSystemTicks = -1L;
+  private long startNanos = -1L;
+  private long exitNanos = -1L;
+  @CheckForNull
+  private ScheduledFuture<?> sampling;
+
+  public ProcessResourceMonitor() {
+    this(Paths.get("/proc"));
+  }
+
+  ProcessResourceMonitor(Path procDir) {
+    this.procDir = procDir;
+    this.procfs = Files.isDirectory(procDir);
+  }
+
+  @Override
+  public void accept(ProcessHandle process) {
+    synchronized (this) {
+      startNanos = System.nanoTime();
+      sampling = SAMPLER.scheduleAtFixedRate(() -> sample(process), 0L, SAMPLING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    process.onExit().thenRun(this::stop);
+  }
+
+  /**
+   * Stops sampling and returns the resources used so far. If the process was not started, only the exit status is defined.
+   *
+   * @param name name of the step, for example the Maven goal
+   */
+  public synchronized ResourceUsage getUsage(String name, int exitStatus) {
+    stop();
+    Duration wallTime = startNanos < 0 ? Duration.ZERO : Duration.ofNanos(exitNanos - startNanos);
+    Duration userCpuTime = ticksToDuration(s -> s.userTicks, treeUserTicks);
+    Duration systemCpuTime = ticksToDuration(s -> s.systemTicks, treeSystemTicks);
+    Duration cpuTime = userCpuTime != null && systemCpuTime != null ? userCpuTime.plus(systemCpuTime)
+      : sum(cpuByPid.values().stream().map(s -> s.cpuMillis));
+    return new ResourceUsage(name, exitStatus, wallTime, cpuTime, userCpuTime, systemCpuTime, peakRssBytes);
+  }
+
+  /**
+   * The sum of the last samples of the processes misses the children that terminated before being sampled, and the
+   * times of the tree at the last sample of the root miss the processes that were not waited for, like the daemons.
+   * Both are lower bounds, so the greatest is kept.
+   */
+  @CheckForNull
+  private Duration ticksToDuration(ToLongFunction<CpuSample> ticks, long treeTicks) {
+    Duration sampled = sum(cpuByPid.values().stream().map(s -> ticks.applyAsLong(s) < 0 ? -1L : (ticks.applyAsLong(s) * MILLIS_PER_CLOCK_TICK)));
+    if (treeTicks < 0) {
+      return sampled;
+    }
+    Duration tree = Duration.ofMillis(treeTicks * MILLIS_PER_CLOCK_TICK);
+    return sampled == null || tree.compareTo(sampled) > 0 ? tree : sampled;
+  }
+
+  private synchronized void stop() {
+    if (startNanos >= 0 && exitNanos < 0) {
+      exitNanos = System.nanoTime();
+    }
+    if (sampling != null) {
+      sampling.cancel(false);
+    }
+  }
+
+  void sample(ProcessHandle process) {
+    List<ProcessHandle> tree = Stream.concat(Stream.of(process), process.descendants())
+      .filter(ProcessHandle::isAlive)
+      .collect(Collectors.toList());
+    Map<Long, CpuSample> cpuSamples = new HashMap<>();
+    long rssBytes = -1L;
+    long maxHwmBytes = -1L;
+    long userTicks = 0L;
+    long systemTicks = 0L;
+    boolean rootSampled = false;
+    for (ProcessHandle p : tree) {
+      long cpuMillis = p.info().totalCpuDuration().map(Duration::toMillis).orElse(-1L);
+      long[] ticks = procfs ? readCpuTicks(p.pid()) : null;
+      cpuSamples.put(p.pid(), new CpuSample(cpuMillis, ticks == null ? -1L : ticks[0], ticks == null ? -1L : ticks[1]));
+      if (ticks != null) {
+        userTicks += ticks[0] + ticks[2];
+        systemTicks += ticks[1] + ticks[3];
+        rootSampled |= p.pid() == process.pid();
+      }
+      long[] memory = procfs ? readMemory(p.pid()) : null;
+      if (memory != null && memory[0] >= 0) {
+        rssBytes = Math.max(rssBytes, 0L) + memory[0];
+        maxHwmBytes = Math.max(maxHwmBytes, memory[1]);
+      }
+    }
+    synchronized (this) {
+      // the CPU times of a process only increase, so the last sample is kept
+      cpuByPid.putAll(cpuSamples);
+      if (rootSampled) {
+        treeUserTicks = userTicks;
+        treeSystemTicks = systemTicks;
+      }
+      peakRssBytes = Math.max(peakRssBytes, Math.max(rssBytes, maxHwmBytes));
+    }
+  }
+
+  @CheckForNull
+  private long[] readCpuTicks(long pid) {
+    try {
+      return parseCpuTicks(Files.readString(procDir.resolve(pid + "/stat"), UTF_8));
+    } catch (IOException | RuntimeException e) {
+      // process is terminated
+      return null;
+    }
+  }
+
+  @CheckForNull
+  private long[] readMemory(long pid) {
+    try {
+      return parseMemory(Files.readAllLines(procDir.resolve(pid + "/status"), UTF_8));
+    } catch (IOException | RuntimeException e) {
+      // process is terminated
+      return null;
+    }
+  }
+
+  /**
+   * @return user and system times, then user and system times of the waited-for children, in clock ticks. These are
+   *         the fields 14 to 17 of {@code /proc/<pid>/stat}.
+   */
+  @CheckForNull
+  static long[] parseCpuTicks(String stat) {
+    // the command name (field 2) is between parentheses and may contain whitespaces
+    int endOfCommand = stat.lastIndexOf(')');
+    if (endOfCommand < 0) {
+      return null;
+    }
+    String[] fields = stat.substring(endOfCommand + 1).trim().split("\\s+");
+    if (fields.length < 15) {
+      return null;
+    }
+    return new long[] {Long.parseLong(fields[11]), Long.parseLong(fields[12]), Long.parseLong(fields[13]), Long.parseLong(fields[14])};
+  }
+
+  /**
+   * @return VmRSS and VmHWM of {@code /proc/<pid>/status} in bytes, -1 if missing (kernel threads)
+   */
+  static long[] parseMemory(List<String> status) {
+    long[] memory = {-1L, -1L};
+    for (String line : status) {
+      if (line.startsWith("VmRSS:")) {
+        memory[0] = parseKiloBytes(line);
+      } else if (line.startsWith("VmHWM:")) {
+        memory[1] = parseKiloBytes(line);
+      }
+    }
+    return memory;
+  }
+
+  private static long parseKiloBytes(String line) {
+    // for example "VmRSS:\t  123456 kB"
+    String value = line.substring(line.indexOf(':') + 1).trim();
+    int space = value.indexOf(' ');
+    return Long.parseLong(space < 0 ? value : value.substring(0, space)) * 1024L;
+  }
+
+  @CheckForNull
+  private static Duration sum(Stream<Long> millis) {
+    long[] known = millis.filter(m -> m >= 0).mapToLong(Long::longValue).toArray();
+    return known.length == 0 ? null : Duration.ofMillis(LongStream.of(known).sum());
+  }
+
+  private static class CpuSample {
+    private final long cpuMillis;
+    private final long userTicks;
+    private final long systemTicks;
+
+    private CpuSample(long cpuMillis, long userTicks, long systemTicks) {
+      this.cpuMillis = cpuMillis;
+      this.userTicks = userTicks;
+      this.systemTicks = systemTicks;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Orchestrator Utils
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.util.command;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import javax.annotation.Nullable;
+
+/**
+ * Resources used by a command executed with {@link CommandExecutor}, including the processes it started.
+ * See {@link ProcessResourceMonitor}.
+ */
+public final class ResourceUsage {
+
+  private final String name;
+  private final int exitStatus;
+  private final Duration wallTime;
+  @Nullable
+  private final Duration cpuTime;
+  @Nullable
+  private final Duration userCpuTime;
+  @Nullable
+  private final Duration systemCpuTime;
+  private final long peakRssBytes;
+
+  ResourceUsage(String name, int exitStatus, Duration wallTime, @Nullable Duration cpuTime, @Nullable Duration userCpuTime,
+    @Nullable Duration systemCpuTime, long peakRssBytes) {
+    this.name = name;
+    this.exitStatus = exitStatus;
+    this.wallTime = wallTime;
+    this.cpuTime = cpuTime;
+    this.userCpuTime = userCpuTime;
+    this.systemCpuTime = systemCpuTime;
+    this.peakRssBytes = peakRssBytes;
+  }
+
+  /**
+   * Name of the step, for example the Maven goal or the Gradle task
+   */
+  public String getName() {
+    return name;
+  }
+
+  public int getExitStatus() {
+    return exitStatus;
+  }
+
+  /**
+   * Elapsed time between the start and the exit of the process
+   */
+  public Duration getWallTime() {
+    return wallTime;
+  }
+
+  /**
+   * Total CPU time (user and system) of the process and of its descendants. On Linux, it's the sum of
+   * {@link #getUserCpuTime()} and {@link #getSystemCpuTime()}. On other OS, it's reported by {@link ProcessHandle.Info},
+   * which does not include the children of a process. Empty if not supported by the OS.
+   * <p>
+   * It's a lower bound, as processes are sampled periodically: the CPU consumed by a process after its last sample
+   * is missed. On Linux, this gap is closed for the descendants that are waited for by a process of the tree, but not
+   * for the ones that are detached, like daemons, nor for the last interval of the root process. On other OS, it
+   * applies to every descendant, and a descendant that starts and terminates between two samples is not accounted.
+   */
+  public Optional<Duration> getCpuTime() {
+    return Optional.ofNullable(cpuTime);
+  }
+
+  /**
+   * User CPU time of the process and of its descendants. Available on Linux only.
+   */
+  public Optional<Duration> getUserCpuTime() {
+    return Optional.ofNullable(userCpuTime);
+  }
+
+  /**
+   * System CPU time of the process and of its descendants. Available on Linux only.
+   */
+  public Optional<Duration> getSystemCpuTime() {
+    return Optional.ofNullable(systemCpuTime);
+  }
+
+  /**
+   * Peak resident set size of the process and of its descendants, in bytes. Available on Linux only.
+   */
+  public OptionalLong getPeakRssBytes() {
+    return peakRssBytes < 0 ? OptionalLong.empty() : OptionalLong.of(peakRssBytes);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder()
+      .append(name)
+      .append(": exit status ").append(exitStatus)
+      .append(", wall time ").append(wallTime.toMillis()).append(" ms");
+    getCpuTime().ifPresent(d -> sb.append(", CPU ").append(d.toMillis()).append(" ms"));
+    if (userCpuTime != null && systemCpuTime != null) {
+      sb.append(" (user ").append(userCpuTime.toMillis()).append(" ms, system ").append(systemCpuTime.toMillis()).append(" ms)");
+    }
+    getPeakRssBytes().ifPresent(b -> sb.append(", peak RSS ").append(b / (1024 * 1024)).append(" MB"));
+    return sb.toString();
+  }
+}
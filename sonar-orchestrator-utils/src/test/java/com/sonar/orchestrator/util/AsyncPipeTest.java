@@ -0,0 +1,152 @@
+/*
+ * Orchestrator Utils
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncPipeTest {
+
+  private final ByteArrayOutputStream console = new ByteArrayOutputStream();
+  private final StringWriter writer = new StringWriter();
+
+  @Test
+  public void copy_lines_to_console_and_writer() {
+    AsyncPipe underTest = new AsyncPipe(writer, new PrintStream(console, true, UTF_8), 16, AsyncPipe.OverflowPolicy.BLOCK);
+
+    underTest.consumeLine("foo");
+    underTest.consumeLine("bar");
+    underTest.close();
+
+    assertThat(writer).hasToString("foo\nbar\n");
+    assertThat(console.toString(UTF_8)).isEqualTo("foo\nbar\n");
+    assertThat(underTest.getDroppedLines()).isZero();
+  }
+
+  @Test
+  public void quiet_console_copies_lines_to_writer_only() {
+    AsyncPipe underTest = AsyncPipe.create(writer, true, AsyncPipe.OverflowPolicy.BLOCK);
+
+    underTest.consumeLine("foo");
+    underTest.close();
+
+    assertThat(writer).hasToString("foo\n");
+  }
+
+  @Test
+  public void block_policy_keeps_all_lines_in_order_when_buffer_is_full() throws Exception {
+    AsyncPipe underTest = new AsyncPipe(writer, null, 2, AsyncPipe.OverflowPolicy.BLOCK);
+    List<Thread> producers = new ArrayList<>();
+    for (int p = 0; p < 4; p++) {
+      String prefix = "p" + p + "-";
+      producers.add(new Thread(() -> IntStream.range(0, 1_000).forEach(i -> underTest.consumeLine(prefix + i))));
+    }
+    producers.forEach(Thread::start);
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    underTest.close();
+
+    List<String> lines = writer.toString().lines().collect(Collectors.toList());
+    assertThat(lines).hasSize(4_000);
+    for (int p = 0; p < 4; p++) {
+      String prefix = "p" + p + "-";
+      assertThat(lines.stream().filter(l -> l.startsWith(prefix)))
+        .containsExactlyElementsOf(IntStream.range(0, 1_000).mapToObj(i -> prefix + i).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void drop_policy_does_not_wait_for_slow_console() {
+    CountDownLatch slowConsole = new CountDownLatch(1);
+    PrintStream slowPrintStream = new PrintStream(console, true, UTF_8) {
+      @Override
+      public void print(String s) {
+        try {
+          slowConsole.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.print(s);
+      }
+    };
+    AsyncPipe underTest = new AsyncPipe(writer, slowPrintStream, 4, AsyncPipe.OverflowPolicy.DROP);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.consumeLine("line" + i);
+    }
+    slowConsole.countDown();
+    underTest.close();
+
+    assertThat(underTest.getDroppedLines()).isPositive();
+    assertThat(console.toString(UTF_8)).contains("line0\n", underTest.getDroppedLines() + " lines dropped because the console is too slow");
+    assertThat(writer).hasToString(IntStream.range(0, 100).mapToObj(i -> "line" + i + "\n").collect(Collectors.joining()));
+  }
+
+  @Test
+  public void drop_policy_does_not_drop_lines_without_console() {
+    AsyncPipe underTest = new AsyncPipe(writer, null, 2, AsyncPipe.OverflowPolicy.DROP);
+
+    for (int i = 0; i < 1_000; i++) {
+      underTest.consumeLine("line" + i);
+    }
+    underTest.close();
+
+    assertThat(underTest.getDroppedLines()).isZero();
+    assertThat(writer.toString().lines()).hasSize(1_000);
+    assertThat(writer.toString()).doesNotContain("dropped");
+  }
+
+  @Test
+  public void lines_consumed_after_close_are_written_synchronously() {
+    AsyncPipe underTest = new AsyncPipe(writer, null, 16, AsyncPipe.OverflowPolicy.BLOCK);
+    underTest.close();
+
+    underTest.consumeLine("foo");
+
+    assertThat(writer).hasToString("foo\n");
+  }
+
+  @Test
+  public void fail_if_capacity_is_not_positive() {
+    assertThatThrownBy(() -> new AsyncPipe(writer, null, 0, AsyncPipe.OverflowPolicy.BLOCK))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Capacity must be positive: 0");
+  }
+
+  @Test
+  public void parse_overflow_policy() {
+    assertThat(AsyncPipe.OverflowPolicy.parse(null)).isEqualTo(AsyncPipe.OverflowPolicy.BLOCK);
+    assertThat(AsyncPipe.OverflowPolicy.parse("")).isEqualTo(AsyncPipe.OverflowPolicy.BLOCK);
+    assertThat(AsyncPipe.OverflowPolicy.parse(" drop")).isEqualTo(AsyncPipe.OverflowPolicy.DROP);
+  }
+}
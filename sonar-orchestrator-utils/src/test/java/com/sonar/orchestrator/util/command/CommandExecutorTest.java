@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.apache.commons.lang3.SystemUtils;
@@ -111,6 +113,69 @@ public class CommandExecutorTest {
     }
   }
 
+  @Test
+  public void should_kill_process_after_timeout() throws Exception {
+    AtomicReference<ProcessHandle> process = new AtomicReference<>();
+    Command command = Command.create(getScript("forever")).setDirectory(workDir);
+    try {
+      CommandExecutor.create().execute(command, line -> {
+      }, 300L, process::set);
+      fail();
+    } catch (CommandException e) {
+      assertThat(e).hasMessageContaining("Timeout exceeded: 300 ms");
+      process.get().onExit().get(10, TimeUnit.SECONDS);
+      assertThat(process.get().isAlive()).isFalse();
+    }
+  }
+
+  @Test
+  public void should_kill_forcibly_process_that_ignores_sigterm() throws Exception {
+    AtomicReference<ProcessHandle> process = new AtomicReference<>();
+    Command command = Command.create(getScript("ignore_sigterm")).setDirectory(workDir);
+    long start = System.currentTimeMillis();
+    try {
+      CommandExecutor.create().execute(command, line -> {
+      }, 300L, process::set);
+      fail();
+    } catch (CommandException e) {
+      assertThat(e).hasMessageContaining("Timeout exceeded: 300 ms");
+      assertThat(System.currentTimeMillis() - start).isLessThan(300L + CommandExecutor.DESTROY_GRACE_PERIOD_MS + CommandExecutor.OUTPUT_TIMEOUT_MS + 5_000L);
+      process.get().onExit().get(10, TimeUnit.SECONDS);
+      assertThat(process.get().isAlive()).isFalse();
+    }
+  }
+
+  @Test
+  public void notify_listener_with_process_handle() throws Exception {
+    AtomicReference<ProcessHandle> process = new AtomicReference<>();
+    Command command = Command.create(getScript("output")).setDirectory(workDir);
+
+    int exitCode = CommandExecutor.create().execute(command, line -> {
+    }, 1000L, process::set);
+
+    assertThat(exitCode).isZero();
+    assertThat(process.get().pid()).isPositive();
+    assertThat(process.get().isAlive()).isFalse();
+  }
+
+  @Test
+  public void kill_process_if_listener_fails() throws Exception {
+    AtomicReference<ProcessHandle> process = new AtomicReference<>();
+    Command command = Command.create(getScript("forever")).setDirectory(workDir);
+    try {
+      CommandExecutor.create().execute(command, line -> {
+      }, 60_000L, p -> {
+        process.set(p);
+        throw new IllegalStateException("boom");
+      });
+      fail();
+    } catch (CommandException e) {
+      assertThat(e).hasRootCauseMessage("boom");
+      process.get().onExit().get(10, TimeUnit.SECONDS);
+      assertThat(process.get().isAlive()).isFalse();
+    }
+  }
+
   @Test
   public void should_fail_null_command_not_allowed() {
     thrown.expect(NullPointerException.class);
@@ -0,0 +1,112 @@
+/*
+ * Orchestrator Utils
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.util.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ProcessResourceMonitorTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void parse_cpu_ticks_of_proc_stat() {
+    String stat = "4242 (java (main) x) S 1 4242 4242 0 -1 4194560 27065 0 0 0 1234 56 789 12 20 0 42 0 1937 5016276992 61227 18446744073709551615";
+
+    assertThat(ProcessResourceMonitor.parseCpuTicks(stat)).containsExactly(1234L, 56L, 789L, 12L);
+    assertThat(ProcessResourceMonitor.parseCpuTicks("4242 (java) S 1")).isNull();
+    assertThat(ProcessResourceMonitor.parseCpuTicks("4242 (java) S 1 4242 4242 0 -1 4194560 27065 0 0 0 1234 56")).isNull();
+    assertThat(ProcessResourceMonitor.parseCpuTicks("")).isNull();
+  }
+
+  @Test
+  public void parse_memory_of_proc_status() {
+    List<String> status = List.of("Name:\tjava", "VmPeak:\t 5000000 kB", "VmHWM:\t  300000 kB", "VmRSS:\t  250000 kB", "Threads:\t42");
+
+    assertThat(ProcessResourceMonitor.parseMemory(status)).containsExactly(250_000L * 1024, 300_000L * 1024);
+    assertThat(ProcessResourceMonitor.parseMemory(List.of("Name:\tkthreadd"))).containsExactly(-1L, -1L);
+  }
+
+  @Test
+  public void cpu_times_include_waited_for_children_of_root_process() throws IOException {
+    Path procDir = temp.newFolder().toPath();
+    ProcessHandle process = ProcessHandle.current();
+    Path stat = procDir.resolve(process.pid() + "/stat");
+    Files.createDirectories(stat.getParent());
+    Files.writeString(stat, process.pid() + " (java) S 1 4242 4242 0 -1 4194560 27065 0 0 0 100 20 300 40 20 0 42 0 1937 5016276992 61227", UTF_8);
+    ProcessResourceMonitor underTest = new ProcessResourceMonitor(procDir);
+
+    underTest.sample(process);
+
+    ResourceUsage usage = underTest.getUsage("verify", 0);
+    assertThat(usage.getUserCpuTime()).hasValue(Duration.ofMillis(4_000));
+    assertThat(usage.getSystemCpuTime()).hasValue(Duration.ofMillis(600));
+    assertThat(usage.getCpuTime()).hasValue(Duration.ofMillis(4_600));
+  }
+
+  @Test
+  public void usage_of_process_not_started() {
+    ResourceUsage usage = new ProcessResourceMonitor().getUsage("clean", 1);
+
+    assertThat(usage.getName()).isEqualTo("clean");
+    assertThat(usage.getExitStatus()).isEqualTo(1);
+    assertThat(usage.getWallTime()).isEqualTo(Duration.ZERO);
+    assertThat(usage.getCpuTime()).isEmpty();
+    assertThat(usage.getUserCpuTime()).isEmpty();
+    assertThat(usage.getSystemCpuTime()).isEmpty();
+    assertThat(usage.getPeakRssBytes()).isEmpty();
+    assertThat(usage).hasToString("clean: exit status 1, wall time 0 ms");
+  }
+
+  @Test
+  public void sample_running_process() throws IOException {
+    ProcessResourceMonitor underTest = new ProcessResourceMonitor();
+    String script = new File("src/test/scripts/" + (SystemUtils.IS_OS_WINDOWS ? "forever.bat" : "forever.sh")).getCanonicalPath();
+    try {
+      CommandExecutor.create().execute(Command.create(script), line -> {
+      }, 1_000L, underTest);
+      fail();
+    } catch (CommandException e) {
+      // timeout
+    }
+
+    ResourceUsage usage = underTest.getUsage("forever", -1);
+    assertThat(usage.getWallTime()).isGreaterThanOrEqualTo(Duration.ofMillis(900));
+    if (SystemUtils.IS_OS_LINUX) {
+      assertThat(usage.getPeakRssBytes()).isPresent();
+      assertThat(usage.getPeakRssBytes().getAsLong()).isPositive();
+      assertThat(usage.getUserCpuTime()).isPresent();
+      assertThat(usage.getSystemCpuTime()).isPresent();
+    }
+  }
+}
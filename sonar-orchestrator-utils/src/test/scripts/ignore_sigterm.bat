@@ -0,0 +1,4 @@
+@ECHO OFF
+
+:LOOP
+GOTO LOOP
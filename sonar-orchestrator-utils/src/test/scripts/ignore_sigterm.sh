@@ -0,0 +1,8 @@
+#!/bin/sh
+
+# SIGTERM is ignored by the script and by its children
+trap "" TERM
+while test "notempty"
+do
+  sleep 1
+done
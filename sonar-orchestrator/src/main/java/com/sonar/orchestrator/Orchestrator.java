@@ -24,19 +24,28 @@ import com.eclipsesource.json.JsonValue;
 import com.sonar.orchestrator.build.Build;
 import com.sonar.orchestrator.build.BuildResult;
 import com.sonar.orchestrator.build.BuildRunner;
+import com.sonar.orchestrator.build.SonarScanner;
+import com.sonar.orchestrator.build.SonarScannerInstaller;
+import com.sonar.orchestrator.build.coverage.JaCoCoArgumentsBuilder;
 import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.config.FileSystem;
 import com.sonar.orchestrator.container.Server;
 import com.sonar.orchestrator.container.SonarDistribution;
 import com.sonar.orchestrator.db.Database;
+import com.sonar.orchestrator.db.DatabaseFactory;
 import com.sonar.orchestrator.db.DefaultDatabase;
 import com.sonar.orchestrator.http.HttpCall;
 import com.sonar.orchestrator.http.HttpMethod;
+import com.sonar.orchestrator.http.HttpMetrics;
 import com.sonar.orchestrator.http.HttpResponse;
+import com.sonar.orchestrator.http.ResponseCache;
 import com.sonar.orchestrator.licenses.Licenses;
+import com.sonar.orchestrator.locator.CacheBundle;
 import com.sonar.orchestrator.locator.FileLocation;
 import com.sonar.orchestrator.locator.Location;
 import com.sonar.orchestrator.locator.Locators;
+import com.sonar.orchestrator.server.CeActivityReport;
+import com.sonar.orchestrator.server.CeTask;
 import com.sonar.orchestrator.server.Packaging;
 import com.sonar.orchestrator.server.PackagingResolver;
 import com.sonar.orchestrator.server.ServerCommandLineFactory;
@@ -45,20 +54,32 @@ import com.sonar.orchestrator.server.ServerProcess;
 import com.sonar.orchestrator.server.ServerProcessImpl;
 import com.sonar.orchestrator.server.StartupLogWatcher;
 import com.sonar.orchestrator.server.SynchronousAnalyzer;
+import com.sonar.orchestrator.util.AsyncPipe;
 import com.sonar.orchestrator.util.SharedDir;
+import com.sonar.orchestrator.util.Version;
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
 
 public class Orchestrator {
 
+  private static final Logger LOG = LoggerFactory.getLogger(Orchestrator.class);
   private static final String ORCHESTRATOR_IS_NOT_STARTED = "Orchestrator is not started";
   private static final String SONAR_LOGIN_PROPERTY_NAME = "sonar.login";
   private static final String SONAR_TOKEN_PROPERTY_NAME = "sonar.token";
+  private static final Version DEFAULT_SCANNER_VERSION = Version.create(SonarScanner.DEFAULT_SCANNER_VERSION);
 
   private final Configuration config;
   private final Locators locators;
@@ -106,6 +127,74 @@ public class Orchestrator {
     return server;
   }
 
+  /**
+   * Downloads to the local cache all the artifacts required by the distribution, without installing
+   * nor starting SonarQube: the SonarQube zip, the plugins, the bundled plugins, the JDBC driver defined
+   * by {@code sonar.jdbc.driverMavenKey}, the default SonarScanner CLI and the JaCoCo agent.
+   * <p>
+   * Artifacts are downloaded in parallel, by {@code orchestrator.prefetch.threads} threads (default is 4).
+   * Can be called before {@link #start()}, for example to warm up caches while tests are being compiled.
+   *
+   * @return the located files, keyed by {@link Location#toString()}
+   */
+  public Map<String, File> prefetch() {
+    return locators.prefetch(requiredLocations(), config.getInt("orchestrator.prefetch.threads", Locators.DEFAULT_PREFETCH_THREADS));
+  }
+
+  /**
+   * Fingerprint of the artifacts required by the distribution (see {@link #prefetch()}), with version aliases
+   * resolved. It can be used as the key of a {@link CacheBundle} in the cache of CI.
+   */
+  public String getCacheFingerprint() {
+    return newCacheBundle().fingerprint(requiredLocations());
+  }
+
+  /**
+   * Writes a lockfile of the Maven artifacts required by the distribution, with version aliases resolved.
+   * See {@link CacheBundle#readLockfile(Path)}.
+   */
+  public void writeLockfile(Path lockfile) {
+    newCacheBundle().writeLockfile(requiredLocations(), lockfile);
+  }
+
+  /**
+   * Exports the artifacts required by the distribution (see {@link #prefetch()}) to a {@link CacheBundle}.
+   *
+   * @param includeScannerInstall whether the installation of the default version of SonarScanner CLI, if any,
+   *                              is included in the bundle
+   */
+  public CacheBundle.Manifest exportCacheBundle(Path archive, boolean includeScannerInstall) {
+    List<String> workspaceDirs = new ArrayList<>();
+    if (includeScannerInstall) {
+      workspaceDirs.add(SonarScannerInstaller.directoryName(DEFAULT_SCANNER_VERSION, null));
+    }
+    return newCacheBundle().export(requiredLocations(), workspaceDirs, archive);
+  }
+
+  /**
+   * Restores a {@link CacheBundle} exported by {@link #exportCacheBundle(Path, boolean)}.
+   *
+   * @param expectedFingerprint if not null, the bundle is rejected when it has a different fingerprint
+   */
+  public CacheBundle.Manifest restoreCacheBundle(Path archive, @Nullable String expectedFingerprint) {
+    return newCacheBundle().restore(archive, expectedFingerprint);
+  }
+
+  private CacheBundle newCacheBundle() {
+    return new CacheBundle(config.fileSystem(), locators);
+  }
+
+  private List<Location> requiredLocations() {
+    List<Location> locations = new ArrayList<>();
+    locations.add(new PackagingResolver(locators).resolveZipLocation(distribution));
+    locations.addAll(distribution.getPluginLocations());
+    locations.addAll(distribution.getBundledPluginLocations());
+    DatabaseFactory.driverMavenLocation(config).ifPresent(locations::add);
+    locations.add(SonarScannerInstaller.mavenLocation(DEFAULT_SCANNER_VERSION, null));
+    locations.add(JaCoCoArgumentsBuilder.getAgentLocation());
+    return locations;
+  }
+
   /**
    * Install and start SonarQube.
    * <p>
@@ -124,8 +213,11 @@ public class Orchestrator {
     install();
 
     FileSystem fs = config.fileSystem();
-    process = new ServerProcessImpl(new ServerCommandLineFactory(fs), server, startupLogWatcher);
+    process = new ServerProcessImpl(new ServerCommandLineFactory(fs), server, startupLogWatcher)
+      .setConsole(Boolean.parseBoolean(config.getString(AsyncPipe.QUIET_CONSOLE_PROPERTY, "false")),
+        AsyncPipe.OverflowPolicy.parse(config.getString(AsyncPipe.OVERFLOW_PROPERTY, null)));
     process.start();
+    initAdminToken();
 
     for (Location backup : distribution.getProfileBackups()) {
       server.restoreProfile(backup);
@@ -134,6 +226,7 @@ public class Orchestrator {
     if (distribution.isActivateLicense()) {
       activateLicense();
     }
+    distribution.getComputeEngineWorkers().ifPresent(this::configureComputeEngineWorkers);
 
     buildRunner = new BuildRunner(config, locators);
   }
@@ -158,6 +251,17 @@ public class Orchestrator {
     configureLicense(null);
   }
 
+  private void configureComputeEngineWorkers(int workers) {
+    if (!SonarDistribution.supportsComputeEngineWorkers(server.getEdition())) {
+      throw new IllegalStateException("Compute Engine workers can not be configured with edition " + server.getEdition());
+    }
+    server.newHttpCall("api/ce/set_worker_count")
+      .setMethod(HttpMethod.POST)
+      .setAdminCredentials()
+      .setParam("count", String.valueOf(workers))
+      .execute();
+  }
+
   private void configureLicense(@Nullable String license) {
     HttpCall httpCall = server.newHttpCall(license == null ? "api/editions/unset_license" : "api/editions/set_license")
       .setMethod(HttpMethod.POST)
@@ -185,14 +289,18 @@ public class Orchestrator {
     if (database != null) {
       database.stop();
     }
+    if (server != null && server.getHttpClient().getMetrics().getTotalCalls() > 0) {
+      LOG.info("HTTP calls to {}:{}{}", server.getUrl(), System.lineSeparator(), getHttpMetrics().dump());
+    }
   }
 
   /**
-   * restart of the sonarQube server
+   * restart of the sonarQube server. The cached responses of web services, if any, are invalidated.
    */
   public void restartServer() {
     if (process != null) {
       process.stop();
+      server.getHttpClient().getResponseCache().ifPresent(ResponseCache::invalidateAll);
       process.start();
     }
   }
@@ -213,6 +321,19 @@ public class Orchestrator {
     return server;
   }
 
+  /**
+   * Latency and volume of the calls to the web services of the server, grouped by endpoint. They are
+   * logged when Orchestrator stops.
+   *
+   * @throws IllegalStateException if the server is not installed yet
+   */
+  public HttpMetrics getHttpMetrics() {
+    if (server == null) {
+      throw new IllegalStateException("Server is not installed");
+    }
+    return server.getHttpClient().getMetrics();
+  }
+
   /**
    * File located in the shared directory defined by the system property orchestrator.it_sources or environment variable SONAR_IT_SOURCES.
    * Example : getFileLocationOfShared("javascript/performancing/pom.xml")
@@ -253,11 +374,54 @@ public class Orchestrator {
       buildResult = buildRunner.run(server.getUrl(), build);
     }
     if (waitForComputeEngine) {
-      new SynchronousAnalyzer(server).waitForDone();
+      waitForComputeEngine(buildResult);
     }
     return buildResult;
   }
 
+  /**
+   * Waits for the Compute Engine tasks submitted by the build. The whole queue is waited for when the ids
+   * of the tasks are not logged by the scanner.
+   */
+  private void waitForComputeEngine(BuildResult buildResult) {
+    SynchronousAnalyzer analyzer = new SynchronousAnalyzer(server);
+    List<String> taskIds = buildResult.getCeTaskIds();
+    if (taskIds.isEmpty()) {
+      analyzer.waitForDone();
+    } else {
+      taskIds.forEach(analyzer::waitForTask);
+    }
+  }
+
+  /**
+   * Waits for a task of the Compute Engine, for example the one submitted by a build executed without
+   * waiting ({@link #executeBuild(Build, boolean)}), and returns its status and timings.
+   *
+   * @param taskId see {@link BuildResult#getCeTaskId()}
+   */
+  public CeTask waitForTask(String taskId) {
+    requireNonNull(server, ORCHESTRATOR_IS_NOT_STARTED);
+    return new SynchronousAnalyzer(server).waitForTask(taskId);
+  }
+
+  /**
+   * Throughput of the Compute Engine, for example to compare the queue wait and the execution time
+   * of the tasks submitted by {@link #executeBuildsParallel(int, Build[])}.
+   *
+   * @see OrchestratorBuilder#setComputeEngineWorkers(int)
+   */
+  public CeActivityReport getComputeEngineActivity() {
+    return getComputeEngineActivity(null);
+  }
+
+  /**
+   * Same as {@link #getComputeEngineActivity()}, but only for the tasks submitted after the given date.
+   */
+  public CeActivityReport getComputeEngineActivity(@Nullable Instant minSubmittedAt) {
+    requireNonNull(server, ORCHESTRATOR_IS_NOT_STARTED);
+    return CeActivityReport.fetch(server, minSubmittedAt);
+  }
+
   public String getDefaultAdminToken() {
     if (this.adminToken != null) {
       return this.adminToken;
@@ -284,6 +448,21 @@ public class Orchestrator {
     }
   }
 
+  /**
+   * Internal calls authenticated as administrator use a token, which is much cheaper for the server to verify
+   * than the password. Basic authentication with the password is kept if tokens are not supported.
+   */
+  private void initAdminToken() {
+    if (!server.version().isGreaterThanOrEquals(5, 3)) {
+      return;
+    }
+    try {
+      getDefaultAdminToken();
+    } catch (RuntimeException e) {
+      LOG.warn("Fail to generate admin token, internal calls are authenticated with the admin password", e);
+    }
+  }
+
   private String generateDefaultAdminToken() {
     HttpCall httpCall = server.newHttpCall("api/user_tokens/generate")
       .setParam("name", UUID.randomUUID().toString())
@@ -294,6 +473,7 @@ public class Orchestrator {
       this.adminToken = ofNullable(Json.parse(response.getBodyAsString()).asObject().get("token"))
         .map(JsonValue::asString)
         .orElseThrow(() -> new IllegalStateException("Could not extract admin token from response: " + response.getBodyAsString()));
+      server.setAdminToken(this.adminToken);
       return this.adminToken;
     } else {
       throw new IllegalStateException("Could not get token for admin: " + response.getBodyAsString());
@@ -309,8 +489,26 @@ public class Orchestrator {
     for (int index = 0; index < builds.length; index++) {
       results[index] = buildRunner.run(server.getUrl(), builds[index]);
     }
-    new SynchronousAnalyzer(server).waitForDone();
+    for (BuildResult result : results) {
+      waitForComputeEngine(result);
+    }
     return results;
   }
 
+  /**
+   * Executes independent builds concurrently, at most {@code maxConcurrency} at the same time, for example to
+   * analyze many small projects. Each build waits for its own Compute Engine tasks while the others are running.
+   *
+   * @return the results, in the order of the builds
+   * @throws IllegalStateException if some builds fail, with the failures ({@link com.sonar.orchestrator.build.BuildFailureException})
+   *                               as cause and suppressed exceptions
+   */
+  public BuildResult[] executeBuildsParallel(int maxConcurrency, Build<?>... builds) {
+    requireNonNull(buildRunner, ORCHESTRATOR_IS_NOT_STARTED);
+
+    Arrays.stream(builds).forEach(this::setDefaultAdminToken);
+
+    return buildRunner.runParallel(server.getUrl(), maxConcurrency, Arrays.asList(builds), this::waitForComputeEngine);
+  }
+
 }
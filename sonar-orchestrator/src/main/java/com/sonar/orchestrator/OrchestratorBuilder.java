@@ -267,6 +267,16 @@ public abstract class OrchestratorBuilder<BUILDER extends OrchestratorBuilder<BU
     return (BUILDER) this;
   }
 
+  /**
+   * Number of reports that the Compute Engine processes concurrently, configured after startup. Requires
+   * the editions Enterprise or Data Center, and a license (see {@link #activateLicense()}). By default the
+   * Compute Engine has a single worker.
+   */
+  public BUILDER setComputeEngineWorkers(int workers) {
+    distribution.setComputeEngineWorkers(workers);
+    return (BUILDER) this;
+  }
+
   /**
    * Keeps all bundled plugins
    */
@@ -0,0 +1,92 @@
+/*
+ * Orchestrator
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator;
+
+import com.sonar.orchestrator.build.SonarScanner;
+import com.sonar.orchestrator.build.SonarScannerInstaller;
+import com.sonar.orchestrator.config.Configuration;
+import com.sonar.orchestrator.locator.CacheBundle;
+import com.sonar.orchestrator.locator.Locators;
+import com.sonar.orchestrator.util.Version;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.sonar.orchestrator.util.Preconditions.checkArgument;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * Command-line entry point to export and restore a {@link CacheBundle}:
+ * <ul>
+ *   <li>{@code export <archive>}: exports the artifacts required by the distribution of the tests, defined by the property
+ *   {@code orchestrator.definition} (see {@link OrchestratorPrefetch}), or the artifacts listed by the lockfile
+ *   defined by the property {@code orchestrator.bundle.lockfile}. The installation of SonarScanner CLI is included
+ *   if the property {@code orchestrator.bundle.includeScanner} is {@code true}.</li>
+ *   <li>{@code restore <archive>}: restores the bundle. It is rejected if the property {@code orchestrator.bundle.fingerprint}
+ *   is set and does not match.</li>
+ *   <li>{@code lock <lockfile>}: writes the lockfile of the distribution</li>
+ *   <li>{@code fingerprint}: prints the fingerprint of the distribution, to be used as key of the CI cache</li>
+ * </ul>
+ */
+public final class OrchestratorCacheBundle {
+
+  static final String LOCKFILE_PROPERTY = "orchestrator.bundle.lockfile";
+  static final String INCLUDE_SCANNER_PROPERTY = "orchestrator.bundle.includeScanner";
+  static final String FINGERPRINT_PROPERTY = "orchestrator.bundle.fingerprint";
+
+  private OrchestratorCacheBundle() {
+    // only static methods
+  }
+
+  public static void main(String[] args) {
+    run(Configuration.createEnv(), args);
+  }
+
+  static void run(Configuration config, String[] args) {
+    checkArgument(args.length >= 1, "Usage: export <archive> | restore <archive> | lock <lockfile> | fingerprint");
+    String command = args[0];
+    switch (command) {
+      case "export" -> export(config, pathArgument(args));
+      case "restore" -> newCacheBundle(config).restore(pathArgument(args), config.getString(FINGERPRINT_PROPERTY));
+      case "lock" -> OrchestratorPrefetch.newOrchestrator(config).writeLockfile(pathArgument(args));
+      case "fingerprint" -> System.out.println(OrchestratorPrefetch.newOrchestrator(config).getCacheFingerprint());
+      default -> throw new IllegalArgumentException("Unknown command: " + command);
+    }
+  }
+
+  private static void export(Configuration config, Path archive) {
+    boolean includeScanner = Boolean.parseBoolean(config.getString(INCLUDE_SCANNER_PROPERTY, "false"));
+    String lockfile = config.getString(LOCKFILE_PROPERTY);
+    if (isEmpty(lockfile)) {
+      OrchestratorPrefetch.newOrchestrator(config).exportCacheBundle(archive, includeScanner);
+    } else {
+      List<String> workspaceDirs = includeScanner ? List.of(SonarScannerInstaller.directoryName(Version.create(SonarScanner.DEFAULT_SCANNER_VERSION), null)) : List.of();
+      newCacheBundle(config).export(CacheBundle.readLockfile(Path.of(lockfile)), workspaceDirs, archive);
+    }
+  }
+
+  private static CacheBundle newCacheBundle(Configuration config) {
+    return new CacheBundle(config.fileSystem(), new Locators(config));
+  }
+
+  private static Path pathArgument(String[] args) {
+    checkArgument(args.length == 2, "Missing path argument of command %s", args[0]);
+    return Path.of(args[1]);
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Orchestrator
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator;
+
+import com.sonar.orchestrator.config.Configuration;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import javax.annotation.CheckForNull;
+
+import static com.sonar.orchestrator.util.Preconditions.checkArgument;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * Command-line entry point that downloads the artifacts required by a distribution to the local cache,
+ * so that CI can warm up caches in a step that runs before, or in parallel with, the tests.
+ * See {@link Orchestrator#prefetch()}.
+ * <p>
+ * The distribution is the one of the tests, so that the SonarQube version, edition and plugins can not differ.
+ * The property {@code orchestrator.definition} references the static field, or the static method without
+ * parameters, that defines the {@link Orchestrator} of the tests, with the format {@code <class>#<member>}.
+ * The member is {@code ORCHESTRATOR} by default. It can return an {@link Orchestrator}, an {@link OrchestratorBuilder}
+ * or any object with a method {@code getOrchestrator()}, for example the JUnit 4 rule. The server is not started.
+ * <p>
+ * The configuration is loaded as for {@link OrchestratorBuilder} (file {@code ~/.sonar/orchestrator/orchestrator.properties},
+ * system properties and environment variables). Example:
+ * <pre>
+ *   java -Dorchestrator.definition=com.acme.it.Tests#ORCHESTRATOR -Dsonar.runtimeVersion=LATEST_RELEASE \
+ *     -cp ... com.sonar.orchestrator.OrchestratorPrefetch
+ * </pre>
+ */
+public final class OrchestratorPrefetch {
+
+  static final String DEFINITION_PROPERTY = "orchestrator.definition";
+  static final String DEFAULT_MEMBER = "ORCHESTRATOR";
+
+  private OrchestratorPrefetch() {
+    // only static methods
+  }
+
+  public static void main(String[] args) {
+    newOrchestrator(Configuration.createEnv()).prefetch();
+  }
+
+  /**
+   * Loads the {@link Orchestrator} of the tests referenced by the property {@link #DEFINITION_PROPERTY}
+   */
+  static Orchestrator newOrchestrator(Configuration config) {
+    String definition = config.getString(DEFINITION_PROPERTY);
+    checkArgument(!isEmpty(definition), "Missing definition of Orchestrator. Please set the property %s", DEFINITION_PROPERTY);
+    int separator = definition.indexOf('#');
+    String className = separator < 0 ? definition.trim() : definition.substring(0, separator).trim();
+    String memberName = separator < 0 ? DEFAULT_MEMBER : definition.substring(separator + 1).trim();
+    return toOrchestrator(readMember(loadClass(className), memberName), definition);
+  }
+
+  private static Class<?> loadClass(String className) {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    try {
+      return Class.forName(className, true, classLoader == null ? OrchestratorPrefetch.class.getClassLoader() : classLoader);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException("Class of Orchestrator definition not found: " + className, e);
+    }
+  }
+
+  private static Object readMember(Class<?> clazz, String memberName) {
+    try {
+      Field field = findField(clazz, memberName);
+      if (field != null) {
+        checkStatic(field);
+        field.setAccessible(true);
+        return field.get(null);
+      }
+      Method method = clazz.getDeclaredMethod(memberName);
+      checkStatic(method);
+      method.setAccessible(true);
+      return method.invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("No static field or method " + memberName + " in " + clazz.getName(), e);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Fail to read " + clazz.getName() + "#" + memberName, e);
+    }
+  }
+
+  @CheckForNull
+  private static Field findField(Class<?> clazz, String name) {
+    try {
+      return clazz.getDeclaredField(name);
+    } catch (NoSuchFieldException e) {
+      return null;
+    }
+  }
+
+  private static void checkStatic(Member member) {
+    checkArgument(Modifier.isStatic(member.getModifiers()), "%s#%s must be static", member.getDeclaringClass().getName(), member.getName());
+  }
+
+  private static Orchestrator toOrchestrator(Object value, String definition) {
+    if (value instanceof Orchestrator orchestrator) {
+      return orchestrator;
+    }
+    if (value instanceof OrchestratorBuilder<?, ?> builder) {
+      return toOrchestrator(builder.build(), definition);
+    }
+    checkArgument(value != null, "Orchestrator definition %s is null", definition);
+    try {
+      Method getter = value.getClass().getMethod("getOrchestrator");
+      checkArgument(Orchestrator.class.isAssignableFrom(getter.getReturnType()), "Orchestrator definition %s is not supported: %s",
+        definition, value.getClass().getName());
+      return (Orchestrator) getter.invoke(value);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("Orchestrator definition " + definition + " is not supported: " + value.getClass().getName(), e);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Fail to get the Orchestrator of " + definition, e);
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Orchestrator
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.container;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import com.sonar.orchestrator.http.HttpCall;
+import com.sonar.orchestrator.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+
+import static java.lang.String.format;
+
+/**
+ * Iterates over the items of a paginated web service (parameters {@code p} and {@code ps}). The next page
+ * is requested asynchronously as soon as the current one is received, so that the network round-trip
+ * overlaps with the processing of the items.
+ * <p>
+ * Elasticsearch-based web services do not return more than {@value #MAX_RESULTS} results for a given
+ * query. For the web services that support it (see {@code KEY_RANGES}), the results are then sliced by
+ * ranges of a sorted field: the next slice starts at the value of the last item received.
+ */
+class PaginatedItems implements Iterator<JsonObject>, AutoCloseable {
+
+  static final int MAX_RESULTS = 10_000;
+  static final int DEFAULT_PAGE_SIZE = 500;
+
+  private static final Map<String, KeyRange> KEY_RANGES = Map.of(
+    "api/issues/search", new KeyRange("CREATION_DATE", "createdAfter", item -> item.getString("creationDate", null), "key"));
+
+  private final Function<Map<String, String>, HttpCall> callFactory;
+  private final String path;
+  private final Map<String, String> params;
+  private final String itemsField;
+  private final int pageSize;
+  private final int maxResults;
+  @CheckForNull
+  private final KeyRange keyRange;
+
+  private final Deque<JsonObject> items = new ArrayDeque<>();
+  @CheckForNull
+  private CompletableFuture<HttpResponse> nextPage = null;
+  private boolean started = false;
+  private boolean truncated = false;
+  private int pageIndex = 1;
+  @CheckForNull
+  private String rangeStart = null;
+  // keys of the items having the greatest value of the key range received so far
+  private final Set<String> boundaryKeys = new HashSet<>();
+  @CheckForNull
+  private String boundaryValue = null;
+  // the current slice includes its lower bound, so it returns again these items of the previous slice
+  private Set<String> sliceStartKeys = Set.of();
+
+  PaginatedItems(Function<Map<String, String>, HttpCall> callFactory, String path, Map<String, String> params, String itemsField, int maxResults) {
+    this.callFactory = callFactory;
+    this.path = StringUtils.strip(path, "/");
+    this.params = new LinkedHashMap<>(params);
+    this.itemsField = itemsField;
+    this.pageSize = Integer.parseInt(this.params.getOrDefault("ps", String.valueOf(DEFAULT_PAGE_SIZE)));
+    this.maxResults = maxResults;
+    KeyRange range = KEY_RANGES.get(this.path);
+    // a custom sort can not be combined with the slicing by key range
+    this.keyRange = range != null && !this.params.containsKey("s") ? range : null;
+    if (keyRange != null) {
+      this.params.put("s", keyRange.sortField);
+      this.params.put("asc", "true");
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (!started) {
+      started = true;
+      nextPage = requestPage();
+    }
+    while (items.isEmpty()) {
+      if (nextPage == null) {
+        if (truncated) {
+          throw new IllegalStateException(format("Fail to paginate %s: web service does not return more than %d results", path, maxResults));
+        }
+        return false;
+      }
+      receivePage();
+    }
+    return true;
+  }
+
+  @Override
+  public JsonObject next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return items.removeFirst();
+  }
+
+  /**
+   * Cancels the prefetch of the next page, if any
+   */
+  @Override
+  public void close() {
+    if (nextPage != null) {
+      nextPage.cancel(true);
+      nextPage = null;
+    }
+  }
+
+  private CompletableFuture<HttpResponse> requestPage() {
+    Map<String, String> pageParams = new LinkedHashMap<>(params);
+    pageParams.put("p", String.valueOf(pageIndex));
+    pageParams.put("ps", String.valueOf(pageSize));
+    if (keyRange != null && rangeStart != null) {
+      pageParams.put(keyRange.rangeParam, rangeStart);
+    }
+    return callFactory.apply(pageParams).executeAsync();
+  }
+
+  private void receivePage() {
+    JsonObject page;
+    try {
+      page = Json.parse(nextPage.join().getBodyAsString()).asObject();
+    } catch (CompletionException e) {
+      nextPage = null;
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    JsonValue pageItems = page.get(itemsField);
+    if (pageItems == null || !pageItems.isArray()) {
+      throw new IllegalStateException(format("Fail to paginate %s: field '%s' is missing from response", path, itemsField));
+    }
+    int received = 0;
+    String lastValue = null;
+    for (JsonValue value : pageItems.asArray()) {
+      JsonObject item = value.asObject();
+      received++;
+      if (keyRange == null || !isDuplicate(item)) {
+        items.addLast(item);
+      }
+      lastValue = keyRange == null ? null : keyRange.valueOf.apply(item);
+    }
+    nextPage = hasMorePages(total(page), received) ? requestNextPage(lastValue) : null;
+  }
+
+  private boolean isDuplicate(JsonObject item) {
+    String value = keyRange.valueOf.apply(item);
+    String key = item.getString(keyRange.uniqueKey, null);
+    if (rangeStart != null && rangeStart.equals(value) && sliceStartKeys.contains(key)) {
+      return true;
+    }
+    if (!Objects.equals(value, boundaryValue)) {
+      boundaryValue = value;
+      boundaryKeys.clear();
+    }
+    boundaryKeys.add(key);
+    return false;
+  }
+
+  private boolean hasMorePages(long total, int received) {
+    return received > 0 && (long) pageIndex * pageSize < total;
+  }
+
+  @CheckForNull
+  private CompletableFuture<HttpResponse> requestNextPage(@Nullable String lastValue) {
+    if ((long) (pageIndex + 1) * pageSize <= maxResults) {
+      pageIndex++;
+      return requestPage();
+    }
+    if (keyRange == null || lastValue == null) {
+      truncated = true;
+      return null;
+    }
+    if (lastValue.equals(rangeStart)) {
+      throw new IllegalStateException(format("Fail to paginate %s: more than %d results have the same value of parameter %s: %s",
+        path, maxResults, keyRange.rangeParam, lastValue));
+    }
+    rangeStart = lastValue;
+    sliceStartKeys = lastValue.equals(boundaryValue) ? new HashSet<>(boundaryKeys) : Set.of();
+    pageIndex = 1;
+    return requestPage();
+  }
+
+  private static long total(JsonObject page) {
+    JsonValue paging = page.get("paging");
+    if (paging != null && paging.isObject()) {
+      return paging.asObject().getLong("total", 0L);
+    }
+    return page.getLong("total", 0L);
+  }
+
+  /**
+   * Slicing of the results by ranges of a sorted field
+   */
+  private static class KeyRange {
+    // value of parameter "s" that sorts the results by the field
+    private final String sortField;
+    // lower bound (inclusive) of the range
+    private final String rangeParam;
+    private final Function<JsonObject, String> valueOf;
+    // identifies an item, in order to drop the items returned by two consecutive slices
+    private final String uniqueKey;
+
+    private KeyRange(String sortField, String rangeParam, Function<JsonObject, String> valueOf, String uniqueKey) {
+      this.sortField = sortField;
+      this.rangeParam = rangeParam;
+      this.valueOf = valueOf;
+      this.uniqueKey = uniqueKey;
+    }
+  }
+}
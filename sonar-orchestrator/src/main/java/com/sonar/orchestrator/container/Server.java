@@ -19,7 +19,10 @@
  */
 package com.sonar.orchestrator.container;
 
+import com.eclipsesource.json.JsonObject;
+import com.sonar.orchestrator.http.HttpBatch;
 import com.sonar.orchestrator.http.HttpCall;
+import com.sonar.orchestrator.http.HttpClient;
 import com.sonar.orchestrator.http.HttpClientFactory;
 import com.sonar.orchestrator.http.HttpMethod;
 import com.sonar.orchestrator.locator.Location;
@@ -30,6 +33,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
@@ -51,8 +58,20 @@ public class Server {
   private final int searchPort;
   @CheckForNull
   private final String clusterNodeName;
+  private final HttpClient httpClient;
+  @CheckForNull
+  private volatile String adminToken;
 
   public Server(Locators locators, File home, Edition edition, Version version, HttpUrl url, int searchPort, @Nullable String clusterNodeName) {
+    this(locators, home, edition, version, url, searchPort, clusterNodeName, HttpClientFactory.create());
+  }
+
+  /**
+   * @param httpClient the client used by {@link #newHttpCall(String)}. Each server can have its own client,
+   *                   so that servers do not share the same connection pool.
+   */
+  public Server(Locators locators, File home, Edition edition, Version version, HttpUrl url, int searchPort, @Nullable String clusterNodeName,
+    HttpClient httpClient) {
     this.locators = locators;
     this.home = home;
     this.edition = edition;
@@ -60,6 +79,7 @@ public class Server {
     this.url = url;
     this.searchPort = searchPort;
     this.clusterNodeName = clusterNodeName;
+    this.httpClient = httpClient;
   }
 
   public File getHome() {
@@ -141,6 +161,26 @@ public class Server {
     return Optional.ofNullable(clusterNodeName);
   }
 
+  /**
+   * The client used by {@link #newHttpCall(String)}, for example to get the statistics of its connection pool.
+   */
+  public HttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  /**
+   * Token used instead of the default password by the calls authenticated with {@link HttpCall#setAdminCredentials()},
+   * for example by {@link #restoreProfile(Location)} or {@link #provisionProject(String, String)}.
+   * If {@code null}, the login and password "admin" are used.
+   */
+  public void setAdminToken(@Nullable String token) {
+    this.adminToken = token;
+  }
+
+  public Optional<String> getAdminToken() {
+    return Optional.ofNullable(adminToken);
+  }
+
   /**
    * Restore backup of Quality profile. The profile is created
    * if it does not exist yet, otherwise it is reset.
@@ -189,7 +229,8 @@ public class Server {
 
   /**
    * Create a {@link HttpCall} for the specified path, for instance {@code "/api/system/ping"}.
-   * By default HTTP method is {@link HttpMethod#GET} and caller is not authenticated.
+   * By default HTTP method is {@link HttpMethod#GET} and caller is not authenticated. The admin token, if defined,
+   * is used by {@link HttpCall#setAdminCredentials()}.
    *
    * @param relativePath path for example {@code "api/system/ping"} or {@code "/api/system/ping"}.
    *                     The leading slash is optional. Query parameters must not be defined.
@@ -198,7 +239,42 @@ public class Server {
    */
   public HttpCall newHttpCall(String relativePath) {
     String segments = StringUtils.strip(relativePath, "/");
-    return HttpClientFactory.create().newCall(url.newBuilder().addPathSegments(segments).build());
+    return httpClient.newCall(url.newBuilder().addPathSegments(segments).build())
+      .setAdminToken(adminToken);
+  }
+
+  /**
+   * Creates a batch of calls executed with at most {@code maxConcurrency} concurrent requests, for example to
+   * provision many projects. Calls are created with {@link #newHttpCall(String)}, so they share the connection
+   * pool of the server. Connections are kept open for reuse if {@code maxConcurrency} does not exceed the property
+   * "orchestrator.http.maxIdleConnections" (5 by default).
+   */
+  public HttpBatch newHttpBatch(int maxConcurrency) {
+    return new HttpBatch(maxConcurrency);
+  }
+
+  /**
+   * Lazily iterates over the items of a paginated web service, for example
+   * {@code paginate("api/issues/search", Map.of("componentKeys", "foo"), "issues")}. Requests are authenticated
+   * as administrator.
+   * <p>
+   * Pages are requested only when consumed. The next page is prefetched while the current one is consumed, so
+   * the stream should be closed (try-with-resources) when it is not consumed entirely.
+   * <p>
+   * The web services based on Elasticsearch return at most 10'000 results. Beyond this limit the issues are
+   * requested by ranges of creation date, the other web services fail with {@link IllegalStateException}.
+   *
+   * @param params     parameters of the web service. The page size {@code "ps"} is 500 by default.
+   * @param itemsField name of the array of items in the response, for example {@code "issues"} or {@code "components"}
+   */
+  public Stream<JsonObject> paginate(String relativePath, Map<String, String> params, String itemsField) {
+    PaginatedItems items = new PaginatedItems(pageParams -> {
+      HttpCall call = newHttpCall(relativePath).setAdminCredentials();
+      pageParams.forEach(call::setParam);
+      return call;
+    }, relativePath, params, itemsField, PaginatedItems.MAX_RESULTS);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(items, Spliterator.ORDERED | Spliterator.NONNULL), false)
+      .onClose(items::close);
   }
 
   /**
@@ -41,6 +41,7 @@ public final class SonarDistribution {
   private final List<Location> profileBackups = new ArrayList<>();
   private final Properties serverProperties = new Properties();
   private boolean activateLicense;
+  private Integer computeEngineWorkers = null;
   private boolean emptySonarProperties = false;
   private boolean keepBundledPlugins = false;
 
@@ -186,6 +187,28 @@ public final class SonarDistribution {
     return activateLicense;
   }
 
+  public SonarDistribution setComputeEngineWorkers(int workers) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("Number of Compute Engine workers must be positive: " + workers);
+    }
+    this.computeEngineWorkers = workers;
+    return this;
+  }
+
+  /**
+   * Number of Compute Engine workers configured after startup, if defined
+   */
+  public Optional<Integer> getComputeEngineWorkers() {
+    return Optional.ofNullable(computeEngineWorkers);
+  }
+
+  /**
+   * Whether the number of Compute Engine workers can be changed. Requires a license, see {@link #activateLicense()}.
+   */
+  public static boolean supportsComputeEngineWorkers(Edition edition) {
+    return edition == Edition.ENTERPRISE || edition == Edition.ENTERPRISE_LW || edition == Edition.DATACENTER;
+  }
+
   public boolean isKeepBundledPlugins() {
     return keepBundledPlugins;
   }
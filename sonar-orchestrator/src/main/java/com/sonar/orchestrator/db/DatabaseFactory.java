@@ -23,6 +23,7 @@ import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.locator.Locators;
 import com.sonar.orchestrator.locator.MavenLocation;
 import java.io.File;
+import java.util.Optional;
 
 import static com.sonar.orchestrator.util.Preconditions.checkArgument;
 import static com.sonar.orchestrator.util.Preconditions.checkState;
@@ -80,10 +81,25 @@ public final class DatabaseFactory {
     return builder.build();
   }
 
-  private static void feedDriverMavenKey(Locators locators, DatabaseClient.Builder builder, String propertyValue) {
+  /**
+   * Maven coordinates of the JDBC driver defined by the property {@code sonar.jdbc.driverMavenKey}, if any
+   */
+  public static Optional<MavenLocation> driverMavenLocation(Configuration config) {
+    String s = config.getString("sonar.jdbc.driverMavenKey");
+    if (isEmpty(s)) {
+      return Optional.empty();
+    }
+    return Optional.of(parseDriverMavenKey(s));
+  }
+
+  private static MavenLocation parseDriverMavenKey(String propertyValue) {
     String[] fields = propertyValue.split(":");
     checkArgument(fields.length == 3, "Format is groupId:artifactId:version. Please check the property sonar.jdbc.driverMavenKey: %s", propertyValue);
-    MavenLocation location = MavenLocation.create(fields[0], fields[1], fields[2]);
+    return MavenLocation.create(fields[0], fields[1], fields[2]);
+  }
+
+  private static void feedDriverMavenKey(Locators locators, DatabaseClient.Builder builder, String propertyValue) {
+    MavenLocation location = parseDriverMavenKey(propertyValue);
     File file = locators.locate(location);
     checkState(file.exists(), "Driver file does not exist: %s", location);
     builder.setDriverFile(file);
@@ -21,8 +21,10 @@ package com.sonar.orchestrator.licenses;
 
 import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.container.Edition;
+import com.sonar.orchestrator.http.HttpCall;
 import com.sonar.orchestrator.http.HttpClientFactory;
 import com.sonar.orchestrator.http.HttpResponse;
+import com.sonar.orchestrator.http.RetryPolicy;
 import com.sonar.orchestrator.util.Version;
 import java.util.EnumMap;
 import java.util.Map;
@@ -67,9 +69,10 @@ public class Licenses {
   }
 
   private String download(String url) {
-    HttpResponse response = HttpClientFactory.create().newCall(HttpUrl.parse(url))
-      .setHeader("Authorization", "token " + loadGithubToken())
-      .executeUnsafely();
+    HttpCall call = HttpClientFactory.create().newCall(HttpUrl.parse(url))
+      .setHeader("Authorization", "token " + loadGithubToken());
+    RetryPolicy.fromProperties(configuration::getString).ifPresent(call::setRetryPolicy);
+    HttpResponse response = call.executeUnsafely();
     if (response.isSuccessful()) {
       return cleanUpLicense(response.getBodyAsString());
     }
@@ -0,0 +1,144 @@
+/*
+ * Orchestrator
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.server;
+
+import com.sonar.orchestrator.container.Server;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+import static java.lang.String.format;
+
+/**
+ * Throughput of the Compute Engine, computed from the finished tasks returned by the web service api/ce/activity.
+ * It helps to size the number of workers: a queue wait that grows with the number of concurrent analyses means
+ * that workers are missing.
+ */
+public class CeActivityReport {
+
+  private final List<CeTask> tasks;
+
+  CeActivityReport(List<CeTask> tasks) {
+    this.tasks = List.copyOf(tasks);
+  }
+
+  /**
+   * Loads the finished tasks of the Compute Engine. Requests are authenticated as administrator.
+   *
+   * @param minSubmittedAt if not {@code null}, only the tasks submitted after this date are loaded,
+   *                       for example the ones of a throughput test
+   */
+  public static CeActivityReport fetch(Server server, @Nullable Instant minSubmittedAt) {
+    Map<String, String> params = new HashMap<>();
+    params.put("status", "SUCCESS,FAILED,CANCELED");
+    if (minSubmittedAt != null) {
+      params.put("minSubmittedAt", CeTask.DATE_FORMAT.format(minSubmittedAt.atOffset(ZoneOffset.UTC)));
+    }
+    try (Stream<CeTask> tasks = server.paginate("api/ce/activity", params, "tasks").map(CeTask::parse)) {
+      return new CeActivityReport(tasks.toList());
+    }
+  }
+
+  public List<CeTask> getTasks() {
+    return tasks;
+  }
+
+  public int getTaskCount() {
+    return tasks.size();
+  }
+
+  public long getFailedTaskCount() {
+    return tasks.stream().filter(t -> t.getStatus() != CeTask.Status.SUCCESS).count();
+  }
+
+  /**
+   * Duration between the first submission and the last end of execution
+   */
+  public long getWindowMs() {
+    Optional<Instant> first = tasks.stream().map(CeTask::getSubmittedAt).flatMap(Optional::stream).min(Instant::compareTo);
+    Optional<Instant> last = tasks.stream().map(CeTask::getExecutedAt).flatMap(Optional::stream).max(Instant::compareTo);
+    if (first.isEmpty() || last.isEmpty()) {
+      return 0L;
+    }
+    return Math.max(0L, last.get().toEpochMilli() - first.get().toEpochMilli());
+  }
+
+  /**
+   * Tasks processed per second during {@link #getWindowMs()}
+   */
+  public double getThroughput() {
+    long windowMs = getWindowMs();
+    return windowMs == 0L ? 0.0 : (tasks.size() * 1_000.0 / windowMs);
+  }
+
+  public double getMeanQueueWaitMs() {
+    return mean(CeTask::getQueueWaitMs);
+  }
+
+  public long getMaxQueueWaitMs() {
+    return percentile(CeTask::getQueueWaitMs, 100.0);
+  }
+
+  public long getQueueWaitPercentileMs(double percentile) {
+    return percentile(CeTask::getQueueWaitMs, percentile);
+  }
+
+  public double getMeanExecutionTimeMs() {
+    return mean(CeTask::getExecutionTimeMs);
+  }
+
+  public long getMaxExecutionTimeMs() {
+    return percentile(CeTask::getExecutionTimeMs, 100.0);
+  }
+
+  public long getExecutionTimePercentileMs(double percentile) {
+    return percentile(CeTask::getExecutionTimeMs, percentile);
+  }
+
+  private double mean(Function<CeTask, Optional<Long>> metric) {
+    return tasks.stream().map(metric).flatMap(Optional::stream).mapToLong(Long::longValue).average().orElse(0.0);
+  }
+
+  private long percentile(Function<CeTask, Optional<Long>> metric, double percentile) {
+    if (percentile < 0.0 || percentile > 100.0) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+    }
+    long[] values = tasks.stream().map(metric).flatMap(Optional::stream).mapToLong(Long::longValue).sorted().toArray();
+    if (values.length == 0) {
+      return 0L;
+    }
+    int index = (int) Math.ceil(percentile / 100.0 * values.length) - 1;
+    return values[Math.max(0, index)];
+  }
+
+  @Override
+  public String toString() {
+    return format("tasks=%d failed=%d window=%dms throughput=%.2f tasks/s queueWait[mean=%.0fms p95=%dms max=%dms] execution[mean=%.0fms p95=%dms max=%dms]",
+      getTaskCount(), getFailedTaskCount(), getWindowMs(), getThroughput(),
+      getMeanQueueWaitMs(), getQueueWaitPercentileMs(95.0), getMaxQueueWaitMs(),
+      getMeanExecutionTimeMs(), getExecutionTimePercentileMs(95.0), getMaxExecutionTimeMs());
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Orchestrator
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.server;
+
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * A task of the Compute Engine, as returned by the web service api/ce/task
+ */
+public class CeTask {
+
+  // for example "2017-08-13T23:34:59+0200"
+  static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+
+  public enum Status {
+    PENDING, IN_PROGRESS, SUCCESS, FAILED, CANCELED;
+
+    public boolean isFinished() {
+      return this == SUCCESS || this == FAILED || this == CANCELED;
+    }
+  }
+
+  private final String id;
+  private final Status status;
+  @CheckForNull
+  private final Instant submittedAt;
+  @CheckForNull
+  private final Instant startedAt;
+  @CheckForNull
+  private final Instant executedAt;
+  @CheckForNull
+  private final Long executionTimeMs;
+  @CheckForNull
+  private final String errorMessage;
+
+  CeTask(String id, Status status, @Nullable Instant submittedAt, @Nullable Instant startedAt, @Nullable Instant executedAt,
+    @Nullable Long executionTimeMs, @Nullable String errorMessage) {
+    this.id = id;
+    this.status = status;
+    this.submittedAt = submittedAt;
+    this.startedAt = startedAt;
+    this.executedAt = executedAt;
+    this.executionTimeMs = executionTimeMs;
+    this.errorMessage = errorMessage;
+  }
+
+  static CeTask parse(JsonObject json) {
+    JsonValue executionTime = json.get("executionTimeMs");
+    return new CeTask(
+      json.getString("id", null),
+      Status.valueOf(json.getString("status", null)),
+      parseDate(json.getString("submittedAt", null)),
+      parseDate(json.getString("startedAt", null)),
+      parseDate(json.getString("executedAt", null)),
+      executionTime == null || executionTime.isNull() ? null : executionTime.asLong(),
+      json.getString("errorMessage", null));
+  }
+
+  @CheckForNull
+  static Instant parseDate(@Nullable String s) {
+    return s == null ? null : OffsetDateTime.parse(s, DATE_FORMAT).toInstant();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public boolean isSuccess() {
+    return status == Status.SUCCESS;
+  }
+
+  public Optional<Instant> getSubmittedAt() {
+    return Optional.ofNullable(submittedAt);
+  }
+
+  public Optional<Instant> getStartedAt() {
+    return Optional.ofNullable(startedAt);
+  }
+
+  public Optional<Instant> getExecutedAt() {
+    return Optional.ofNullable(executedAt);
+  }
+
+  /**
+   * Duration of the processing of the report by the Compute Engine
+   */
+  public Optional<Long> getExecutionTimeMs() {
+    return Optional.ofNullable(executionTimeMs);
+  }
+
+  /**
+   * Duration between submission and start of processing, when the task was waiting for a worker
+   */
+  public Optional<Long> getQueueWaitMs() {
+    if (submittedAt == null || startedAt == null) {
+      return Optional.empty();
+    }
+    return Optional.of(startedAt.toEpochMilli() - submittedAt.toEpochMilli());
+  }
+
+  public Optional<String> getErrorMessage() {
+    return Optional.ofNullable(errorMessage);
+  }
+
+  @Override
+  public String toString() {
+    return "CeTask{id=" + id + ", status=" + status + ", queueWaitMs=" + getQueueWaitMs().orElse(null) + ", executionTimeMs=" + executionTimeMs + "}";
+  }
+}
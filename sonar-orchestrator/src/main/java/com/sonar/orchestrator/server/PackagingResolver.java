@@ -104,27 +104,31 @@ public class PackagingResolver {
   }
 
   public Packaging resolve(SonarDistribution distribution) {
-    File zip;
-
-    Optional<Location> location = distribution.getZipLocation();
-    if (location.isPresent()) {
-      zip = locators.locate(location.get());
-      if (zip == null || !zip.exists()) {
-        throw new IllegalStateException(String.format("SonarQube not found at %s", location.get()));
-      }
-    } else {
-      Version version = resolveVersion(distribution);
-      MavenCoordinates mavenCoordinates = getMavenCoordinates(distribution, version);
-      MavenLocation mavenLocation = newMavenLocationOfZip(mavenCoordinates.groupId, mavenCoordinates.artifactId, version.toString());
-      zip = locators.locate(mavenLocation);
-      if (zip == null || !zip.exists()) {
-        throw new IllegalStateException(String.format("SonarQube %s not found: %s", distribution.getVersion().get(), mavenLocation));
+    Location location = resolveZipLocation(distribution);
+    File zip = locators.locate(location);
+    if (zip == null || !zip.exists()) {
+      if (distribution.getZipLocation().isPresent()) {
+        throw new IllegalStateException(String.format("SonarQube not found at %s", location));
       }
+      throw new IllegalStateException(String.format("SonarQube %s not found: %s", distribution.getVersion().get(), location));
     }
 
     return new Packaging(distribution.getEdition(), guessVersionFromZipName(zip), zip);
   }
 
+  /**
+   * Location of the SonarQube zip of the distribution. Version aliases are resolved, but the zip is not downloaded.
+   */
+  public Location resolveZipLocation(SonarDistribution distribution) {
+    Optional<Location> location = distribution.getZipLocation();
+    if (location.isPresent()) {
+      return location.get();
+    }
+    Version version = resolveVersion(distribution);
+    MavenCoordinates mavenCoordinates = getMavenCoordinates(distribution, version);
+    return newMavenLocationOfZip(mavenCoordinates.groupId, mavenCoordinates.artifactId, version.toString());
+  }
+
   private Version resolveVersion(SonarDistribution sonarDistribution) {
     Optional<String> versionOrAlias = sonarDistribution.getVersion();
     if (!versionOrAlias.isPresent()) {
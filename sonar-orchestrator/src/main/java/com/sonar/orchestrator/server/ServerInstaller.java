@@ -23,6 +23,9 @@ import com.sonar.orchestrator.config.Configuration;
 import com.sonar.orchestrator.container.Server;
 import com.sonar.orchestrator.container.SonarDistribution;
 import com.sonar.orchestrator.db.DatabaseClient;
+import com.sonar.orchestrator.http.HttpClient;
+import com.sonar.orchestrator.http.ResponseCache;
+import com.sonar.orchestrator.http.RetryPolicy;
 import com.sonar.orchestrator.locator.Location;
 import com.sonar.orchestrator.locator.Locators;
 import com.sonar.orchestrator.util.ZipUtils;
@@ -38,7 +41,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import okhttp3.HttpUrl;
@@ -75,6 +80,13 @@ public class ServerInstaller {
   private static final String SONAR_CLUSTER_NODE_NAME = "sonar.cluster.node.name";
   private static final String ALL_IPS_HOST = "0.0.0.0";
 
+  /**
+   * Web services that do not change while the server is up, except through POST requests (for example
+   * "api/plugins/install"), which invalidate the cache
+   */
+  static final List<String> CACHED_WEB_SERVICES = List.of("api/server/version", "api/plugins/installed", "api/languages/list", "api/metrics/search");
+  private static final long DEFAULT_CACHE_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
   private final PackagingResolver packagingResolver;
   private final Configuration configuration;
   private final Locators locators;
@@ -103,7 +115,48 @@ public class ServerInstaller {
       properties.getProperty(WEB_CONTEXT_PROPERTY, ""));
     return new Server(locators, homeDir, packaging.getEdition(), packaging.getVersion(), HttpUrl.parse(url),
       getSearchPort(properties),
-      (String) properties.get(SONAR_CLUSTER_NODE_NAME));
+      (String) properties.get(SONAR_CLUSTER_NODE_NAME),
+      newHttpClient(configuration));
+  }
+
+  /**
+   * Each server has its own HTTP client, so that web services of different servers do not compete for the same
+   * connection pool. The client can be tuned with the properties "orchestrator.http.*".
+   * <p>
+   * The cache of the responses of the web services that do not change while the server is up
+   * ({@link #CACHED_WEB_SERVICES}) is enabled by the property "orchestrator.http.cacheMaxEntries".
+   * <p>
+   * Transient errors are retried according to {@link RetryPolicy#defaultPolicy()}, overridden by the properties
+   * "orchestrator.http.retry.*" (see {@link RetryPolicy#fromProperties}).
+   */
+  static HttpClient newHttpClient(Configuration configuration) {
+    HttpClient.Builder builder = new HttpClient.Builder();
+    getLong(configuration, "orchestrator.http.maxIdleConnections").ifPresent(l -> builder.setMaxIdleConnections(l.intValue()));
+    getLong(configuration, "orchestrator.http.keepAliveMs").ifPresent(builder::setKeepAliveMs);
+    getLong(configuration, "orchestrator.http.maxRequestsPerHost").ifPresent(l -> builder.setMaxRequestsPerHost(l.intValue()));
+    getLong(configuration, "orchestrator.http.connectTimeoutMs").ifPresent(builder::setConnectTimeoutMs);
+    getLong(configuration, "orchestrator.http.readTimeoutMs").ifPresent(builder::setReadTimeoutMs);
+    RetryPolicy.fromProperties(configuration::getString).ifPresent(builder::setRetryPolicy);
+    long cacheMaxEntries = getLong(configuration, "orchestrator.http.cacheMaxEntries").orElse(0L);
+    if (cacheMaxEntries > 0) {
+      long ttlMs = getLong(configuration, "orchestrator.http.cacheTtlMs").orElse(DEFAULT_CACHE_TTL_MS);
+      ResponseCache cache = new ResponseCache((int) cacheMaxEntries);
+      CACHED_WEB_SERVICES.forEach(path -> cache.setTtlMs(path, ttlMs));
+      builder.setResponseCache(cache);
+    }
+    return builder.build();
+  }
+
+  private static Optional<Long> getLong(Configuration configuration, String key) {
+    String value = configuration.getString(key);
+    if (isEmpty(value)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(Long.parseLong(value.trim()));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(format("Property %s must be a number: %s", key, value), e);
+    }
   }
 
   private void preparePlugins(SonarDistribution distrib, File homeDir) {
@@ -20,6 +20,7 @@
 package com.sonar.orchestrator.server;
 
 import com.sonar.orchestrator.container.Server;
+import com.sonar.orchestrator.util.AsyncPipe;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -34,6 +35,7 @@ import org.apache.commons.exec.DefaultExecutor;
 import org.apache.commons.exec.ExecuteWatchdog;
 import org.apache.commons.exec.PumpStreamHandler;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,7 +54,10 @@ public class ServerProcessImpl implements ServerProcess {
   private final StartupLogWatcher startupLogWatcher;
   private long startTimeoutMs;
   private long stopTimeoutMs;
+  private boolean quietConsole = false;
+  private AsyncPipe.OverflowPolicy consoleOverflowPolicy = AsyncPipe.OverflowPolicy.BLOCK;
 
+  private StartupLogListener listener;
   private DefaultExecuteResultHandler processResultHandler;
   private DefaultExecutor executor;
   private Thread shutdownHook;
@@ -78,6 +83,16 @@ public class ServerProcessImpl implements ServerProcess {
     this.stopTimeoutMs = l;
   }
 
+  /**
+   * Output of the server is displayed on the console, unless {@code quiet} is true. It's
+   * always available in the log files of the server.
+   */
+  public ServerProcessImpl setConsole(boolean quiet, AsyncPipe.OverflowPolicy overflowPolicy) {
+    this.quietConsole = quiet;
+    this.consoleOverflowPolicy = requireNonNull(overflowPolicy);
+    return this;
+  }
+
   @Override
   public void start() {
     checkState(processResultHandler == null, "Server is already started");
@@ -90,7 +105,7 @@ public class ServerProcessImpl implements ServerProcess {
     executor.setWatchdog(new ExecuteWatchdog(-1L));
     executor.setWorkingDirectory(server.getHome());
 
-    StartupLogListener listener = new StartupLogListener(startupLogWatcher, server.getClusterNodeName().orElse(null));
+    listener = new StartupLogListener(startupLogWatcher, server.getClusterNodeName().orElse(null), quietConsole, consoleOverflowPolicy);
     executor.setStreamHandler(new PumpStreamHandler(listener));
     processResultHandler = new DefaultExecuteResultHandler();
     try {
@@ -181,6 +196,8 @@ public class ServerProcessImpl implements ServerProcess {
   }
 
   private void cleanState() {
+    IOUtils.closeQuietly(listener);
+    listener = null;
     processResultHandler = null;
     executor = null;
     shutdownHook = null;
@@ -19,21 +19,38 @@
  */
 package com.sonar.orchestrator.server;
 
+import com.sonar.orchestrator.util.AsyncPipe;
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.exec.LogOutputStream;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Detects the startup of the server and displays its output on the console. Lines are displayed asynchronously,
+ * so that a slow console does not slow down the server.
+ */
 class StartupLogListener extends LogOutputStream {
 
   private final AtomicBoolean started = new AtomicBoolean(false);
   private final String logPrefix;
   private final StartupLogWatcher watcher;
+  @CheckForNull
+  private final AsyncPipe console;
 
   StartupLogListener(StartupLogWatcher watcher, @Nullable String logPrefix) {
+    this(watcher, logPrefix, false, AsyncPipe.OverflowPolicy.BLOCK);
+  }
+
+  /**
+   * @param quietConsole if {@code true}, the output is not displayed. It is still available in the log files of the server.
+   */
+  StartupLogListener(StartupLogWatcher watcher, @Nullable String logPrefix, boolean quietConsole, AsyncPipe.OverflowPolicy overflowPolicy) {
     this.watcher = requireNonNull(watcher);
     this.logPrefix = (logPrefix == null ? "> " : logPrefix + "> ");
+    this.console = quietConsole ? null : AsyncPipe.create(null, false, overflowPolicy);
   }
 
   @Override
@@ -41,7 +58,20 @@ class StartupLogListener extends LogOutputStream {
     if (watcher.isStarted(line)) {
       started.set(true);
     }
-    System.out.println(logPrefix + line);
+    if (console != null) {
+      console.consumeLine(logPrefix + line);
+    }
+  }
+
+  /**
+   * Waits until the pending lines are displayed
+   */
+  @Override
+  public void close() throws IOException {
+    super.close();
+    if (console != null) {
+      console.close();
+    }
   }
 
   boolean isStarted() {
@@ -19,18 +19,26 @@
  */
 package com.sonar.orchestrator.server;
 
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonValue;
 import com.sonar.orchestrator.container.Server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * See http://jira.sonarsource.com/browse/ORCH-263
+ * <p>
+ * The transient errors of the web service, for example when the server is under pressure, are retried
+ * according to {@link com.sonar.orchestrator.http.RetryPolicy#defaultPolicy()}, which can be overridden
+ * by the properties "orchestrator.http.retry.*".
  */
 public class SynchronousAnalyzer {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SynchronousAnalyzer.class);
 
   static final String RELATIVE_PATH = "/api/analysis_reports/is_queue_empty";
+  static final String TASK_PATH = "/api/ce/task";
+  static final long MAX_TASK_DELAY_MS = 2_000L;
 
   private final Server server;
   private final long delayMs;
@@ -69,6 +77,48 @@ public class SynchronousAnalyzer {
     }
   }
 
+  /**
+   * Waits for the given task of the Compute Engine, regardless of the other tasks of the queue. The status is
+   * polled quickly at first, then less and less often, up to every {@link #MAX_TASK_DELAY_MS} milliseconds.
+   *
+   * @param taskId for example {@link com.sonar.orchestrator.build.BuildResult#getCeTaskId()}
+   * @return the finished task, which may have failed or have been canceled
+   */
+  public CeTask waitForTask(String taskId) {
+    long taskDelayMs = Math.max(1L, delayMs);
+    int count = 0;
+    while (true) {
+      CeTask task = fetchTask(taskId);
+      if (task.getStatus().isFinished()) {
+        return task;
+      }
+      if (count % logFrequency == 0) {
+        LOGGER.info("Waiting for Compute Engine task {} ({})", taskId, task.getStatus());
+      }
+      try {
+        Thread.sleep(taskDelayMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for Compute Engine task " + taskId, e);
+      }
+      taskDelayMs = Math.min(taskDelayMs * 2, MAX_TASK_DELAY_MS);
+      count++;
+    }
+  }
+
+  private CeTask fetchTask(String taskId) {
+    String response = server.newHttpCall(TASK_PATH)
+      .setParam("id", taskId)
+      .setAdminCredentials()
+      .execute()
+      .getBodyAsString();
+    JsonValue task = Json.parse(response).asObject().get("task");
+    if (task == null) {
+      throw new IllegalStateException("Fail to parse Compute Engine task " + taskId + ": " + response);
+    }
+    return CeTask.parse(task.asObject());
+  }
+
   long getDelayMs() {
     return delayMs;
   }
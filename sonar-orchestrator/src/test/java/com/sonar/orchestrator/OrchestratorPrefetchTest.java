@@ -0,0 +1,143 @@
+/*
+ * Orchestrator
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator;
+
+import com.sonar.orchestrator.config.Configuration;
+import com.sonar.orchestrator.container.Edition;
+import com.sonar.orchestrator.container.SonarDistribution;
+import com.sonar.orchestrator.locator.FileLocation;
+import com.sonar.orchestrator.locator.MavenLocation;
+import com.sonar.orchestrator.server.StartupLogWatcher;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OrchestratorPrefetchTest {
+
+  @Test
+  public void load_orchestrator_of_tests_from_default_field() {
+    Orchestrator orchestrator = OrchestratorPrefetch.newOrchestrator(definition(Tests.class.getName()));
+
+    assertThat(orchestrator).isSameAs(Tests.ORCHESTRATOR);
+    assertThat(orchestrator.getDistribution().getVersion()).contains("LATEST_RELEASE");
+    assertThat(orchestrator.getDistribution().getEdition()).isEqualTo(Edition.DEVELOPER);
+    assertThat(orchestrator.getDistribution().getPluginLocations())
+      .containsExactly(MavenLocation.of("org.sonarsource.java", "sonar-java-plugin", "DEV"), FileLocation.of("/path/to/plugin.jar"));
+    assertThat(orchestrator.getDistribution().getBundledPluginLocations())
+      .containsExactly(MavenLocation.of("org.sonarsource.xml", "sonar-xml-plugin", "2.0"));
+  }
+
+  @Test
+  public void build_orchestrator_returned_by_static_method() {
+    Orchestrator orchestrator = OrchestratorPrefetch.newOrchestrator(definition(Tests.class.getName() + "#builder"));
+
+    assertThat(orchestrator.getDistribution().getVersion()).contains("10.0");
+    assertThat(orchestrator.getDistribution().getEdition()).isEqualTo(Edition.COMMUNITY);
+    assertThat(orchestrator.getDistribution().getPluginLocations()).isEmpty();
+  }
+
+  @Test
+  public void get_orchestrator_of_wrapper() {
+    Orchestrator orchestrator = OrchestratorPrefetch.newOrchestrator(definition(Tests.class.getName() + "#RULE"));
+
+    assertThat(orchestrator).isSameAs(Tests.ORCHESTRATOR);
+  }
+
+  @Test
+  public void fail_if_definition_is_missing() {
+    Configuration config = Configuration.builder().build();
+
+    assertThatThrownBy(() -> OrchestratorPrefetch.newOrchestrator(config))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Missing definition of Orchestrator. Please set the property orchestrator.definition");
+  }
+
+  @Test
+  public void fail_if_class_does_not_exist() {
+    assertThatThrownBy(() -> OrchestratorPrefetch.newOrchestrator(definition("com.acme.DoesNotExist")))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Class of Orchestrator definition not found: com.acme.DoesNotExist");
+  }
+
+  @Test
+  public void fail_if_member_does_not_exist() {
+    assertThatThrownBy(() -> OrchestratorPrefetch.newOrchestrator(definition(Tests.class.getName() + "#unknown")))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("No static field or method unknown in " + Tests.class.getName());
+  }
+
+  @Test
+  public void fail_if_member_is_not_static() {
+    assertThatThrownBy(() -> OrchestratorPrefetch.newOrchestrator(definition(Tests.class.getName() + "#instance")))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage(Tests.class.getName() + "#instance must be static");
+  }
+
+  @Test
+  public void fail_if_member_is_not_an_orchestrator() {
+    String definition = Tests.class.getName() + "#NAME";
+
+    assertThatThrownBy(() -> OrchestratorPrefetch.newOrchestrator(definition(definition)))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Orchestrator definition " + definition + " is not supported: java.lang.String");
+  }
+
+  private static Configuration definition(String value) {
+    return Configuration.builder().setProperty("orchestrator.definition", value).build();
+  }
+
+  static class Tests {
+    static final Orchestrator ORCHESTRATOR = new TestBuilder()
+      .setSonarVersion("LATEST_RELEASE")
+      .setEdition(Edition.DEVELOPER)
+      .addPlugin(MavenLocation.of("org.sonarsource.java", "sonar-java-plugin", "DEV"))
+      .addPlugin(FileLocation.of("/path/to/plugin.jar"))
+      .addBundledPlugin(MavenLocation.of("org.sonarsource.xml", "sonar-xml-plugin", "2.0"))
+      .build();
+    static final Rule RULE = new Rule();
+    static final String NAME = "orchestrator";
+
+    private static TestBuilder builder() {
+      return new TestBuilder().setSonarVersion("10.0");
+    }
+
+    TestBuilder instance() {
+      return builder();
+    }
+  }
+
+  public static class Rule {
+    public Orchestrator getOrchestrator() {
+      return Tests.ORCHESTRATOR;
+    }
+  }
+
+  private static class TestBuilder extends OrchestratorBuilder<TestBuilder, Orchestrator> {
+    TestBuilder() {
+      super(Configuration.builder().build());
+    }
+
+    @Override
+    protected Orchestrator build(Configuration finalConfig, SonarDistribution distribution, StartupLogWatcher startupLogWatcher) {
+      return new Orchestrator(finalConfig, distribution, startupLogWatcher);
+    }
+  }
+}
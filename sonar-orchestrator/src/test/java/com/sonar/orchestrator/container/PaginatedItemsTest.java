@@ -0,0 +1,188 @@
+/*
+ * Orchestrator
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.container;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.sonar.orchestrator.http.HttpCall;
+import com.sonar.orchestrator.http.HttpClientFactory;
+import com.sonar.orchestrator.http.HttpException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import mockwebserver3.junit4.MockWebServerRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PaginatedItemsTest {
+
+  @Rule
+  public MockWebServerRule mockWebServerRule = new MockWebServerRule();
+
+  @Test
+  public void iterate_over_all_pages() throws Exception {
+    enqueuePage("components", 5, item("a"), item("b"));
+    enqueuePage("components", 5, item("c"), item("d"));
+    enqueuePage("components", 5, item("e"));
+
+    List<String> keys = keys(newPaginatedItems("api/components/search", Map.of("ps", "2"), "components", 10_000));
+
+    assertThat(keys).containsExactly("a", "b", "c", "d", "e");
+    assertThat(mockWebServerRule.getServer().getRequestCount()).isEqualTo(3);
+    assertThat(takeRequest().getTarget()).isEqualTo("/api/components/search?ps=2&p=1");
+    assertThat(takeRequest().getTarget()).isEqualTo("/api/components/search?ps=2&p=2");
+    assertThat(takeRequest().getTarget()).isEqualTo("/api/components/search?ps=2&p=3");
+  }
+
+  @Test
+  public void pages_are_requested_lazily() {
+    enqueuePage("components", 100, item("a"), item("b"));
+    enqueuePage("components", 100, item("c"), item("d"));
+
+    PaginatedItems underTest = newPaginatedItems("api/components/search", Map.of("ps", "2"), "components", 10_000);
+    assertThat(mockWebServerRule.getServer().getRequestCount()).isZero();
+
+    assertThat(underTest.next().getString("key", null)).isEqualTo("a");
+    underTest.close();
+
+    // only the page after the first one has been prefetched
+    assertThat(mockWebServerRule.getServer().getRequestCount()).isLessThanOrEqualTo(2);
+    assertThat(underTest.next().getString("key", null)).isEqualTo("b");
+    assertThat(underTest.hasNext()).isFalse();
+  }
+
+  @Test
+  public void total_can_be_defined_at_root_of_response() {
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder()
+      .body(Json.object().add("total", 1).add("users", Json.array().add(item("a"))).toString())
+      .build());
+
+    assertThat(keys(newPaginatedItems("api/users/search", Map.of(), "users", 10_000))).containsExactly("a");
+  }
+
+  @Test
+  public void issues_are_sliced_by_creation_date_beyond_max_results() throws Exception {
+    // first slice, all the issues
+    enqueuePage("issues", 7, issue("i1", "d1"), issue("i2", "d2"));
+    enqueuePage("issues", 7, issue("i3", "d3"), issue("i4", "d3"));
+    // issues created from d3, including the ones already returned
+    enqueuePage("issues", 5, issue("i3", "d3"), issue("i4", "d3"));
+    enqueuePage("issues", 5, issue("i5", "d4"), issue("i6", "d5"));
+    // issues created from d5
+    enqueuePage("issues", 2, issue("i6", "d5"), issue("i7", "d5"));
+
+    List<String> keys = keys(newPaginatedItems("api/issues/search", Map.of("ps", "2"), "issues", 4));
+
+    assertThat(keys).containsExactly("i1", "i2", "i3", "i4", "i5", "i6", "i7");
+    assertThat(takeRequest().getTarget()).isEqualTo("/api/issues/search?ps=2&s=CREATION_DATE&asc=true&p=1");
+    assertThat(takeRequest().getTarget()).isEqualTo("/api/issues/search?ps=2&s=CREATION_DATE&asc=true&p=2");
+    assertThat(takeRequest().getTarget()).isEqualTo("/api/issues/search?ps=2&s=CREATION_DATE&asc=true&p=1&createdAfter=d3");
+    assertThat(takeRequest().getTarget()).isEqualTo("/api/issues/search?ps=2&s=CREATION_DATE&asc=true&p=2&createdAfter=d3");
+    assertThat(takeRequest().getTarget()).isEqualTo("/api/issues/search?ps=2&s=CREATION_DATE&asc=true&p=1&createdAfter=d5");
+  }
+
+  @Test
+  public void fail_if_too_many_issues_have_the_same_creation_date() {
+    enqueuePage("issues", 3, issue("i1", "d1"), issue("i2", "d1"));
+    enqueuePage("issues", 3, issue("i1", "d1"), issue("i2", "d1"));
+
+    PaginatedItems underTest = newPaginatedItems("api/issues/search", Map.of("ps", "2"), "issues", 2);
+
+    assertThatThrownBy(() -> keys(underTest))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to paginate api/issues/search: more than 2 results have the same value of parameter createdAfter: d1");
+  }
+
+  @Test
+  public void fail_beyond_max_results_if_web_service_can_not_be_sliced() {
+    enqueuePage("components", 5, item("a"), item("b"));
+    enqueuePage("components", 5, item("c"), item("d"));
+
+    PaginatedItems underTest = newPaginatedItems("api/components/search", Map.of("ps", "2"), "components", 4);
+
+    assertThatThrownBy(() -> keys(underTest))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to paginate api/components/search: web service does not return more than 4 results");
+  }
+
+  @Test
+  public void fail_if_items_field_is_missing() {
+    enqueuePage("components", 1, item("a"));
+
+    PaginatedItems underTest = newPaginatedItems("api/components/search", Map.of(), "issues", 10_000);
+
+    assertThatThrownBy(underTest::hasNext)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to paginate api/components/search: field 'issues' is missing from response");
+  }
+
+  @Test
+  public void fail_if_web_service_returns_error() {
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().code(403).body("{}").build());
+
+    PaginatedItems underTest = newPaginatedItems("api/issues/search", Map.of(), "issues", 10_000);
+
+    assertThatThrownBy(underTest::hasNext)
+      .isInstanceOfSatisfying(HttpException.class, e -> assertThat(e.getCode()).isEqualTo(403));
+  }
+
+  private PaginatedItems newPaginatedItems(String path, Map<String, String> params, String itemsField, int maxResults) {
+    return new PaginatedItems(pageParams -> {
+      HttpCall call = HttpClientFactory.create().newCall(mockWebServerRule.getServer().url(path));
+      pageParams.forEach(call::setParam);
+      return call;
+    }, path, params, itemsField, maxResults);
+  }
+
+  private void enqueuePage(String itemsField, int total, JsonObject... items) {
+    JsonArray array = Json.array();
+    for (JsonObject item : items) {
+      array.add(item);
+    }
+    JsonObject page = Json.object()
+      .add("paging", Json.object().add("total", total))
+      .add(itemsField, array);
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().body(page.toString()).build());
+  }
+
+  private RecordedRequest takeRequest() throws InterruptedException {
+    return mockWebServerRule.getServer().takeRequest();
+  }
+
+  private static JsonObject item(String key) {
+    return Json.object().add("key", key);
+  }
+
+  private static JsonObject issue(String key, String creationDate) {
+    return Json.object().add("key", key).add("creationDate", creationDate);
+  }
+
+  private static List<String> keys(PaginatedItems items) {
+    List<String> keys = new ArrayList<>();
+    items.forEachRemaining(item -> keys.add(item.getString("key", null)));
+    return keys;
+  }
+}
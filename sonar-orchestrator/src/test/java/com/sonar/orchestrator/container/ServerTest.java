@@ -26,6 +26,7 @@ import java.io.File;
 import java.util.Random;
 import javax.annotation.Nullable;
 import mockwebserver3.junit4.MockWebServerRule;
+import okhttp3.Credentials;
 import okhttp3.HttpUrl;
 import mockwebserver3.MockResponse;
 import mockwebserver3.RecordedRequest;
@@ -129,6 +130,21 @@ public class ServerTest {
     assertThat(receivedRequest.getBody().utf8()).isEqualTo("project=foo&language=bar&qualityProfile=baz");
   }
 
+  @Test
+  public void admin_calls_use_admin_token_if_defined() throws Exception {
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().build());
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().build());
+    Server underTest = newServerForUrl(this.mockWebServerRule.getServer().url("").toString());
+
+    underTest.provisionProject("foo", "Foo");
+    underTest.setAdminToken("abcde");
+    underTest.provisionProject("bar", "Bar");
+
+    assertThat(mockWebServerRule.getServer().takeRequest().getHeaders().get("Authorization")).isEqualTo(Credentials.basic("admin", "admin"));
+    assertThat(mockWebServerRule.getServer().takeRequest().getHeaders().get("Authorization")).isEqualTo(Credentials.basic("abcde", ""));
+    assertThat(underTest.getAdminToken()).hasValue("abcde");
+  }
+
   private Server newServerForUrl(String url) {
     return newServerForUrl(url, randomPort, null);
   }
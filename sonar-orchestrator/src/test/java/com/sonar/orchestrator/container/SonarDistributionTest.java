@@ -27,6 +27,7 @@ import static com.sonar.orchestrator.container.Edition.COMMUNITY;
 import static com.sonar.orchestrator.container.Edition.DATACENTER;
 import static com.sonar.orchestrator.container.Edition.ENTERPRISE;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class SonarDistributionTest {
   @Test
@@ -116,4 +117,23 @@ public class SonarDistributionTest {
     distribution.setForceDefaultAdminCredentialsRedirect(false);
     assertThat(distribution.isForceDefaultAdminCredentialsRedirect()).isFalse();
   }
+
+  @Test
+  public void configure_compute_engine_workers() {
+    SonarDistribution distribution = new SonarDistribution();
+    assertThat(distribution.getComputeEngineWorkers()).isEmpty();
+    distribution.setComputeEngineWorkers(4);
+    assertThat(distribution.getComputeEngineWorkers()).contains(4);
+
+    assertThatThrownBy(() -> distribution.setComputeEngineWorkers(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Number of Compute Engine workers must be positive: 0");
+  }
+
+  @Test
+  public void compute_engine_workers_are_supported_by_enterprise_editions() {
+    assertThat(SonarDistribution.supportsComputeEngineWorkers(COMMUNITY)).isFalse();
+    assertThat(SonarDistribution.supportsComputeEngineWorkers(ENTERPRISE)).isTrue();
+    assertThat(SonarDistribution.supportsComputeEngineWorkers(DATACENTER)).isTrue();
+  }
 }
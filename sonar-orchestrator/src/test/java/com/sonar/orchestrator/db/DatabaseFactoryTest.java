@@ -155,6 +155,16 @@ public class DatabaseFactoryTest {
     DatabaseFactory.create(config, locators);
   }
 
+  @Test
+  public void driverMavenLocation() {
+    Configuration config = Configuration.builder()
+      .setProperty("sonar.jdbc.driverMavenKey", "oracle:oracle:10.1")
+      .build();
+
+    assertThat(DatabaseFactory.driverMavenLocation(config)).contains(MavenLocation.of("oracle", "oracle", "10.1"));
+    assertThat(DatabaseFactory.driverMavenLocation(Configuration.builder().build())).isEmpty();
+  }
+
   private File getDriverFile() {
     return FileUtils.toFile(getClass().getResource("/com/sonar/orchestrator/db/DatabaseFactoryTest/driver.txt"));
   }
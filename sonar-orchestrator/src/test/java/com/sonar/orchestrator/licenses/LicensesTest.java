@@ -70,6 +70,30 @@ public class LicensesTest {
     newLicenses(true).getLicense(Edition.DEVELOPER, Version.create("8.0.0.10000"));
   }
 
+  @Test
+  public void retry_download_on_transient_error_by_default() {
+    github.getServer().enqueue(new MockResponse.Builder().code(503).setHeader("Retry-After", "0").build());
+    github.getServer().enqueue(new MockResponse.Builder().body("abcde").build());
+
+    assertThat(newLicenses(true).getLicense(Edition.DEVELOPER, Version.create("8.0.0.10000"))).isEqualTo("abcde");
+    assertThat(github.getServer().getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void retry_download_on_transient_error() {
+    github.getServer().enqueue(new MockResponse.Builder().code(503).build());
+    github.getServer().enqueue(new MockResponse.Builder().body("abcde").build());
+
+    Configuration configuration = Configuration.builder()
+      .setProperty("github.token", TOKEN_VALUE)
+      .setProperty("orchestrator.http.retry.initialBackoffMs", "1")
+      .build();
+    Licenses underTest = new Licenses(configuration, "http://localhost:" + github.getServer().getPort() + "/");
+
+    assertThat(underTest.getLicense(Edition.DEVELOPER, Version.create("8.0.0.10000"))).isEqualTo("abcde");
+    assertThat(github.getServer().getRequestCount()).isEqualTo(2);
+  }
+
   @Test
   public void fail_if_github_token_is_not_defined() {
     expectedException.expect(RuntimeException.class);
@@ -0,0 +1,118 @@
+/*
+ * Orchestrator
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.orchestrator.server;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.sonar.orchestrator.container.Edition;
+import com.sonar.orchestrator.container.Server;
+import com.sonar.orchestrator.util.Version;
+import java.time.Instant;
+import java.util.List;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import mockwebserver3.junit4.MockWebServerRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.data.Offset.offset;
+
+public class CeActivityReportTest {
+
+  private static final Instant T0 = Instant.parse("2024-03-01T10:00:00Z");
+
+  @Rule
+  public MockWebServerRule mockWebServerRule = new MockWebServerRule();
+
+  @Test
+  public void compute_throughput_and_timings() {
+    CeActivityReport report = new CeActivityReport(List.of(
+      task(CeTask.Status.SUCCESS, 0, 100, 1_000),
+      task(CeTask.Status.SUCCESS, 0, 300, 2_000),
+      task(CeTask.Status.FAILED, 500, 2_000, 1_500)));
+
+    assertThat(report.getTaskCount()).isEqualTo(3);
+    assertThat(report.getFailedTaskCount()).isEqualTo(1);
+    // from first submission (T0) to last execution (T0 + 500 + 2000 + 1500)
+    assertThat(report.getWindowMs()).isEqualTo(4_000L);
+    assertThat(report.getThroughput()).isCloseTo(0.75, offset(0.001));
+    assertThat(report.getMeanQueueWaitMs()).isCloseTo(800.0, offset(0.001));
+    assertThat(report.getMaxQueueWaitMs()).isEqualTo(2_000L);
+    assertThat(report.getQueueWaitPercentileMs(50.0)).isEqualTo(300L);
+    assertThat(report.getMeanExecutionTimeMs()).isCloseTo(1_500.0, offset(0.001));
+    assertThat(report.getMaxExecutionTimeMs()).isEqualTo(2_000L);
+    assertThat(report.getExecutionTimePercentileMs(0.0)).isEqualTo(1_000L);
+    assertThat(report.toString()).contains("tasks=3", "failed=1", "window=4000ms");
+  }
+
+  @Test
+  public void empty_report() {
+    CeActivityReport report = new CeActivityReport(List.of());
+
+    assertThat(report.getTaskCount()).isZero();
+    assertThat(report.getWindowMs()).isZero();
+    assertThat(report.getThroughput()).isZero();
+    assertThat(report.getMeanQueueWaitMs()).isZero();
+    assertThat(report.getMaxExecutionTimeMs()).isZero();
+  }
+
+  @Test
+  public void fail_if_percentile_is_out_of_range() {
+    CeActivityReport report = new CeActivityReport(List.of());
+
+    assertThatThrownBy(() -> report.getQueueWaitPercentileMs(101.0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Percentile must be between 0 and 100: 101.0");
+  }
+
+  @Test
+  public void fetch_finished_tasks_from_activity_web_service() throws Exception {
+    JsonArray tasks = Json.array()
+      .add(Json.object().add("id", "T1").add("status", "SUCCESS")
+        .add("submittedAt", "2024-03-01T10:00:00+0000").add("startedAt", "2024-03-01T10:00:01+0000")
+        .add("executedAt", "2024-03-01T10:00:03+0000").add("executionTimeMs", 2_000))
+      .add(Json.object().add("id", "T2").add("status", "FAILED")
+        .add("submittedAt", "2024-03-01T10:00:00+0000").add("startedAt", "2024-03-01T10:00:02+0000")
+        .add("executedAt", "2024-03-01T10:00:04+0000").add("executionTimeMs", 2_000));
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder()
+      .body(Json.object().add("tasks", tasks).add("paging", Json.object().add("pageIndex", 1).add("pageSize", 500).add("total", 2)).toString())
+      .build());
+    Server server = new Server(null, null, Edition.ENTERPRISE, Version.create("10.4.0.1000"), mockWebServerRule.getServer().url(""), 9001, null);
+
+    CeActivityReport report = CeActivityReport.fetch(server, T0);
+
+    assertThat(report.getTasks()).extracting(CeTask::getId).containsExactly("T1", "T2");
+    assertThat(report.getWindowMs()).isEqualTo(4_000L);
+    assertThat(report.getMeanQueueWaitMs()).isCloseTo(1_500.0, offset(0.001));
+    RecordedRequest request = mockWebServerRule.getServer().takeRequest();
+    assertThat(request.getUrl().encodedPath()).isEqualTo("/api/ce/activity");
+    assertThat(request.getUrl().queryParameter("status")).isEqualTo("SUCCESS,FAILED,CANCELED");
+    assertThat(request.getUrl().queryParameter("minSubmittedAt")).isEqualTo("2024-03-01T10:00:00+0000");
+  }
+
+  private static CeTask task(CeTask.Status status, long submittedAfterMs, long queueWaitMs, long executionTimeMs) {
+    Instant submittedAt = T0.plusMillis(submittedAfterMs);
+    Instant startedAt = submittedAt.plusMillis(queueWaitMs);
+    Instant executedAt = startedAt.plusMillis(executionTimeMs);
+    return new CeTask("T" + submittedAfterMs + "-" + queueWaitMs, status, submittedAt, startedAt, executedAt, executionTimeMs, null);
+  }
+}
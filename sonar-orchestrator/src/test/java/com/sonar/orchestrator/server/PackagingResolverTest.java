@@ -38,6 +38,8 @@ import org.mockito.Mockito;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PackagingResolverTest {
@@ -156,6 +158,25 @@ public class PackagingResolverTest {
     underTest.resolve(new SonarDistribution().setVersion("6.8"));
   }
 
+  @Test
+  public void resolve_zip_location_without_downloading_zip() {
+    SonarDistribution distribution = new SonarDistribution().setVersion("LATEST_RELEASE").setEdition(Edition.DEVELOPER);
+    prepareResolutionOfVersion("com.sonarsource.sonarqube", "sonarqube-developer", "LATEST_RELEASE", Optional.of("7.3.0.1000"));
+
+    assertThat(underTest.resolveZipLocation(distribution)).isEqualTo(MavenLocation.builder()
+      .setKey("com.sonarsource.sonarqube", "sonarqube-developer", "7.3.0.1000")
+      .withPackaging("zip")
+      .build());
+    verify(locators, never()).locate(any());
+  }
+
+  @Test
+  public void resolve_zip_location_of_local_zip() {
+    FileLocation zip = FileLocation.of("sonarqube-7.3.zip");
+
+    assertThat(underTest.resolveZipLocation(new SonarDistribution().setZipLocation(zip))).isSameAs(zip);
+  }
+
   @Test
   public void fail_if_requested_version_is_missing() {
     expectedException.expect(IllegalStateException.class);
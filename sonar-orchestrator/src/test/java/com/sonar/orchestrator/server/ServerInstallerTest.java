@@ -95,6 +95,46 @@ public class ServerInstallerTest {
     assertThat(props.getProperty("sonar.forceRedirectOnDefaultAdminCredentials")).isEqualTo("false");
   }
 
+  @Test
+  public void each_server_has_its_own_http_client() throws Exception {
+    prepareResolutionOfPackaging(Edition.COMMUNITY, Version.create(VERSION_9_9), SQ_LITE_ZIP);
+
+    Server server1 = newInstaller().install(new SonarDistribution().setVersion(VERSION_9_9));
+    Server server2 = newInstaller().install(new SonarDistribution().setVersion(VERSION_9_9));
+
+    assertThat(server1.getHttpClient()).isNotNull().isNotSameAs(server2.getHttpClient());
+    assertThat(server1.getHttpClient().getConnectionPoolStats().getTotalConnections()).isZero();
+  }
+
+  @Test
+  public void response_cache_is_disabled_by_default() {
+    assertThat(ServerInstaller.newHttpClient(Configuration.builder().build()).getResponseCache()).isEmpty();
+  }
+
+  @Test
+  public void response_cache_is_enabled_by_property() {
+    Configuration config = Configuration.builder().setProperty("orchestrator.http.cacheMaxEntries", "100").build();
+
+    assertThat(ServerInstaller.newHttpClient(config).getResponseCache()).isPresent();
+  }
+
+  @Test
+  public void retry_policy_is_configured_by_properties() {
+    Configuration config = Configuration.builder().setProperty("orchestrator.http.retry.maxAttempts", "5").build();
+
+    assertThat(ServerInstaller.newHttpClient(config).getRetryPolicy()).hasValueSatisfying(p -> assertThat(p.getMaxAttempts()).isEqualTo(5));
+    assertThat(ServerInstaller.newHttpClient(Configuration.builder().build()).getRetryPolicy()).isEmpty();
+  }
+
+  @Test
+  public void fail_if_http_client_property_is_not_a_number() {
+    Configuration config = Configuration.builder().setProperty("orchestrator.http.keepAliveMs", "foo").build();
+
+    assertThatThrownBy(() -> ServerInstaller.newHttpClient(config))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Property orchestrator.http.keepAliveMs must be a number: foo");
+  }
+
   @Test
   public void force_authentication_fallback_to_false_for_8_6_and_greater() throws Exception {
     prepareResolutionOfPackaging(Edition.DATACENTER, Version.create(VERSION_9_9), SQ_LITE_ZIP);
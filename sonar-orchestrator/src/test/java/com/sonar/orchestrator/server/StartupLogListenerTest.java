@@ -19,6 +19,7 @@
  */
 package com.sonar.orchestrator.server;
 
+import com.sonar.orchestrator.util.AsyncPipe;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -47,4 +48,15 @@ public class StartupLogListenerTest {
     assertThat(underTest.isStarted()).isTrue();
   }
 
+  @Test
+  public void detect_startup_when_console_is_quiet() throws Exception {
+    when(watcher.isStarted("Process[web] is up")).thenReturn(true);
+    StartupLogListener underTest = new StartupLogListener(watcher, "node1", true, AsyncPipe.OverflowPolicy.DROP);
+
+    underTest.processLine("foo", 2);
+    underTest.processLine("Process[web] is up", 2);
+    underTest.close();
+
+    assertThat(underTest.isStarted()).isTrue();
+  }
 }
@@ -19,10 +19,15 @@
  */
 package com.sonar.orchestrator.server;
 
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
 import com.sonar.orchestrator.container.Edition;
 import com.sonar.orchestrator.container.Server;
+import com.sonar.orchestrator.http.HttpClient;
+import com.sonar.orchestrator.http.RetryPolicy;
 import com.sonar.orchestrator.util.Version;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import mockwebserver3.junit4.MockWebServerRule;
 import okhttp3.Credentials;
 import mockwebserver3.MockResponse;
@@ -59,6 +64,51 @@ public class SynchronousAnalyzerTest {
     }
   }
 
+  @Test
+  public void retry_transient_errors() {
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().code(503).build());
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().body("true").build());
+    HttpClient httpClient = new HttpClient.Builder()
+      .setRetryPolicy(RetryPolicy.builder().setInitialBackoffMs(1L).build())
+      .build();
+
+    Server server = new Server(null, null, Edition.COMMUNITY, Version.create("7.3.0.1000"), mockWebServerRule.getServer().url(""), 9001, null, httpClient);
+    new SynchronousAnalyzer(server, 1L, 2).waitForDone();
+
+    assertThat(mockWebServerRule.getServer().getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void waitForTask_polls_status_of_task_until_finished() throws Exception {
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().body(taskJson("PENDING", null, null)).build());
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().body(taskJson("IN_PROGRESS", "2024-03-01T10:00:02+0100", null)).build());
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder().body(taskJson("SUCCESS", "2024-03-01T10:00:02+0100", 1500L)).build());
+
+    Server server = new Server(null, null, Edition.COMMUNITY, Version.create("7.3.0.1000"), mockWebServerRule.getServer().url(""), 9001, null);
+    CeTask task = new SynchronousAnalyzer(server, 1L, 2).waitForTask("ABC");
+
+    assertThat(task.getId()).isEqualTo("ABC");
+    assertThat(task.isSuccess()).isTrue();
+    assertThat(task.getQueueWaitMs()).hasValue(2_000L);
+    assertThat(task.getExecutionTimeMs()).hasValue(1_500L);
+    assertThat(mockWebServerRule.getServer().getRequestCount()).isEqualTo(3);
+    RecordedRequest recordedRequest = mockWebServerRule.getServer().takeRequest();
+    assertThat(recordedRequest.getTarget()).isEqualTo(SynchronousAnalyzer.TASK_PATH + "?id=ABC");
+  }
+
+  @Test
+  public void waitForTask_returns_failed_task() {
+    mockWebServerRule.getServer().enqueue(new MockResponse.Builder()
+      .body("{\"task\": {\"id\": \"ABC\", \"status\": \"FAILED\", \"errorMessage\": \"boom\"}}").build());
+
+    Server server = new Server(null, null, Edition.COMMUNITY, Version.create("7.3.0.1000"), mockWebServerRule.getServer().url(""), 9001, null);
+    CeTask task = new SynchronousAnalyzer(server, 1L, 2).waitForTask("ABC");
+
+    assertThat(task.getStatus()).isEqualTo(CeTask.Status.FAILED);
+    assertThat(task.getErrorMessage()).hasValue("boom");
+    assertThat(task.getQueueWaitMs()).isEmpty();
+  }
+
   @Test
   public void test_default_settings() {
     Server server = mock(Server.class);
@@ -66,4 +116,18 @@ public class SynchronousAnalyzerTest {
     assertThat(analyzer.getDelayMs()).isEqualTo(100L);
     assertThat(analyzer.getLogFrequency()).isEqualTo(10);
   }
+
+  private static String taskJson(String status, @Nullable String startedAt, @Nullable Long executionTimeMs) {
+    JsonObject task = Json.object()
+      .add("id", "ABC")
+      .add("status", status)
+      .add("submittedAt", "2024-03-01T10:00:00+0100");
+    if (startedAt != null) {
+      task.add("startedAt", startedAt);
+    }
+    if (executionTimeMs != null) {
+      task.add("executionTimeMs", executionTimeMs);
+    }
+    return Json.object().add("task", task).toString();
+  }
 }